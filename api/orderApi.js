@@ -16,6 +16,13 @@ module.exports = {
     return request.get('/api/order/merchant/list', params);
   },
 
+  /**
+   * 商家订单金额汇总 (按状态, startDate/endDate 可选, 含当天)
+   */
+  getMerchantOrderTotals: (params) => {
+    return request.get('/api/order/merchant/totals', params);
+  },
+
   /**
    * 获取订单详情
    */
@@ -0,0 +1,12 @@
+-- 命名计数器 (Named counters for /api/count)
+-- Run this if you already have the database created
+
+USE `cat_mall`;
+
+-- Counters are addressed by name; the original counter (id 1) becomes 'default'.
+-- Each row is written with count = count + delta upserts, hence the unique key.
+-- Note: This will fail if the column/index already exists, which is fine
+ALTER TABLE `Counters` ADD COLUMN `name` VARCHAR(64) NULL COMMENT '计数器名称' AFTER `id`;
+UPDATE `Counters` SET `name` = IF(`id` = 1, 'default', CONCAT('counter-', `id`)) WHERE `name` IS NULL;
+ALTER TABLE `Counters` MODIFY COLUMN `name` VARCHAR(64) NOT NULL DEFAULT 'default' COMMENT '计数器名称';
+ALTER TABLE `Counters` ADD UNIQUE KEY `uk_counters_name` (`name`);
@@ -0,0 +1,26 @@
+-- 秒杀记录表 (Flash sale table)
+-- Run this if you already have the database created
+
+USE `cat_mall`;
+
+-- One row per flash sale. allotted is taken out of products.stock when the sale
+-- starts; sold moves in the same transaction as the orders it counts. The instance
+-- holding the sale's tokens (owner) keeps renewing lease_until; an open sale whose
+-- lease has passed is settled by any instance: allotted - sold - returned goes back
+-- to products.stock.
+-- Note: This will fail if the table already exists, which is fine
+CREATE TABLE `flash_sales` (
+  `id` INT AUTO_INCREMENT PRIMARY KEY,
+  `item_type` VARCHAR(20) NOT NULL COMMENT '类型: product, pet',
+  `item_id` INT NOT NULL COMMENT '商品/宠物ID',
+  `allotted` INT NOT NULL COMMENT '开始时从库存划出的数量',
+  `sold` INT NOT NULL DEFAULT 0 COMMENT '已写入订单的数量',
+  `returned` INT NOT NULL DEFAULT 0 COMMENT '已退回库存的数量',
+  `status` ENUM('open', 'closed') NOT NULL DEFAULT 'open' COMMENT '状态',
+  `owner` VARCHAR(64) COMMENT '持有令牌的实例',
+  `lease_until` DATETIME(3) COMMENT '租约到期时间, 过期未续约的秒杀由其他实例结算',
+  `ends_at` DATETIME NOT NULL COMMENT '结束时间',
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  INDEX `idx_flash_sales_status_lease` (`status`, `lease_until`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='秒杀记录表 (库存划拨与对账)';
@@ -0,0 +1,20 @@
+-- 列表游标分页索引 (Keyset pagination indexes)
+-- Run this if you already have the database created
+
+USE `cat_mall`;
+
+-- The list endpoints seek with "(sort_key, id) < (?, ?)" ordered by "sort_key DESC, id DESC".
+-- InnoDB secondary indexes carry the primary key, so a single-column index on the
+-- sort key already serves the (sort_key, id) order.
+--   pets.created_at   -> idx_pets_created_at (new)
+--   products.sales    -> idx_products_sales (exists)
+--   services.sales    -> idx_services_sales (new)
+--   merchants.rating  -> idx_merchants_rating (exists)
+-- Note: This will fail if the index already exists, which is fine
+ALTER TABLE `pets` ADD INDEX `idx_pets_created_at` (`created_at`);
+ALTER TABLE `services` ADD INDEX `idx_services_sales` (`sales`);
+
+-- Rows with a NULL sort key can never be reached by a keyset seek
+UPDATE `products` SET `sales` = 0 WHERE `sales` IS NULL;
+UPDATE `services` SET `sales` = 0 WHERE `sales` IS NULL;
+UPDATE `merchants` SET `rating` = 5.0 WHERE `rating` IS NULL;
@@ -0,0 +1,10 @@
+-- 订单明细类型字段 (Order item type column)
+-- Run this if you already have the database created
+
+USE `cat_mall`;
+
+-- order_items rows are written by the backend on order creation. Pet deposits and
+-- products share the table, so each row records which catalog it points at.
+-- Note: This will fail if the column/index already exists, which is fine
+ALTER TABLE `order_items` ADD COLUMN `item_type` VARCHAR(20) NOT NULL DEFAULT 'product' COMMENT '类型: product, pet' AFTER `order_id`;
+ALTER TABLE `order_items` ADD INDEX `idx_order_items_product_id` (`product_id`);
@@ -0,0 +1,10 @@
+-- 商家订单列表索引 (Merchant order list index)
+-- Run this if you already have the database created
+
+USE `cat_mall`;
+
+-- /api/order/merchant/list filters by status and walks created_at DESC, id DESC.
+--   no status filter -> idx_orders_created_at (exists)
+--   status filter    -> idx_orders_status_created_at (new), avoids a filesort
+-- Note: This will fail if the index already exists, which is fine
+ALTER TABLE `orders` ADD INDEX `idx_orders_status_created_at` (`status`, `created_at`);
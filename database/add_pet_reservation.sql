@@ -0,0 +1,11 @@
+-- 宠物预订字段 (Pet reservation columns)
+-- Run this if you already have the database created
+
+USE `cat_mall`;
+
+-- A booked pet points at the deposit order holding it. reserved_until is the
+-- deadline for paying that deposit; the expiry job frees pets past it.
+-- Note: This will fail if the column/index already exists, which is fine
+ALTER TABLE `pets` ADD COLUMN `reserved_order_id` INT COMMENT '定金订单ID (booked 时)' AFTER `merchant_id`;
+ALTER TABLE `pets` ADD COLUMN `reserved_until` DATETIME COMMENT '预订保留截止时间, 定金支付后清空' AFTER `reserved_order_id`;
+ALTER TABLE `pets` ADD INDEX `idx_pets_status_reserved_until` (`status`, `reserved_until`);
@@ -0,0 +1,15 @@
+-- 查询计划索引 (indexes found missing by the query-plan check)
+-- Run this if you already have the database created
+
+USE `cat_mall`;
+
+-- Login looks users up by phone, and the merchant filter of the pet list
+-- resolves a merchant by phone; both were full table scans.
+-- Note: This will fail if the index already exists, which is fine
+ALTER TABLE `users` ADD INDEX `idx_users_phone` (`phone`);
+ALTER TABLE `merchants` ADD INDEX `idx_merchants_phone` (`phone`);
+
+-- A user's order list filters on user_id and sorts by created_at; the
+-- composite index returns it in order, and covers user_id-only lookups too.
+ALTER TABLE `orders` ADD INDEX `idx_orders_user_id_created_at` (`user_id`, `created_at`);
+ALTER TABLE `orders` DROP INDEX `idx_orders_user_id`;
@@ -0,0 +1,11 @@
+-- 列表 ETag 版本索引 (updated_at indexes for list ETags)
+-- Run this if you already have the database created
+
+USE `cat_mall`;
+
+-- The list endpoints answer If-None-Match from COUNT(*) and MAX(updated_at);
+-- with these indexes MAX is a single index lookup.
+-- Note: This will fail if the index already exists, which is fine
+ALTER TABLE `pets` ADD INDEX `idx_pets_updated_at` (`updated_at`);
+ALTER TABLE `products` ADD INDEX `idx_products_updated_at` (`updated_at`);
+ALTER TABLE `services` ADD INDEX `idx_services_updated_at` (`updated_at`);
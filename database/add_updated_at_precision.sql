@@ -0,0 +1,13 @@
+-- updated_at 毫秒精度 (millisecond updated_at for ETags and PATCH guards)
+-- Run this if you already have the database created
+
+USE `cat_mall`;
+
+-- Detail ETags, the list version (COUNT(*) + MAX(updated_at)) and the updated_at
+-- guard on PATCH all compare updated_at. At whole seconds, a second write in the same
+-- second left it unchanged: clients kept a stale copy on 304 and a stale PATCH went
+-- through. Existing values keep their second and get .000.
+ALTER TABLE `merchants` MODIFY `updated_at` TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间';
+ALTER TABLE `pets` MODIFY `updated_at` TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+ALTER TABLE `products` MODIFY `updated_at` TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+ALTER TABLE `services` MODIFY `updated_at` TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
@@ -18,8 +18,9 @@ CREATE TABLE IF NOT EXISTS `merchants` (
   `logo` VARCHAR(255) COMMENT '商家Logo URL',
   `rating` DECIMAL(2,1) DEFAULT 5.0 COMMENT '商家评分',
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
-  INDEX `idx_merchants_rating` (`rating`)
+  `updated_at` TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间',
+  INDEX `idx_merchants_rating` (`rating`),
+  INDEX `idx_merchants_phone` (`phone`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='商家信息表';
 
 -- 1.2 用户表 (Users) - 新增
@@ -31,7 +32,8 @@ CREATE TABLE IF NOT EXISTS `users` (
   `phone` VARCHAR(20) COMMENT '手机号',
   `role` VARCHAR(20) DEFAULT 'user' COMMENT '角色: user, merchant, admin',
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  INDEX `idx_users_phone` (`phone`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户信息表';
 
 -- 1.3 地址表 (Addresses) - 新增
@@ -61,12 +63,17 @@ CREATE TABLE IF NOT EXISTS `pets` (
   `avatar` VARCHAR(255) COMMENT '头像URL',
   `health_status` VARCHAR(50) DEFAULT '健康' COMMENT '健康状况',
   `merchant_id` INT COMMENT '所属商家ID',
+  `reserved_order_id` INT COMMENT '定金订单ID (booked 时)',
+  `reserved_until` DATETIME COMMENT '预订保留截止时间, 定金支付后清空',
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  `updated_at` TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
   FOREIGN KEY (`merchant_id`) REFERENCES `merchants`(`id`) ON DELETE SET NULL,
   INDEX `idx_pets_status` (`status`),
   INDEX `idx_pets_breed` (`breed`),
-  INDEX `idx_pets_price` (`price`)
+  INDEX `idx_pets_price` (`price`),
+  INDEX `idx_pets_created_at` (`created_at`),
+  INDEX `idx_pets_status_reserved_until` (`status`, `reserved_until`),
+  INDEX `idx_pets_updated_at` (`updated_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='宠物商品表';
 
 -- 1.5 商品表 (Products)
@@ -81,9 +88,10 @@ CREATE TABLE IF NOT EXISTS `products` (
   `rating` DECIMAL(2,1) DEFAULT 5.0 COMMENT '评分',
   `image` VARCHAR(255) COMMENT '商品图片URL',
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  `updated_at` TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
   INDEX `idx_products_category` (`category`),
-  INDEX `idx_products_sales` (`sales`)
+  INDEX `idx_products_sales` (`sales`),
+  INDEX `idx_products_updated_at` (`updated_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='普通商品表';
 
 -- 1.6 服务表 (Services)
@@ -100,9 +108,11 @@ CREATE TABLE IF NOT EXISTS `services` (
   `sales` INT DEFAULT 0 COMMENT '销量',
   `rating` DECIMAL(2,1) DEFAULT 5.0 COMMENT '评分',
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  `updated_at` TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
   INDEX `idx_services_category` (`category`),
-  INDEX `idx_services_merchant_id` (`merchant_id`)
+  INDEX `idx_services_merchant_id` (`merchant_id`),
+  INDEX `idx_services_sales` (`sales`),
+  INDEX `idx_services_updated_at` (`updated_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='服务项目表';
 
 -- 1.7 订单表 (Orders)
@@ -117,24 +127,45 @@ CREATE TABLE IF NOT EXISTS `orders` (
   `tracking_number` VARCHAR(64) COMMENT '快递单号',
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-  INDEX `idx_orders_user_id` (`user_id`),
+  INDEX `idx_orders_user_id_created_at` (`user_id`, `created_at`),
   INDEX `idx_orders_status` (`status`),
-  INDEX `idx_orders_created_at` (`created_at`)
+  INDEX `idx_orders_created_at` (`created_at`),
+  INDEX `idx_orders_status_created_at` (`status`, `created_at`),
+  INDEX `idx_orders_created_at_status_amount` (`created_at`, `status`, `total_amount`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单表';
 
 -- 1.8 订单项表 (Order Items) - 新增
 CREATE TABLE IF NOT EXISTS `order_items` (
   `id` INT AUTO_INCREMENT PRIMARY KEY,
   `order_id` INT NOT NULL COMMENT '关联订单ID',
+  `item_type` VARCHAR(20) NOT NULL DEFAULT 'product' COMMENT '类型: product, pet',
   `product_id` INT COMMENT '商品ID',
   `product_name` VARCHAR(100) COMMENT '商品名称快照',
   `price` DECIMAL(10,2) NOT NULL COMMENT '购买单价',
   `quantity` INT NOT NULL DEFAULT 1 COMMENT '购买数量',
   `amount` DECIMAL(10,2) NOT NULL COMMENT '总价',
   FOREIGN KEY (`order_id`) REFERENCES `orders`(`id`) ON DELETE CASCADE,
-  INDEX `idx_order_items_order_id` (`order_id`)
+  INDEX `idx_order_items_order_id` (`order_id`),
+  INDEX `idx_order_items_product_id` (`product_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单商品明细表';
 
+-- 1.8.1 秒杀表 (Flash Sales) - 新增
+CREATE TABLE IF NOT EXISTS `flash_sales` (
+  `id` INT AUTO_INCREMENT PRIMARY KEY,
+  `item_type` VARCHAR(20) NOT NULL COMMENT '类型: product, pet',
+  `item_id` INT NOT NULL COMMENT '商品/宠物ID',
+  `allotted` INT NOT NULL COMMENT '开始时从库存划出的数量',
+  `sold` INT NOT NULL DEFAULT 0 COMMENT '已写入订单的数量',
+  `returned` INT NOT NULL DEFAULT 0 COMMENT '已退回库存的数量',
+  `status` ENUM('open', 'closed') NOT NULL DEFAULT 'open' COMMENT '状态',
+  `owner` VARCHAR(64) COMMENT '持有令牌的实例',
+  `lease_until` DATETIME(3) COMMENT '租约到期时间, 过期未续约的秒杀由其他实例结算',
+  `ends_at` DATETIME NOT NULL COMMENT '结束时间',
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  INDEX `idx_flash_sales_status_lease` (`status`, `lease_until`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='秒杀记录表 (库存划拨与对账)';
+
 -- ==========================================
 -- 2. 存储过程与函数 (Stored Procedures)
 -- ==========================================
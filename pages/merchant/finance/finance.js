@@ -2,6 +2,23 @@
 const app = getApp()
 const orderApi = require('../../../api/orderApi');
 
+// 计入收入的订单状态 (pending/cancelled exclude)
+const INCOME_STATUSES = ['paid', 'shipped', 'completed'];
+
+// 本地日期 YYYY-MM-DD，与服务端按天筛选一致 (toISOString 是 UTC 日期)
+const formatDay = (date) => {
+  const month = String(date.getMonth() + 1).padStart(2, '0');
+  const day = String(date.getDate()).padStart(2, '0');
+  return `${date.getFullYear()}-${month}-${day}`;
+};
+
+// 汇总 /api/order/merchant/totals 中指定状态的金额
+const sumAmount = (totals, statuses) => {
+  return (totals || [])
+    .filter(t => statuses.includes(t.status))
+    .reduce((sum, t) => sum + parseFloat(t.totalAmount || 0), 0);
+};
+
 Page({
 
   /**
@@ -137,65 +154,41 @@ Page({
     // 保存this上下文
     const that = this;
     
-    // 调用真实API获取订单数据来计算财务数据
-    orderApi.getMerchantOrderList().then(res => {
-        const orders = res || [];
-        
-        // 计算收入
-        let todayIncome = 0;
-        let monthIncome = 0;
-        let totalIncome = 0;
-        let pendingSettlement = 0;
-        
-        const now = new Date();
-        const todayStr = now.toISOString().split('T')[0];
-        const thisMonthStr = todayStr.substring(0, 7); // YYYY-MM
+    const now = new Date();
+    const today = formatDay(now);
+    const monthStart = formatDay(new Date(now.getFullYear(), now.getMonth(), 1));
 
-        const transactions = [];
+    // 金额由服务端按状态汇总 (不在一页订单上求和)，最近交易只取一页展示
+    Promise.all([
+        orderApi.getMerchantOrderTotals({ startDate: today, endDate: today }),
+        orderApi.getMerchantOrderTotals({ startDate: monthStart, endDate: today }),
+        orderApi.getMerchantOrderTotals({}),
+        orderApi.getMerchantOrderList({ size: 20 })
+    ]).then(([todayTotals, monthTotals, allTotals, page]) => {
+        const orders = (page && page.list) || [];
 
-        orders.forEach(order => {
-            const amount = parseFloat(order.totalAmount || 0);
-            const createTime = order.createdAt ? new Date(order.createdAt) : new Date();
-            const dateStr = createTime.toISOString().split('T')[0];
-            const monthStr = dateStr.substring(0, 7);
-
-            // 只统计已支付/已完成/已发货的订单作为收入 (pending/cancelled exclude)
-            if (['paid', 'shipped', 'completed'].includes(order.status)) {
-                totalIncome += amount;
-                if (dateStr === todayStr) {
-                    todayIncome += amount;
-                }
-                if (monthStr === thisMonthStr) {
-                    monthIncome += amount;
-                }
-                
-                // Add to transactions list (limit to recent 5)
-                if (transactions.length < 5) {
-                    transactions.push({
-                        id: order.id,
-                        type: 'income',
-                        description: `订单${order.orderNo}`,
-                        amount: amount,
-                        createdAt: order.createdAt,
-                        status: 'completed'
-                    });
-                }
-            }
-            
-            // 待结算: 假设 shipped 但未 completed
-            if (order.status === 'shipped') {
-                pendingSettlement += amount;
-            }
-        });
+        // 最近交易 (limit to recent 5)
+        const transactions = orders
+            .filter(order => INCOME_STATUSES.includes(order.status))
+            .slice(0, 5)
+            .map(order => ({
+                id: order.id,
+                type: 'income',
+                description: `订单${order.orderNo}`,
+                amount: parseFloat(order.totalAmount || 0),
+                createdAt: order.createdAt,
+                status: 'completed'
+            }));
 
         that.setData({
-            todayIncome: todayIncome.toFixed(2),
+            todayIncome: sumAmount(todayTotals, INCOME_STATUSES).toFixed(2),
             todayIncomeChange: 0, // 暂无历史对比
-            monthIncome: monthIncome.toFixed(2),
+            monthIncome: sumAmount(monthTotals, INCOME_STATUSES).toFixed(2),
             monthIncomeChange: 0,
-            totalIncome: totalIncome.toFixed(2),
+            totalIncome: sumAmount(allTotals, INCOME_STATUSES).toFixed(2),
             totalIncomeChange: 0,
-            pendingSettlement: pendingSettlement.toFixed(2),
+            // 待结算: 假设 shipped 但未 completed
+            pendingSettlement: sumAmount(allTotals, ['shipped']).toFixed(2),
             transactions: transactions,
             settlements: [], // 暂无结算API
             isLoading: false
@@ -204,7 +197,6 @@ Page({
     }).catch(err => {
         console.error('Load finance data failed', err);
         that.setData({ isLoading: false });
-        // Fallback to mock if API fails? No, keep it real or empty.
     });
   },
   
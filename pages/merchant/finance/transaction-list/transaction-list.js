@@ -1,5 +1,28 @@
 // pages/merchant/finance/transaction-list/transaction-list.js
 const app = getApp()
+const orderApi = require('../../../../api/orderApi');
+
+// 计入收入的订单状态
+const INCOME_STATUSES = ['paid', 'shipped', 'completed'];
+const PAGE_SIZE = 20;
+
+// 本地日期 YYYY-MM-DD，与服务端按天筛选一致
+const formatDay = (date) => {
+  const month = String(date.getMonth() + 1).padStart(2, '0');
+  const day = String(date.getDate()).padStart(2, '0');
+  return `${date.getFullYear()}-${month}-${day}`;
+};
+
+// 时间筛选对应的日期范围 (含当天)，'all' 不限
+const dateRange = (timeRange) => {
+  const days = { today: 0, week: 6, month: 29, quarter: 89 }[timeRange];
+  if (days === undefined) {
+    return {};
+  }
+  const end = new Date();
+  const start = new Date(end.getFullYear(), end.getMonth(), end.getDate() - days);
+  return { startDate: formatDay(start), endDate: formatDay(end) };
+};
 
 Page({
   /**
@@ -24,6 +47,10 @@ Page({
     // 交易记录
     transactions: [],
     
+    // 分页游标 (已加载的订单之后)，null 表示没有更多
+    nextCursor: null,
+    loadingMore: false,
+    
     // 统计数据
     stats: {
       totalCount: 0,
@@ -63,49 +90,20 @@ Page({
 
   /**
    * 加载交易记录
+   * 统计取自服务端汇总，覆盖整个时间范围；列表按游标分页，滚动到底部继续加载
    */
   loadTransactions() {
     this.setData({ isLoading: true })
     
-    // 调用真实API获取订单数据转换为交易记录
-    orderApi.getMerchantOrderList().then(res => {
-        const orders = res || [];
-        const transactions = [];
-
-        orders.forEach(order => {
-             // 只显示已支付/已完成/已发货的订单
-             if (['paid', 'shipped', 'completed'].includes(order.status)) {
-                transactions.push({
-                    id: order.id,
-                    type: 'income',
-                    description: `订单${order.orderNo}`,
-                    amount: parseFloat(order.totalAmount || 0),
-                    createdAt: order.createdAt,
-                    status: 'completed',
-                    orderId: order.orderNo,
-                    paymentMethod: '微信支付' // Default
-                });
-             }
-        });
-
-        // 筛选逻辑 (Client-side filtering for now)
-        let filtered = transactions;
-        const { type, timeRange, status, keyword } = this.data.filter;
-
-        if (type !== 'all') {
-            filtered = filtered.filter(t => t.type === type);
-        }
-        if (keyword) {
-            filtered = filtered.filter(t => t.description.includes(keyword) || t.orderId.includes(keyword));
-        }
-        // Time range and status filtering skipped for brevity but should be here
-
-        // 计算统计数据
-        const stats = this.calculateStats(filtered)
-        
+    const range = dateRange(this.data.filter.timeRange);
+    Promise.all([
+        orderApi.getMerchantOrderTotals(range),
+        orderApi.getMerchantOrderList({ ...range, size: PAGE_SIZE, cursor: '' })
+    ]).then(([totals, page]) => {
         this.setData({
-            transactions: filtered,
-            stats: stats,
+            transactions: this.toTransactions((page && page.list) || []),
+            nextCursor: (page && page.nextCursor) || null,
+            stats: this.calculateStats(totals),
             isLoading: false
         })
     }).catch(err => {
@@ -115,24 +113,62 @@ Page({
   },
 
   /**
-   * 计算统计数据
+   * 加载下一页交易记录
+   */
+  loadMoreTransactions() {
+    const { nextCursor, loadingMore, isLoading } = this.data
+    if (!nextCursor || loadingMore || isLoading) {
+      return
+    }
+    this.setData({ loadingMore: true })
+
+    const range = dateRange(this.data.filter.timeRange);
+    orderApi.getMerchantOrderList({ ...range, size: PAGE_SIZE, cursor: nextCursor }).then(page => {
+        this.setData({
+            transactions: this.data.transactions.concat(this.toTransactions((page && page.list) || [])),
+            nextCursor: (page && page.nextCursor) || null,
+            loadingMore: false
+        })
+    }).catch(err => {
+        console.error('Load more transactions failed', err);
+        this.setData({ loadingMore: false });
+    });
+  },
+
+  /**
+   * 订单转换为交易记录 (只显示已支付/已完成/已发货的订单)
+   * 关键词只筛选已加载的记录，不影响统计
    */
-  calculateStats(transactions) {
+  toTransactions(orders) {
+    const { type, keyword } = this.data.filter;
+    return orders
+        .filter(order => INCOME_STATUSES.includes(order.status))
+        .map(order => ({
+            id: order.id,
+            type: 'income',
+            description: `订单${order.orderNo}`,
+            amount: parseFloat(order.totalAmount || 0),
+            createdAt: order.createdAt,
+            status: 'completed',
+            orderId: order.orderNo,
+            paymentMethod: '微信支付' // Default
+        }))
+        .filter(t => type === 'all' || t.type === type)
+        .filter(t => !keyword || t.description.includes(keyword) || t.orderId.includes(keyword));
+  },
+
+  /**
+   * 计算统计数据 (from /api/order/merchant/totals)
+   */
+  calculateStats(totals) {
+    const income = (totals || []).filter(t => INCOME_STATUSES.includes(t.status))
     const stats = {
-      totalCount: transactions.length,
-      totalIncome: 0,
-      totalExpense: 0,
+      totalCount: income.reduce((count, t) => count + (t.orderCount || 0), 0),
+      totalIncome: income.reduce((sum, t) => sum + parseFloat(t.totalAmount || 0), 0),
+      totalExpense: 0, // 暂无支出数据
       netIncome: 0
     }
     
-    transactions.forEach(transaction => {
-      if (transaction.type === 'income') {
-        stats.totalIncome += transaction.amount
-      } else {
-        stats.totalExpense += transaction.amount
-      }
-    })
-    
     stats.netIncome = stats.totalIncome - stats.totalExpense
     
     // 保留两位小数
@@ -330,5 +366,12 @@ Page({
     this.loadTransactions()
     // 停止下拉刷新
     wx.stopPullDownRefresh()
+  },
+
+  /**
+   * 页面上拉触底事件的处理函数
+   */
+  onReachBottom() {
+    this.loadMoreTransactions()
   }
 })
\ No newline at end of file
@@ -106,7 +106,7 @@ Page({
    * 确认付款
    */
   confirmPayment() {
-    this.updateOrderStatus('processing', '确认付款成功')
+    this.updateOrderStatus('paid', '确认付款成功')
   },
 
   /**
@@ -4,6 +4,8 @@ const globalUtils = require('../../../utils/globalUtils')
 const orderApi = require('../../../api/orderApi');
 const { logError } = globalUtils
 
+const PAGE_SIZE = 20;
+
 Page({
 
   /**
@@ -13,8 +15,12 @@ Page({
     orders: [],
     isLoading: true,
     keyword: '',
-    activeTab: 'all', // all, pending, processing, shipped, completed, cancelled
-    filteredOrders: []
+    activeTab: 'all', // all 或 OrderStatus 取值: pending, paid, shipped, completed, cancelled
+    filteredOrders: [],
+    
+    // 分页游标 (已加载的订单之后)，null 表示没有更多
+    nextCursor: null,
+    loadingMore: false
   },
 
   /**
@@ -60,7 +66,7 @@ Page({
   },
 
   /**
-   * 加载订单数据
+   * 加载订单数据 (第一页)
    */
   loadOrders() {
     this.setData({ isLoading: true })
@@ -68,17 +74,13 @@ Page({
     // 保存this上下文
     const that = this;
     
-    const params = {
-        status: this.data.activeTab === 'all' ? '' : this.data.activeTab,
-        keyword: this.data.keyword
-    };
-
-    orderApi.getMerchantOrderList(params).then(res => {
-        const orders = res.data || [];
+    orderApi.getMerchantOrderList(this.listParams('')).then(res => {
+        const orders = (res && res.list) || [];
         
         that.setData({
             orders: orders,
             filteredOrders: orders, // 后端已筛选，前端直接使用
+            nextCursor: (res && res.nextCursor) || null,
             isLoading: false
         });
     }).catch(err => {
@@ -91,6 +93,42 @@ Page({
     });
   },
 
+  /**
+   * 加载下一页订单
+   */
+  loadMoreOrders() {
+    const { nextCursor, loadingMore, isLoading } = this.data
+    if (!nextCursor || loadingMore || isLoading) {
+      return
+    }
+    this.setData({ loadingMore: true })
+
+    orderApi.getMerchantOrderList(this.listParams(nextCursor)).then(res => {
+        const orders = this.data.orders.concat((res && res.list) || []);
+        this.setData({
+            orders: orders,
+            filteredOrders: orders,
+            nextCursor: (res && res.nextCursor) || null,
+            loadingMore: false
+        });
+    }).catch(err => {
+        console.error('加载更多订单失败:', err);
+        this.setData({ loadingMore: false });
+    });
+  },
+
+  /**
+   * 列表请求参数: 标签页即 OrderStatus 取值，cursor 为空串时取第一页
+   */
+  listParams(cursor) {
+    return {
+        status: this.data.activeTab === 'all' ? '' : this.data.activeTab,
+        keyword: this.data.keyword,
+        size: PAGE_SIZE,
+        cursor: cursor
+    };
+  },
+
   /**
    * 搜索订单
    */
@@ -119,8 +157,10 @@ Page({
    * 筛选订单
    */
   filterOrders() {
-    // 已改为后端筛选，前端仅保留此空方法以兼容可能的调用
-    this.loadOrders();
+    // 已改为后端筛选；不重新请求，以免丢掉已加载的分页
+    this.setData({
+      filteredOrders: this.data.orders
+    })
   },
 
   /**
@@ -145,7 +185,7 @@ Page({
    */
   confirmPayment(e) {
     const orderId = e.currentTarget.dataset.id
-    this.updateOrderStatus(orderId, 'processing', '确认付款成功')
+    this.updateOrderStatus(orderId, 'paid', '确认付款成功')
   },
 
   /**
@@ -393,5 +433,12 @@ Page({
     this.loadOrders()
     // 停止下拉刷新
     wx.stopPullDownRefresh()
+  },
+
+  /**
+   * 页面上拉触底事件的处理函数
+   */
+  onReachBottom() {
+    this.loadMoreOrders()
   }
 })
@@ -8,6 +8,7 @@ Page({
    */
   data: {
     productId: null,
+    loadedStock: 0, // 加载时的库存，提交时只发送变化量
     product: {
       name: '',
       category: '',
@@ -102,6 +103,7 @@ Page({
       
       this.setData({
         product: product,
+        loadedStock: product.stock,
         categoryIndex: categoryIndex >= 0 ? categoryIndex : 0,
         isLoading: false
       })
@@ -252,12 +254,14 @@ Page({
     
     this.setData({ isSubmitting: true })
     
-    const { product, productId } = this.data
+    const { product, productId, loadedStock } = this.data
     
-    // 构建更新数据
+    // 构建更新数据：库存和销量随订单变化，只提交库存的变化量，避免覆盖编辑期间的下单
+    const { stock, sales, ...fields } = product
     const updateData = {
-        ...product,
-        id: productId // 确保 ID 存在
+        ...fields,
+        id: productId, // 确保 ID 存在
+        stockDelta: parseInt(stock) - loadedStock
     };
     
     wx.showLoading({
@@ -0,0 +1,151 @@
+package com.tencent.wxcloudrun.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.tencent.wxcloudrun.config.ApiResponse;
+import com.tencent.wxcloudrun.model.Order;
+import com.tencent.wxcloudrun.model.OrderItem;
+import com.tencent.wxcloudrun.model.Pet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 列表接口序列化
+ * Serialises the same {list, total} payloads the list endpoints return, with an
+ * ObjectMapper built the way Spring MVC builds its message converter. Output goes to
+ * a discarding stream so the numbers exclude buffer growth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+    // Page size of the mini program lists, an admin export, and a full merchant dump
+    @Param({"20", "200", "2000"})
+    private int size;
+
+    private ObjectWriter writer;
+    private ApiResponse pets;
+    private ApiResponse orders;
+
+    @Setup
+    public void setup() {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = mapper.writerFor(ApiResponse.class);
+
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+        List<Pet> petList = new ArrayList<>(size);
+        List<Order> orderList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            petList.add(pet(i, now));
+            orderList.add(order(i, now));
+        }
+        pets = ApiResponse.ok(page(petList));
+        orders = ApiResponse.ok(page(orderList));
+    }
+
+    @Benchmark
+    public void petList() throws Exception {
+        writer.writeValue(NullOutputStream.INSTANCE, pets);
+    }
+
+    @Benchmark
+    public void orderList() throws Exception {
+        writer.writeValue(NullOutputStream.INSTANCE, orders);
+    }
+
+    @Benchmark
+    public byte[] petListToBytes() throws Exception {
+        return writer.writeValueAsBytes(pets);
+    }
+
+    private static Map<String, Object> page(List<?> list) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("list", list);
+        data.put("total", list.size());
+        return data;
+    }
+
+    private static Pet pet(int i, LocalDateTime now) {
+        Pet pet = new Pet();
+        pet.setId(i + 1);
+        pet.setName("布偶猫 " + i);
+        pet.setBreed("Ragdoll");
+        pet.setAge("3个月");
+        pet.setGender(i % 2 == 0 ? "male" : "female");
+        pet.setPrice(new BigDecimal("4999.00"));
+        pet.setDeposit(new BigDecimal("500.00"));
+        pet.setStatus("available");
+        pet.setDescription("已驱虫，已打第一针疫苗，性格亲人，蓝眼双色，支持视频看猫。");
+        pet.setAvatar("/uploads/3f/a2/3fa2c9e0b1d4e5f60718293a4b5c6d7e8f9012345678901234567890abcdef" + (i % 10) + ".jpg");
+        pet.setHealthStatus("healthy");
+        pet.setMerchantId(1 + i % 5);
+        pet.setCreatedAt(now.minusDays(i % 30));
+        pet.setUpdatedAt(now);
+        return pet;
+    }
+
+    private static Order order(int i, LocalDateTime now) {
+        Order order = new Order();
+        order.setId(i + 1);
+        order.setOrderNo("ORD" + (1234567890123456L + i));
+        order.setUserId("oAbCdEfGhIjKlMnOpQrStUv" + (i % 50));
+        order.setStatus("paid");
+        order.setAddressSnapshot("{\"name\":\"张三\",\"phone\":\"13800000000\",\"detail\":\"广东省深圳市南山区科技园\"}");
+        order.setCreatedAt(now.minusHours(i));
+        order.setUpdatedAt(now);
+
+        List<OrderItem> items = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (int j = 0; j < 3; j++) {
+            OrderItem item = new OrderItem();
+            item.setId(i * 3 + j + 1);
+            item.setOrderId(i + 1);
+            item.setItemType(OrderItem.TYPE_PRODUCT);
+            item.setProductId(100 + j);
+            item.setProductName("冻干猫粮 1.5kg");
+            item.setPrice(new BigDecimal("89.90"));
+            item.setQuantity(j + 1);
+            item.setAmount(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            total = total.add(item.getAmount());
+            items.add(item);
+        }
+        order.setItems(items);
+        order.setTotalAmount(total);
+        return order;
+    }
+
+    private static final class NullOutputStream extends OutputStream {
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.tencent.wxcloudrun.benchmark;
+
+import com.tencent.wxcloudrun.config.AuthenticationInterceptor;
+import com.tencent.wxcloudrun.model.User;
+import com.tencent.wxcloudrun.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 鉴权拦截器
+ * preHandle with UserService.getPrincipal answered from memory, i.e. the principal
+ * cache hit that almost every merchant request takes. Requests are reused, so this
+ * measures the interceptor itself rather than servlet request construction. Rejected
+ * requests are left out since each one logs a warning.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticationInterceptorBenchmark {
+
+    private static final String MERCHANT_OPENID = "oMerchant0001";
+
+    private AuthenticationInterceptor interceptor;
+    private MockHttpServletRequest publicRequest;
+    private MockHttpServletRequest merchantRequest;
+    private MockHttpServletRequest debugHeaderRequest;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setup() {
+        User merchant = user(MERCHANT_OPENID, "merchant");
+        UserService userService = (UserService) Proxy.newProxyInstance(
+                UserService.class.getClassLoader(), new Class<?>[]{UserService.class},
+                (proxy, method, args) -> {
+                    if ("getPrincipal".equals(method.getName())) {
+                        return MERCHANT_OPENID.equals(args[0]) ? merchant : null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        interceptor = new AuthenticationInterceptor();
+        ReflectionTestUtils.setField(interceptor, "userService", userService);
+
+        publicRequest = new MockHttpServletRequest("GET", "/api/cat/list");
+        merchantRequest = new MockHttpServletRequest("GET", "/api/merchant/orders");
+        merchantRequest.addHeader("x-wx-openid", MERCHANT_OPENID);
+        debugHeaderRequest = new MockHttpServletRequest("GET", "/api/merchant/orders");
+        debugHeaderRequest.addHeader("X-Debug-OpenId", MERCHANT_OPENID);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public boolean publicPath() throws Exception {
+        return interceptor.preHandle(publicRequest, response, null);
+    }
+
+    @Benchmark
+    public boolean merchantAllowed() throws Exception {
+        return interceptor.preHandle(merchantRequest, response, null);
+    }
+
+    @Benchmark
+    public boolean merchantDebugHeader() throws Exception {
+        return interceptor.preHandle(debugHeaderRequest, response, null);
+    }
+
+    private static User user(String openid, String role) {
+        User user = new User();
+        user.setId(openid.hashCode());
+        user.setOpenid(openid);
+        user.setNickname(openid);
+        user.setRole(role);
+        return user;
+    }
+}
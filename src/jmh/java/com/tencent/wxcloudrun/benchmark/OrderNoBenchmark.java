@@ -0,0 +1,55 @@
+package com.tencent.wxcloudrun.benchmark;
+
+import com.tencent.wxcloudrun.service.impl.OrderNoGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成
+ * Throughput is bounded by 4096 ids per millisecond per worker, so the contended
+ * runs also show how often callers end up spinning for the next millisecond.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderNoBenchmark {
+
+    private OrderNoGenerator generator;
+
+    @Setup
+    public void setup() {
+        generator = new OrderNoGenerator(1, 5000);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long nextIdSingleThread() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String nextOrderNoSingleThread() {
+        return generator.nextOrderNo();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String nextOrderNoContended() {
+        return generator.nextOrderNo();
+    }
+}
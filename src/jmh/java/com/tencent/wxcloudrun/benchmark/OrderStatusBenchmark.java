@@ -0,0 +1,58 @@
+package com.tencent.wxcloudrun.benchmark;
+
+import com.tencent.wxcloudrun.model.OrderStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单状态解析
+ * Status strings as they arrive from request bodies and order rows: mostly lower case,
+ * with the occasional upper-case value from older clients.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderStatusBenchmark {
+
+    private final String[] values = {"pending", "paid", "shipped", "completed", "cancelled", "PAID", "Cancelled"};
+    private int next;
+
+    @Benchmark
+    public OrderStatus fromValueFirst() {
+        return OrderStatus.fromValue("pending");
+    }
+
+    @Benchmark
+    public OrderStatus fromValueLast() {
+        return OrderStatus.fromValue("cancelled");
+    }
+
+    @Benchmark
+    public OrderStatus fromValueMixed() {
+        String value = values[next];
+        next = next + 1 == values.length ? 0 : next + 1;
+        return OrderStatus.fromValue(value);
+    }
+
+    // Status change request: parse both ends and check the transition table
+    @Benchmark
+    public void transitionCheck(Blackhole bh) {
+        OrderStatus from = OrderStatus.fromValue("paid");
+        OrderStatus to = OrderStatus.fromValue("shipped");
+        bh.consume(from.canTransitionTo(to));
+        bh.consume(to.predecessorValues());
+    }
+}
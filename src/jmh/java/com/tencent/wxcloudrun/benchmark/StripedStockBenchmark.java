@@ -0,0 +1,62 @@
+package com.tencent.wxcloudrun.benchmark;
+
+import com.tencent.wxcloudrun.service.impl.StripedStock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 秒杀库存令牌
+ * stripes=1 is a single counter, the baseline the striping has to beat once
+ * several buyers contend. Every token taken is given back, so the stock never
+ * runs out during a measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StripedStockBenchmark {
+
+    @Param({"1", "16"})
+    private int stripes;
+
+    private StripedStock stock;
+
+    @Setup
+    public void setup() {
+        stock = new StripedStock(1_000_000, stripes);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean acquireReleaseSingleThread() {
+        return acquireRelease();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean acquireReleaseContended() {
+        return acquireRelease();
+    }
+
+    private boolean acquireRelease() {
+        boolean acquired = stock.tryAcquire();
+        if (acquired) {
+            stock.release();
+        }
+        return acquired;
+    }
+}
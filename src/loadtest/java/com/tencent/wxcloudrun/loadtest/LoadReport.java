@@ -0,0 +1,154 @@
+package com.tencent.wxcloudrun.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.tencent.wxcloudrun.metrics.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测结果
+ * Per-endpoint latency histograms (the same ones /metrics uses) and error counts,
+ * turned into throughput and percentiles once the run is over.
+ */
+public class LoadReport {
+
+    private static final double[] QUANTILES = {0.50, 0.90, 0.95, 0.99};
+
+    // p95 changes below this are treated as noise, whatever the relative change
+    private static final double MIN_LATENCY_DELTA_MS = 1.0;
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Endpoint total = new Endpoint();
+
+    public void record(String endpoint, long nanos, boolean ok) {
+        Endpoint stats = endpoints.get(endpoint);
+        if (stats == null) {
+            stats = endpoints.computeIfAbsent(endpoint, e -> new Endpoint());
+        }
+        stats.record(nanos, ok);
+        total.record(nanos, ok);
+    }
+
+    public long getErrors() {
+        return total.errors.sum();
+    }
+
+    public long getRequests() {
+        return total.histogram.getCount();
+    }
+
+    /**
+     * Summary of the run as plain maps, written out as JSON and used as the
+     * baseline of later runs.
+     */
+    public Map<String, Object> summary(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("elapsedSeconds", round(seconds));
+        result.put("total", stats(total, seconds));
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Map.Entry<String, Endpoint> entry : new TreeMap<>(endpoints).entrySet()) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("endpoint", entry.getKey());
+            stats.putAll(stats(entry.getValue(), seconds));
+            list.add(stats);
+        }
+        result.put("endpoints", list);
+        return result;
+    }
+
+    public void print(PrintStream out, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf("%-34s %9s %9s %7s %8s %8s %8s %8s %8s %9s%n",
+                "endpoint (ms)", "requests", "req/s", "errors", "mean", "p50", "p90", "p95", "p99", "max");
+        for (Map.Entry<String, Endpoint> entry : new TreeMap<>(endpoints).entrySet()) {
+            printRow(out, entry.getKey(), entry.getValue(), seconds);
+        }
+        printRow(out, "TOTAL", total, seconds);
+    }
+
+    private static void printRow(PrintStream out, String name, Endpoint endpoint, double seconds) {
+        LatencyHistogram.Snapshot s = endpoint.histogram.snapshot();
+        out.printf("%-34s %9d %9.1f %7d %8.2f %8.2f %8.2f %8.2f %8.2f %9.2f%n",
+                name, s.getCount(), s.getCount() / seconds, endpoint.errors.sum(),
+                mean(s), ms(s.valueAtQuantile(0.50)), ms(s.valueAtQuantile(0.90)),
+                ms(s.valueAtQuantile(0.95)), ms(s.valueAtQuantile(0.99)), ms(s.getMaxNanos()));
+    }
+
+    /**
+     * Compares a summary with an earlier one. Total throughput may drop, and each
+     * endpoint's p95 may grow, by at most the given fraction.
+     */
+    public static List<String> regressions(JsonNode current, JsonNode baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        double baseRps = baseline.path("total").path("throughput").asDouble();
+        double rps = current.path("total").path("throughput").asDouble();
+        if (baseRps > 0 && rps < baseRps * (1 - tolerance)) {
+            regressions.add(String.format("total throughput %.1f req/s, baseline %.1f req/s", rps, baseRps));
+        }
+
+        Map<String, JsonNode> base = new LinkedHashMap<>();
+        for (JsonNode endpoint : baseline.path("endpoints")) {
+            base.put(endpoint.path("endpoint").asText(), endpoint);
+        }
+        for (JsonNode endpoint : current.path("endpoints")) {
+            String name = endpoint.path("endpoint").asText();
+            JsonNode previous = base.get(name);
+            if (previous == null) {
+                continue;
+            }
+            double p95 = endpoint.path("p95Ms").asDouble();
+            double baseP95 = previous.path("p95Ms").asDouble();
+            if (p95 > baseP95 * (1 + tolerance) && p95 - baseP95 > MIN_LATENCY_DELTA_MS) {
+                regressions.add(String.format("%s p95 %.2f ms, baseline %.2f ms", name, p95, baseP95));
+            }
+        }
+        return regressions;
+    }
+
+    private static Map<String, Object> stats(Endpoint endpoint, double seconds) {
+        LatencyHistogram.Snapshot s = endpoint.histogram.snapshot();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", s.getCount());
+        stats.put("errors", endpoint.errors.sum());
+        stats.put("throughput", round(s.getCount() / seconds));
+        stats.put("meanMs", mean(s));
+        for (double q : QUANTILES) {
+            stats.put("p" + Math.round(q * 100) + "Ms", ms(s.valueAtQuantile(q)));
+        }
+        stats.put("maxMs", ms(s.getMaxNanos()));
+        return stats;
+    }
+
+    private static double mean(LatencyHistogram.Snapshot s) {
+        return s.getCount() == 0 ? 0 : ms(s.getSumNanos() / s.getCount());
+    }
+
+    private static double ms(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static final class Endpoint {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+
+        void record(long nanos, boolean ok) {
+            histogram.record(nanos);
+            if (!ok) {
+                errors.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.tencent.wxcloudrun.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tencent.wxcloudrun.WxCloudRunApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 压测入口 (mvn -P loadtest verify)
+ * Seeds an in-memory H2 database in MySQL mode, boots the application on it with the
+ * "loadtest" profile, drives a closed-loop workload from a fixed number of client
+ * threads and reports throughput and latency percentiles per endpoint. Arguments are
+ * --key=value:
+ * <pre>
+ *   --threads=16       concurrent clients
+ *   --duration=60      measured seconds, after --warmup=15 unmeasured seconds
+ *   --scale=1          data set size multiplier (1 = 5000 pets, 20000 orders, ...)
+ *   --mix=browse=45,search=20,login=10,order=15,transition=10
+ *   --schema=test_data_generation.sql
+ *   --output=target/loadtest-result.json
+ *   --baseline=path    earlier result to compare with; regressions fail the run
+ *   --tolerance=0.15   allowed throughput drop / p95 growth against the baseline
+ *   --max-error-rate=0.01
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:cat_mall;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1";
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "15"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int scale = Integer.parseInt(options.getOrDefault("scale", "1"));
+        String mix = options.getOrDefault("mix", "browse=45,search=20,login=10,order=15,transition=10");
+        Path schema = Paths.get(options.getOrDefault("schema", "test_data_generation.sql"));
+        Path output = Paths.get(options.getOrDefault("output", "target/loadtest-result.json"));
+        double tolerance = Double.parseDouble(options.getOrDefault("tolerance", "0.15"));
+        double maxErrorRate = Double.parseDouble(options.getOrDefault("max-error-rate", "0.01"));
+
+        // The JDK keeps only 5 idle connections per host by default; every client thread needs its own
+        System.setProperty("http.maxConnections", String.valueOf(threads));
+
+        long seedStart = System.nanoTime();
+        DataGenerator.Dataset data;
+        try (Connection conn = DriverManager.getConnection(JDBC_URL, "sa", "")) {
+            data = new DataGenerator(scale).generate(conn, schema);
+        }
+        System.out.printf("Seeded %s in %d ms%n", data.sizes(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(WxCloudRunApplication.class)
+                .profiles("loadtest")
+                .run("--spring.datasource.url=" + JDBC_URL, "--server.port=0");
+        int exitCode;
+        try {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            Workload workload = new Workload("http://localhost:" + port, data, Workload.parseMix(mix));
+            System.out.printf("Running %d clients against port %d: %ds warmup, %ds measured, mix %s%n",
+                    threads, port, warmupSeconds, durationSeconds, workload.getWeights());
+
+            LoadReport report = new LoadReport();
+            long elapsed = run(workload, threads, warmupSeconds, durationSeconds, report);
+            report.print(System.out, elapsed);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("finishedAt", LocalDateTime.now().toString());
+            result.put("threads", threads);
+            result.put("warmupSeconds", warmupSeconds);
+            result.put("durationSeconds", durationSeconds);
+            result.put("mix", workload.getWeights());
+            result.put("dataset", data.sizes());
+            result.putAll(report.summary(elapsed));
+
+            ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            mapper.writeValue(output.toFile(), result);
+            System.out.println("Results written to " + output.toAbsolutePath());
+
+            exitCode = 0;
+            double errorRate = report.getRequests() == 0 ? 1 : (double) report.getErrors() / report.getRequests();
+            if (errorRate > maxErrorRate) {
+                System.out.printf("FAILED: error rate %.2f%% exceeds %.2f%%%n", errorRate * 100, maxErrorRate * 100);
+                exitCode = 1;
+            }
+            String baseline = options.get("baseline");
+            if (baseline != null) {
+                List<String> regressions = LoadReport.regressions(mapper.valueToTree(result),
+                        mapper.readTree(Paths.get(baseline).toFile()), tolerance);
+                for (String regression : regressions) {
+                    System.out.println("REGRESSION: " + regression);
+                }
+                if (!regressions.isEmpty()) {
+                    exitCode = 1;
+                } else {
+                    System.out.printf("No regression against %s (tolerance %.0f%%)%n", baseline, tolerance * 100);
+                }
+            }
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Runs the clients for warmup + duration seconds. Requests completed during the
+     * warmup go to a throwaway report; the returned time is that of the measured part.
+     */
+    private static long run(Workload workload, int threads, int warmupSeconds, int durationSeconds,
+                            LoadReport report) throws InterruptedException {
+        AtomicReference<LoadReport> current = new AtomicReference<>(new LoadReport());
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            // Per-client seeds keep the request sequence the same from run to run
+            Random random = new Random(i);
+            clients.execute(() -> {
+                while (System.nanoTime() < end) {
+                    workload.next(random, current.get());
+                }
+            });
+        }
+        clients.shutdown();
+
+        TimeUnit.NANOSECONDS.sleep(Math.max(0, measureFrom - System.nanoTime()));
+        current.set(report);
+        long measuredStart = System.nanoTime();
+        clients.awaitTermination(durationSeconds + 60L, TimeUnit.SECONDS);
+        return System.nanoTime() - measuredStart;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
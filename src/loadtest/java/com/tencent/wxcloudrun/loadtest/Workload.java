@@ -0,0 +1,314 @@
+package com.tencent.wxcloudrun.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 压测流量
+ * A weighted mix of what mini-program users and merchants do. Each call to
+ * {@link #next} sends exactly one request and records it under its route, so
+ * every endpoint gets its own throughput and latency figures.
+ */
+public class Workload {
+
+    public enum Action {
+        BROWSE, SEARCH, LOGIN, ORDER, TRANSITION
+    }
+
+    // Orders waiting for their next status change; bounded so a low transition weight cannot grow it forever
+    private static final int MAX_OPEN_ORDERS = 10000;
+
+    private final String baseUrl;
+    private final DataGenerator.Dataset data;
+    private final Map<Action, Integer> weights;
+    private final int totalWeight;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Queue<OpenOrder> openOrders = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger openOrderCount = new AtomicInteger();
+    private final AtomicInteger newPhones = new AtomicInteger();
+
+    public Workload(String baseUrl, DataGenerator.Dataset data, Map<Action, Integer> weights) {
+        this.baseUrl = baseUrl;
+        this.data = data;
+        this.weights = new EnumMap<>(weights);
+        int total = 0;
+        for (int weight : weights.values()) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("mix weights must be >= 0");
+            }
+            total += weight;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("mix must have at least one positive weight");
+        }
+        this.totalWeight = total;
+    }
+
+    /**
+     * Parses a mix such as "browse=45,search=20,login=10,order=15,transition=10";
+     * actions left out get no traffic.
+     */
+    public static Map<Action, Integer> parseMix(String mix) {
+        Map<Action, Integer> weights = new EnumMap<>(Action.class);
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + part);
+            }
+            weights.put(Action.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(kv[1].trim()));
+        }
+        return weights;
+    }
+
+    public Map<Action, Integer> getWeights() {
+        return weights;
+    }
+
+    public void next(Random random, LoadReport report) {
+        switch (pick(random)) {
+            case BROWSE:
+                browse(random, report);
+                break;
+            case SEARCH:
+                search(random, report);
+                break;
+            case LOGIN:
+                login(random, report);
+                break;
+            case ORDER:
+                createOrder(random, report);
+                break;
+            default:
+                transition(random, report);
+        }
+    }
+
+    private Action pick(Random random) {
+        int r = random.nextInt(totalWeight);
+        for (Map.Entry<Action, Integer> entry : weights.entrySet()) {
+            r -= entry.getValue();
+            if (r < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    // Catalog pages in roughly the proportions the mini program requests them
+    private void browse(Random random, LoadReport report) {
+        int r = random.nextInt(100);
+        if (r < 30) {
+            get(report, "GET /api/cat/list", "/api/cat/list?page=" + (1 + random.nextInt(5)) + "&size=10");
+        } else if (r < 55) {
+            get(report, "GET /api/cat/detail/{id}", "/api/cat/detail/" + (1 + random.nextInt(data.pets)));
+        } else if (r < 75) {
+            get(report, "GET /api/product/list", "/api/product/list?page=" + (1 + random.nextInt(5)) + "&size=10");
+        } else if (r < 90) {
+            get(report, "GET /api/product/detail/{id}", "/api/product/detail/" + (1 + random.nextInt(data.products)));
+        } else if (r < 95) {
+            get(report, "GET /api/service/list", "/api/service/list?page=1&size=10");
+        } else {
+            get(report, "GET /api/service/detail/{id}", "/api/service/detail/" + (1 + random.nextInt(data.services)));
+        }
+    }
+
+    private void search(Random random, LoadReport report) {
+        int r = random.nextInt(100);
+        if (r < 50) {
+            get(report, "GET /api/cat/list?keyword", "/api/cat/list?page=1&size=10&keyword=" + encode(pick(random, data.petKeywords)));
+        } else if (r < 85) {
+            get(report, "GET /api/product/list?keyword", "/api/product/list?page=1&size=10&keyword=" + encode(pick(random, data.productKeywords)));
+        } else {
+            get(report, "GET /api/service/list?keyword", "/api/service/list?page=1&size=10&keyword=" + encode(pick(random, data.serviceKeywords)));
+        }
+    }
+
+    // Mostly returning users; the rest register a new account on first login
+    private void login(Random random, LoadReport report) {
+        String phone = random.nextInt(10) == 0
+                ? String.format("137%08d", newPhones.incrementAndGet())
+                : pick(random, data.userPhones);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("phone", phone);
+        body.put("code", "123456");
+        send(report, "POST /api/auth/login", "POST", "/api/auth/login", body, null);
+    }
+
+    private void createOrder(Random random, LoadReport report) {
+        List<Map<String, Object>> lines = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        int lineCount = 1 + random.nextInt(3);
+        for (int i = 0; i < lineCount; i++) {
+            int index;
+            do {
+                index = random.nextInt(data.products);
+            } while (!data.productOnShelf[index]);
+            int quantity = 1 + random.nextInt(3);
+            lines.add(data.orderLine(index, quantity));
+            total = total.add(data.productPrices[index].multiply(BigDecimal.valueOf(quantity)));
+        }
+        Map<String, Object> address = new LinkedHashMap<>();
+        address.put("name", "压测用户");
+        address.put("phone", "13900000000");
+        address.put("address", "深圳市南山区科技园");
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("itemsJson", json(lines));
+        body.put("addressSnapshot", json(address));
+        body.put("totalAmount", total);
+        JsonNode response = send(report, "POST /api/order/create", "POST", "/api/order/create", body,
+                pick(random, data.userOpenIds));
+        if (response != null && openOrderCount.get() < MAX_OPEN_ORDERS) {
+            JsonNode id = response.path("data").path("id");
+            if (id.canConvertToInt()) {
+                openOrderCount.incrementAndGet();
+                openOrders.offer(new OpenOrder(id.asInt(), "pending"));
+            }
+        }
+    }
+
+    // Merchant side: look at the order list, then move one order a step further
+    private void transition(Random random, LoadReport report) {
+        OpenOrder order = random.nextInt(4) == 0 ? null : openOrders.poll();
+        if (order == null) {
+            String status = random.nextBoolean() ? "paid" : "pending";
+            get(report, "GET /api/order/merchant/list", "/api/order/merchant/list?size=20&status=" + status);
+            return;
+        }
+        openOrderCount.decrementAndGet();
+
+        String next;
+        switch (order.status) {
+            case "pending":
+                next = random.nextInt(100) < 85 ? "paid" : "cancelled";
+                break;
+            case "paid":
+                next = "shipped";
+                break;
+            default:
+                next = "completed";
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", order.id);
+        body.put("status", next);
+        JsonNode response = send(report, "POST /api/order/status", "POST", "/api/order/status", body, null);
+        if (response != null && !"completed".equals(next) && !"cancelled".equals(next)) {
+            openOrderCount.incrementAndGet();
+            openOrders.offer(new OpenOrder(order.id, next));
+        }
+    }
+
+    private void get(LoadReport report, String endpoint, String path) {
+        send(report, endpoint, "GET", path, null, null);
+    }
+
+    /**
+     * Sends one request and records it. Returns the parsed body of a successful
+     * call when the caller needs it (POSTs), otherwise null. A call counts as
+     * failed on a non-2xx status or a non-empty errorMsg, since ApiResponse.error
+     * still answers 200.
+     */
+    private JsonNode send(LoadReport report, String endpoint, String method, String path, Object body, String openid) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        JsonNode parsed = null;
+        try {
+            HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            conn.setRequestMethod(method);
+            conn.setConnectTimeout(5000);
+            conn.setReadTimeout(30000);
+            if (openid != null) {
+                conn.setRequestProperty("x-wx-openid", openid);
+            }
+            if (body != null) {
+                byte[] bytes = objectMapper.writeValueAsBytes(body);
+                conn.setDoOutput(true);
+                conn.setRequestProperty("Content-Type", "application/json");
+                conn.setFixedLengthStreamingMode(bytes.length);
+                try (OutputStream out = conn.getOutputStream()) {
+                    out.write(bytes);
+                }
+            }
+            int status = conn.getResponseCode();
+            byte[] response = readFully(status < 400 ? conn.getInputStream() : conn.getErrorStream());
+            if (status < 300) {
+                String text = new String(response, StandardCharsets.UTF_8);
+                ok = text.contains("\"errorMsg\":\"\"");
+                if (ok && body != null) {
+                    parsed = objectMapper.readTree(response);
+                }
+            }
+        } catch (IOException e) {
+            ok = false;
+        }
+        report.record(endpoint, System.nanoTime() - start, ok);
+        return ok ? parsed : null;
+    }
+
+    // Reading to the end lets HttpURLConnection return the socket to its keep-alive cache
+    private static byte[] readFully(InputStream in) throws IOException {
+        if (in == null) {
+            return new byte[0];
+        }
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static final class OpenOrder {
+        final int id;
+        final String status;
+
+        OpenOrder(int id, String status) {
+            this.id = id;
+            this.status = status;
+        }
+    }
+}
@@ -1,41 +1,73 @@
 package com.tencent.wxcloudrun.aop;
 
+import com.tencent.wxcloudrun.config.ApiResponse;
+import com.tencent.wxcloudrun.metrics.MetricsRegistry;
+import com.tencent.wxcloudrun.metrics.Timer;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Method;
+
+/**
+ * Records every controller call into the http_server_requests histograms served at
+ * /metrics. Calls slower than app.metrics.slow-call-ms are still logged, but at most
+ * once per endpoint per app.metrics.slow-log-interval-ms.
+ */
 @Aspect
 @Component
 public class PerformanceMonitor {
 
     private static final Logger logger = LoggerFactory.getLogger(PerformanceMonitor.class);
 
+    public static final String FAMILY = "http_server_requests";
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Value("${app.metrics.slow-call-ms:500}")
+    private long slowCallMs;
+
+    @Value("${app.metrics.slow-log-interval-ms:10000}")
+    private long slowLogIntervalMs;
+
     @Pointcut("execution(* com.tencent.wxcloudrun.controller..*(..))")
     public void controllerMethods() {}
 
     @Around("controllerMethods()")
     public Object profile(ProceedingJoinPoint pjp) throws Throwable {
-        long start = System.currentTimeMillis();
-        String className = pjp.getTarget().getClass().getSimpleName();
-        String methodName = pjp.getSignature().getName();
-        
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        Timer timer = metricsRegistry.timer(FAMILY, "Controller call latency", "endpoint", method,
+                m -> m.getDeclaringClass().getSimpleName() + "." + m.getName());
+        timer.start();
+        long start = System.nanoTime();
+        boolean error = true;
         try {
             Object output = pjp.proceed();
-            long elapsedTime = System.currentTimeMillis() - start;
-            if (elapsedTime > 500) {
-                logger.warn("Method execution longer than 500ms! {}.{} took {}ms", className, methodName, elapsedTime);
-            } else {
-                logger.info("{}.{} execution time: {}ms", className, methodName, elapsedTime);
-            }
+            // ApiResponse.error still answers 200, so failures are told apart by the message
+            error = output instanceof ApiResponse && !isEmpty(((ApiResponse) output).getErrorMsg());
             return output;
-        } catch (Throwable e) {
-            long elapsedTime = System.currentTimeMillis() - start;
-            logger.error("{}.{} failed in {}ms with exception: {}", className, methodName, elapsedTime, e.getMessage());
-            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            timer.stop(elapsed, error);
+            long elapsedMs = elapsed / 1_000_000;
+            if (elapsedMs > slowCallMs && timer.tryAcquireLog(slowLogIntervalMs)) {
+                logger.warn("Method execution longer than {}ms! {} took {}ms (p99 {}ms over {} calls)",
+                        slowCallMs, timer.getLabel(), elapsedMs,
+                        timer.getHistogram().snapshot().valueAtQuantile(0.99) / 1_000_000,
+                        timer.getHistogram().getCount());
+            }
         }
     }
+
+    private static boolean isEmpty(String s) {
+        return s == null || s.isEmpty();
+    }
 }
@@ -0,0 +1,56 @@
+package com.tencent.wxcloudrun.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates the entity caches with the shared app.entity-cache settings and
+ * exposes their statistics.
+ */
+@Component
+public class CacheRegistry {
+
+    public static final String PETS = "pets";
+    public static final String PRODUCTS = "products";
+    public static final String SERVICES = "services";
+    public static final String MERCHANTS = "merchants";
+    public static final String PRINCIPALS = "principals";
+
+    @Value("${app.entity-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${app.entity-cache.negative-ttl-ms:5000}")
+    private long negativeTtlMs;
+
+    @Value("${app.entity-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<String, ReadThroughCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <K, V> ReadThroughCache<K, V> cache(String name) {
+        return (ReadThroughCache<K, V>) caches.computeIfAbsent(name,
+                n -> new ReadThroughCache<>(n, ttlMs, negativeTtlMs, maxEntries));
+    }
+
+    /**
+     * For caches that need their own freshness, e.g. the principal cache.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> ReadThroughCache<K, V> cache(String name, long ttlMs, long negativeTtlMs, int maxEntries) {
+        return (ReadThroughCache<K, V>) caches.computeIfAbsent(name,
+                n -> new ReadThroughCache<>(n, ttlMs, negativeTtlMs, maxEntries));
+    }
+
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        for (ReadThroughCache<?, ?> cache : caches.values()) {
+            stats.put(cache.getName(), cache.stats());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,58 @@
+package com.tencent.wxcloudrun.cache;
+
+import com.tencent.wxcloudrun.datasource.ReadRoute;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 列表版本号 for list ETags: a token derived from COUNT(*) and MAX(updated_at) of a
+ * table. It is kept until the entity cache of the same name sees a write on this
+ * instance, or for app.etag.list-version-ttl-ms at most so that writes made through
+ * other instances show up as well.
+ * <p>
+ * A list read from a replica gets its version from that replica, uncached, so the
+ * ETag never describes rows newer than the body it goes out with.
+ */
+@Component
+public class CatalogVersions {
+
+    @Autowired
+    private CacheRegistry cacheRegistry;
+
+    @Value("${app.etag.list-version-ttl-ms:5000}")
+    private long ttlMs;
+
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+
+    public String listVersion(String entity, Supplier<String> loader) {
+        if (ReadRoute.isReplica()) {
+            return loader.get();
+        }
+        long generation = cacheRegistry.cache(entity).getGeneration();
+        long now = System.currentTimeMillis();
+        Version cached = versions.get(entity);
+        if (cached != null && cached.generation == generation && cached.expiresAt > now) {
+            return cached.token;
+        }
+        String token = loader.get();
+        versions.put(entity, new Version(token, generation, now + ttlMs));
+        return token;
+    }
+
+    private static final class Version {
+        final String token;
+        final long generation;
+        final long expiresAt;
+
+        Version(String token, long generation, long expiresAt) {
+            this.token = token;
+            this.generation = generation;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.tencent.wxcloudrun.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 详情缓存 (bounded, TTL based read-through cache)
+ * Concurrent misses on one key share a single load; a miss that finds the row
+ * absent is remembered for a shorter negative TTL.
+ */
+public class ReadThroughCache<K, V> {
+
+    private final String name;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+    private final int maxEntries;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    // Bumped by every invalidation; a load started under an older generation is not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ReadThroughCache(String name, long ttlMs, long negativeTtlMs, int maxEntries) {
+        this.name = name;
+        this.ttlMs = ttlMs;
+        this.negativeTtlMs = negativeTtlMs;
+        this.maxEntries = maxEntries;
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Entry<V> cached = entries.get(key);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            hits.increment();
+            return cached.value;
+        }
+        misses.increment();
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+        try {
+            // The previous loader may have finished between our lookup and putIfAbsent
+            cached = entries.get(key);
+            if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+                mine.complete(cached.value);
+                return cached.value;
+            }
+            long loadedUnder = generation.get();
+            V value;
+            try {
+                value = loader.apply(key);
+            } catch (RuntimeException e) {
+                loadFailures.increment();
+                mine.completeExceptionally(e);
+                throw e;
+            }
+            loads.increment();
+            if (generation.get() == loadedUnder) {
+                store(key, value);
+            }
+            mine.complete(value);
+            return value;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public void invalidate(K key) {
+        generation.incrementAndGet();
+        entries.remove(key);
+        inFlight.remove(key);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+        inFlight.clear();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Changes whenever an entry is invalidated, i.e. on every write to the entity.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("loads", loads.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    private void store(K key, V value) {
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(e -> e.expiresAt <= now);
+            // Still full: drop an arbitrary tenth rather than tracking recency on the read path
+            Iterator<K> it = entries.keySet().iterator();
+            for (int i = entries.size() - maxEntries + Math.max(1, maxEntries / 10); i > 0 && it.hasNext(); i--) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        }
+        entries.put(key, new Entry<>(value, now + (value == null ? negativeTtlMs : ttlMs)));
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
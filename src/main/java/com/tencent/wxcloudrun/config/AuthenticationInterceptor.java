@@ -16,6 +16,9 @@ public class AuthenticationInterceptor implements HandlerInterceptor {
 
     private static final Logger logger = LoggerFactory.getLogger(AuthenticationInterceptor.class);
 
+    // Resolved User of a /api/merchant/** request, read with @RequestAttribute(CURRENT_USER)
+    public static final String CURRENT_USER = "currentUser";
+
     @Autowired
     private UserService userService;
 
@@ -46,7 +49,7 @@ public class AuthenticationInterceptor implements HandlerInterceptor {
         }
 
         // Check User Role
-        User user = userService.getUserByOpenId(openid);
+        User user = userService.getPrincipal(openid);
         if (user == null) {
             logger.warn("Unauthorized access attempt to {}: User not found for openid {}", path, openid);
             response.setStatus(403);
@@ -61,6 +64,7 @@ public class AuthenticationInterceptor implements HandlerInterceptor {
             return false;
         }
 
+        request.setAttribute(CURRENT_USER, user);
         return true;
     }
 }
@@ -8,6 +8,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
@@ -26,6 +27,13 @@ public class GlobalExceptionHandler {
         return ApiResponse.error(sb.toString());
     }
 
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    @ResponseBody
+    public ApiResponse handleMaxUploadSize(MaxUploadSizeExceededException ex) {
+        logger.warn("Upload rejected: {}", ex.getMessage());
+        return ApiResponse.error("文件过大");
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseBody
     public ApiResponse handleExceptions(Exception ex) {
@@ -0,0 +1,44 @@
+package com.tencent.wxcloudrun.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Conditional GET for the JSON catalog endpoints. Responses may be stored but must
+ * be revalidated; when If-None-Match still matches, the handler returns null and
+ * Spring answers 304 without writing a body.
+ */
+public final class HttpCaching {
+
+    private HttpCaching() {
+    }
+
+    /** updated_at is TIMESTAMP(3), so two writes within one second still give different tags */
+    public static String detailEtag(String entity, Integer id, LocalDateTime updatedAt) {
+        long version = updatedAt == null ? 0 : updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return "W/\"" + entity + "-" + id + "-" + version + "\"";
+    }
+
+    public static String listEtag(String entity, String version) {
+        return "W/\"" + entity + "-list-" + version + "\"";
+    }
+
+    /**
+     * Sets the validators on the response.
+     * @return true if the client's copy is current and the handler should return null
+     */
+    public static boolean notModified(WebRequest request, String etag) {
+        if (request instanceof NativeWebRequest) {
+            HttpServletResponse response = ((NativeWebRequest) request).getNativeResponse(HttpServletResponse.class);
+            if (response != null) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            }
+        }
+        return request.checkNotModified(etag);
+    }
+}
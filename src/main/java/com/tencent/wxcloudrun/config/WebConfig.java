@@ -1,29 +1,40 @@
 package com.tencent.wxcloudrun.config;
 
+import com.tencent.wxcloudrun.storage.ImageDerivativeService;
+import com.tencent.wxcloudrun.storage.ImageVariantResolver;
+import com.tencent.wxcloudrun.storage.LocalFileStorage;
+import com.tencent.wxcloudrun.storage.UploadCacheInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
-import java.io.File;
-
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
     @Autowired
     private AuthenticationInterceptor authenticationInterceptor;
 
+    @Autowired
+    private LocalFileStorage localFileStorage;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(authenticationInterceptor)
                 .addPathPatterns("/api/merchant/**"); // Protect merchant APIs
+        registry.addInterceptor(new UploadCacheInterceptor(localFileStorage, imageDerivativeService))
+                .addPathPatterns("/uploads/**");
     }
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // 获取当前工作目录
-        String currentPath = System.getProperty("user.dir");
-        // 映射 /uploads/** 到本地文件系统
+        // 映射 /uploads/** 到上传目录 (app.upload.dir, 默认 user.dir/uploads)
+        // ?size=N 返回缩略图; the chain is not cached because the result depends on the query
         registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:" + currentPath + File.separator + "uploads" + File.separator);
+                .addResourceLocations(localFileStorage.getRoot().toUri().toString())
+                .resourceChain(false)
+                .addResolver(new ImageVariantResolver(localFileStorage, imageDerivativeService));
     }
 }
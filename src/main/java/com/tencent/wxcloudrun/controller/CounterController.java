@@ -4,18 +4,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.tencent.wxcloudrun.config.ApiResponse;
 import com.tencent.wxcloudrun.dto.CounterRequest;
-import com.tencent.wxcloudrun.model.Counter;
 import com.tencent.wxcloudrun.service.CounterService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.time.LocalDateTime;
-import java.util.Optional;
-import java.util.List;
-
 /**
  * counter控制器
  */
@@ -34,18 +30,19 @@ public class CounterController {
 
   /**
    * 获取当前计数
+   * @param name 计数器名称, 默认 default
+   * @param consistent true 时先落库再从数据库读取 (跨实例精确值)
    * @return API response json
    */
   @GetMapping(value = "/api/count")
-  ApiResponse get() {
-    logger.info("/api/count get request");
-    Optional<Counter> counter = counterService.getCounter(1);
-    Integer count = 0;
-    if (counter.isPresent()) {
-      count = counter.get().getCount();
+  ApiResponse get(@RequestParam(defaultValue = CounterService.DEFAULT) String name,
+                  @RequestParam(defaultValue = "false") boolean consistent) {
+    logger.debug("/api/count get request, name: {}", name);
+    try {
+      return ApiResponse.ok(counterService.get(name, consistent));
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      return ApiResponse.error(e.getMessage());
     }
-
-    return ApiResponse.ok(count);
   }
 
 
@@ -56,27 +53,21 @@ public class CounterController {
    */
   @PostMapping(value = "/api/count")
   ApiResponse create(@RequestBody CounterRequest request) {
-    logger.info("/api/count post request, action: {}", request.getAction());
+    // Logged at debug: this endpoint is meant to take tens of thousands of hits per second
+    logger.debug("/api/count post request, action: {}", request.getAction());
 
-    Optional<Counter> curCounter = counterService.getCounter(1);
-    if (request.getAction().equals("inc")) {
-      Integer count = 1;
-      if (curCounter.isPresent()) {
-        count += curCounter.get().getCount();
-      }
-      Counter counter = new Counter();
-      counter.setId(1);
-      counter.setCount(count);
-      counterService.upsertCount(counter);
-      return ApiResponse.ok(count);
-    } else if (request.getAction().equals("clear")) {
-      if (!curCounter.isPresent()) {
+    String name = request.getName() != null ? request.getName() : CounterService.DEFAULT;
+    try {
+      if ("inc".equals(request.getAction())) {
+        return ApiResponse.ok(counterService.increment(name, 1, Boolean.TRUE.equals(request.getConsistent())));
+      } else if ("clear".equals(request.getAction())) {
+        counterService.clear(name);
         return ApiResponse.ok(0);
+      } else {
+        return ApiResponse.error("参数action错误");
       }
-      counterService.clearCount(1);
-      return ApiResponse.ok(0);
-    } else {
-      return ApiResponse.error("参数action错误");
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      return ApiResponse.error(e.getMessage());
     }
   }
   
@@ -0,0 +1,43 @@
+package com.tencent.wxcloudrun.controller;
+
+import com.tencent.wxcloudrun.config.ApiResponse;
+import com.tencent.wxcloudrun.dto.FlashSaleRequest;
+import com.tencent.wxcloudrun.service.FlashSaleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+/**
+ * 秒杀管理 (merchant side; buying goes through /api/order/flash-sale)
+ */
+@RestController
+@RequestMapping("/api/merchant/flash-sale")
+public class FlashSaleController {
+
+    @Autowired
+    private FlashSaleService flashSaleService;
+
+    @GetMapping("/list")
+    public ApiResponse getSales() {
+        return ApiResponse.ok(flashSaleService.getSales());
+    }
+
+    @PostMapping("/start")
+    public ApiResponse startSale(@Valid @RequestBody FlashSaleRequest request) {
+        try {
+            return ApiResponse.ok(flashSaleService.startSale(request));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    @PostMapping("/end")
+    public ApiResponse endSale(@RequestParam String itemType, @RequestParam Integer itemId) {
+        try {
+            return ApiResponse.ok(flashSaleService.endSale(itemType, itemId));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+}
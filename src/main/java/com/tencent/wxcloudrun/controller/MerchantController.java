@@ -1,18 +1,18 @@
 package com.tencent.wxcloudrun.controller;
 
+import com.tencent.wxcloudrun.cache.CacheRegistry;
 import com.tencent.wxcloudrun.config.ApiResponse;
+import com.tencent.wxcloudrun.dto.CursorPage;
 import com.tencent.wxcloudrun.model.Merchant;
+import com.tencent.wxcloudrun.service.CountService;
+import com.tencent.wxcloudrun.service.DashboardService;
 import com.tencent.wxcloudrun.service.MerchantService;
-import com.tencent.wxcloudrun.service.OrderService;
-import com.tencent.wxcloudrun.service.PetService;
-import com.tencent.wxcloudrun.service.ProductService;
-import com.tencent.wxcloudrun.service.ServiceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/api/merchant")
@@ -22,43 +22,51 @@ public class MerchantController {
     private MerchantService merchantService;
 
     @Autowired
-    private PetService petService;
+    private DashboardService dashboardService;
 
     @Autowired
-    private ProductService productService;
+    private CountService countService;
 
     @Autowired
-    private ServiceService serviceService;
-
-    @Autowired
-    private OrderService orderService;
+    private CacheRegistry cacheRegistry;
 
     @GetMapping("/dashboard")
     public ApiResponse getDashboardStats() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("pets", petService.countPets());
-        stats.put("products", productService.countProducts());
-        stats.put("services", serviceService.countServices()); // Also count services
-        // Use real order count
-        stats.put("orders", orderService.getAllOrders().size());
-        stats.put("customers", 0); // Still 0 as we don't have distinct customer count logic handy yet
-        // Recent orders list - placeholder
-        stats.put("recentOrders", new ArrayList<>());
-        
-        return ApiResponse.ok(stats);
+        return ApiResponse.ok(dashboardService.getStats());
+    }
+
+    @GetMapping("/cache/stats")
+    public ApiResponse getCacheStats() {
+        return ApiResponse.ok(cacheRegistry.stats());
     }
 
     @GetMapping("/list")
     public ApiResponse getMerchantList(@RequestParam(defaultValue = "1") int page,
                                        @RequestParam(defaultValue = "10") int size,
-                                       @RequestParam(required = false) String keyword) {
+                                       @RequestParam(required = false) String keyword,
+                                       @RequestParam(required = false) String cursor) {
+        // 游标分页：传 cursor（首页传空串）时按 (rating, id) 定位，深页与首页代价相同
+        if (cursor != null) {
+            CursorPage<Merchant> merchants;
+            try {
+                merchants = merchantService.getMerchantsAfter(cursor, size, keyword);
+            } catch (IllegalArgumentException e) {
+                return ApiResponse.error(e.getMessage());
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("list", merchants.getList());
+            result.put("size", size);
+            result.put("nextCursor", merchants.getNextCursor());
+            return ApiResponse.ok(result);
+        }
+
         List<Merchant> merchants = merchantService.getMerchants(page, size, keyword);
         
         Map<String, Object> result = new HashMap<>();
         result.put("list", merchants);
         result.put("page", page);
         result.put("size", size);
-        result.put("total", merchants.size());
+        result.put("total", countService.countMerchants(keyword));
         
         return ApiResponse.ok(result);
     }
@@ -85,6 +93,17 @@ public class MerchantController {
         return ApiResponse.ok(merchant);
     }
 
+    // 部分更新 (non-null fields only; updatedAt, if sent, must still match)
+    @PatchMapping("/update/{id}")
+    public ApiResponse patchMerchant(@PathVariable Integer id, @RequestBody Merchant patch) {
+        patch.setId(id);
+        try {
+            return ApiResponse.ok(merchantService.patchMerchant(patch));
+        } catch (NoSuchElementException | IllegalArgumentException | IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
     @DeleteMapping("/delete/{id}")
     public ApiResponse deleteMerchant(@PathVariable Integer id) {
         merchantService.deleteMerchant(id);
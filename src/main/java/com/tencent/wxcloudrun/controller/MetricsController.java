@@ -0,0 +1,26 @@
+package com.tencent.wxcloudrun.controller;
+
+import com.tencent.wxcloudrun.metrics.MetricsRegistry;
+import com.tencent.wxcloudrun.metrics.PrometheusFormatter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Prometheus 抓取端点
+ */
+@RestController
+public class MetricsController {
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @GetMapping(value = "/metrics")
+    public ResponseEntity<String> scrape() {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, PrometheusFormatter.CONTENT_TYPE)
+                .body(PrometheusFormatter.format(metricsRegistry));
+    }
+}
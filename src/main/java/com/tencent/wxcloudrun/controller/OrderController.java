@@ -1,17 +1,27 @@
 package com.tencent.wxcloudrun.controller;
 
 import com.tencent.wxcloudrun.config.ApiResponse;
+import com.tencent.wxcloudrun.dto.BatchOrderResult;
+import com.tencent.wxcloudrun.dto.BatchOrderUpdateRequest;
 import com.tencent.wxcloudrun.dto.CreateOrderRequest;
+import com.tencent.wxcloudrun.dto.CursorPage;
+import com.tencent.wxcloudrun.dto.FlashSaleBuyRequest;
 import com.tencent.wxcloudrun.dto.UpdateOrderRequest;
 import com.tencent.wxcloudrun.model.Order;
+import com.tencent.wxcloudrun.model.OrderSummary;
+import com.tencent.wxcloudrun.service.FlashSaleService;
 import com.tencent.wxcloudrun.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 
 @RestController
@@ -19,20 +29,61 @@ import java.util.Optional;
 @Validated
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     final OrderService orderService;
+    final FlashSaleService flashSaleService;
 
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, FlashSaleService flashSaleService) {
         this.orderService = orderService;
+        this.flashSaleService = flashSaleService;
     }
 
     /**
-     * 获取商家订单列表 (Currently returns all orders)
+     * 获取商家订单列表
+     * Summary rows only (no items/address JSON), filtered by status and an inclusive
+     * date range, paged by cursor. Full orders are served by /detail/{id}.
      */
     @GetMapping("/merchant/list")
-    public ApiResponse getMerchantOrderList() {
-        List<Order> orders = orderService.getAllOrders();
-        return ApiResponse.ok(orders);
+    public ApiResponse getMerchantOrderList(@RequestParam(required = false) String status,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "20") int size) {
+        size = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        CursorPage<OrderSummary> orders;
+        try {
+            orders = orderService.getMerchantOrders(status, startDate, endDate, cursor, size);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("list", orders.getList());
+        result.put("size", size);
+        result.put("nextCursor", orders.getNextCursor());
+        return ApiResponse.ok(result);
+    }
+
+    /**
+     * 商家订单金额汇总
+     * Order count and amount per status over an inclusive date range (all time when
+     * omitted), summed by the database so totals never depend on how many orders a
+     * list page holds.
+     */
+    @GetMapping("/merchant/totals")
+    public ApiResponse getMerchantOrderTotals(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return ApiResponse.ok(orderService.getMerchantOrderTotals(startDate, endDate));
+    }
+
+    /**
+     * 热销商品排行 (aggregated from order_items)
+     */
+    @GetMapping("/merchant/best-sellers")
+    public ApiResponse getBestSellers(@RequestParam(defaultValue = "10") int limit) {
+        return ApiResponse.ok(orderService.getBestSellers(Math.max(1, Math.min(limit, MAX_PAGE_SIZE))));
     }
 
     /**
@@ -80,9 +131,8 @@ public class OrderController {
         order.setItemsJson(request.getItemsJson());
         order.setAddressSnapshot(request.getAddressSnapshot());
         order.setTotalAmount(request.getTotalAmount());
-        
-        // Generate Order No
-        order.setOrderNo("ORD" + System.currentTimeMillis() + (int)(Math.random() * 1000));
+
+        // Order No is generated by the service
         order.setStatus("pending"); // Initial status
         
         try {
@@ -93,26 +143,88 @@ public class OrderController {
         }
     }
 
+    /**
+     * 秒杀下单: admitted in memory, the order itself is written shortly after
+     */
+    @PostMapping("/flash-sale")
+    public ApiResponse buyFlashSale(@Valid @RequestBody FlashSaleBuyRequest request,
+                                    @RequestHeader(value = "x-wx-openid", required = false) String openId) {
+        String userId = openId != null ? openId : request.getUserId();
+        if (userId == null) {
+            return ApiResponse.error("Missing user identity");
+        }
+        try {
+            String orderNo = flashSaleService.buy(request.getItemType(), request.getItemId(), userId,
+                    request.getAddressSnapshot());
+            Map<String, Object> data = new HashMap<>();
+            data.put("orderNo", orderNo);
+            return ApiResponse.ok(data);
+        } catch (IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
     /**
      * 更新订单状态
      */
     @PostMapping("/status")
     public ApiResponse updateOrderStatus(@Valid @RequestBody UpdateOrderRequest request) {
-        Integer id = request.getId();
-        String status = request.getStatus();
-        
-        Optional<Order> order = orderService.getOrderById(id);
-        if (order.isPresent()) {
-            try {
-                orderService.updateOrderStatus(order.get().getOrderNo(), status);
-                return ApiResponse.ok();
-            } catch (IllegalArgumentException e) {
-                return ApiResponse.error(e.getMessage());
-            } catch (Exception e) {
-                return ApiResponse.error("Update failed");
+        try {
+            orderService.updateOrderStatusById(request.getId(), request.getStatus());
+            return ApiResponse.ok();
+        } catch (NoSuchElementException e) {
+            return ApiResponse.error("Order not found");
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        } catch (Exception e) {
+            return ApiResponse.error("Update failed");
+        }
+    }
+
+    /**
+     * 批量更新订单状态 (each entry may also carry a tracking number)
+     */
+    @PostMapping("/batch/status")
+    public ApiResponse batchUpdateStatus(@Valid @RequestBody BatchOrderUpdateRequest request) {
+        for (BatchOrderUpdateRequest.Item item : request.getItems()) {
+            if (item.getStatus() == null) {
+                return ApiResponse.error("status cannot be null: " + item.getOrderNo());
             }
         }
-        return ApiResponse.error("Order not found");
+        return batchUpdate(request);
+    }
+
+    /**
+     * 批量更新运单号
+     */
+    @PostMapping("/batch/tracking")
+    public ApiResponse batchUpdateTracking(@Valid @RequestBody BatchOrderUpdateRequest request) {
+        for (BatchOrderUpdateRequest.Item item : request.getItems()) {
+            if (item.getTrackingNumber() == null) {
+                return ApiResponse.error("trackingNumber cannot be null: " + item.getOrderNo());
+            }
+            item.setStatus(null);
+        }
+        return batchUpdate(request);
+    }
+
+    private ApiResponse batchUpdate(BatchOrderUpdateRequest request) {
+        try {
+            List<BatchOrderResult> results = orderService.batchUpdateOrders(request.getItems());
+            int succeeded = 0;
+            for (BatchOrderResult result : results) {
+                if (result.isSuccess()) {
+                    succeeded++;
+                }
+            }
+            Map<String, Object> data = new HashMap<>();
+            data.put("results", results);
+            data.put("succeeded", succeeded);
+            data.put("failed", results.size() - succeeded);
+            return ApiResponse.ok(data);
+        } catch (Exception e) {
+            return ApiResponse.error("Batch update failed: " + e.getMessage());
+        }
     }
 
     /**
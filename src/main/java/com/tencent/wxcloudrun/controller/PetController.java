@@ -1,13 +1,23 @@
 package com.tencent.wxcloudrun.controller;
 
 import com.tencent.wxcloudrun.config.ApiResponse;
+import com.tencent.wxcloudrun.config.HttpCaching;
+import com.tencent.wxcloudrun.datasource.ReadFromReplica;
+import com.tencent.wxcloudrun.dto.CursorPage;
+import com.tencent.wxcloudrun.dto.PetReserveRequest;
+import com.tencent.wxcloudrun.model.Order;
 import com.tencent.wxcloudrun.model.Pet;
+import com.tencent.wxcloudrun.service.CountService;
+import com.tencent.wxcloudrun.service.OrderService;
 import com.tencent.wxcloudrun.service.PetService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import javax.validation.Valid;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/api/cat")
@@ -16,11 +26,41 @@ public class PetController {
     @Autowired
     private PetService petService;
 
+    @Autowired
+    private CountService countService;
+
+    @Autowired
+    private OrderService orderService;
+
+    // Routed as a whole: list version and list come from the same replica, version first
+    @ReadFromReplica
     @GetMapping("/list")
     public ApiResponse getPetList(@RequestParam(defaultValue = "1") int page,
                                   @RequestParam(defaultValue = "10") int size,
                                   @RequestParam(required = false) String keyword,
-                                  @RequestParam(required = false) String userId) {
+                                  @RequestParam(required = false) String userId,
+                                  @RequestParam(required = false) String cursor,
+                                  WebRequest webRequest) {
+        // 列表未变化时直接 304: version 命中缓存时不查询、不序列化
+        // (userId 过滤还取决于用户/商户数据, 不做条件请求)
+        if (userId == null && HttpCaching.notModified(webRequest, HttpCaching.listEtag("pets", petService.getListVersion()))) {
+            return null;
+        }
+        // 游标分页：传 cursor（首页传空串）时按 (created_at, id) 定位，深页与首页代价相同
+        if (cursor != null) {
+            CursorPage<Pet> pets;
+            try {
+                pets = petService.getPetsAfter(cursor, size, keyword, userId);
+            } catch (IllegalArgumentException e) {
+                return ApiResponse.error(e.getMessage());
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("list", pets.getList());
+            result.put("size", size);
+            result.put("nextCursor", pets.getNextCursor());
+            return ApiResponse.ok(result);
+        }
+
         List<Pet> pets = petService.getPets(page, size, keyword, userId);
         
         // 返回带分页信息的结果
@@ -28,15 +68,18 @@ public class PetController {
         result.put("list", pets);
         result.put("page", page);
         result.put("size", size);
-        result.put("total", pets.size());
+        result.put("total", countService.countPets(keyword, userId));
         
         return ApiResponse.ok(result);
     }
 
     @GetMapping("/detail/{id}")
-    public ApiResponse getPetDetail(@PathVariable Integer id) {
+    public ApiResponse getPetDetail(@PathVariable Integer id, WebRequest webRequest) {
         Pet pet = petService.getPetById(id);
         if (pet != null) {
+            if (HttpCaching.notModified(webRequest, HttpCaching.detailEtag("pet", id, pet.getUpdatedAt()))) {
+                return null;
+            }
             return ApiResponse.ok(pet);
         } else {
             return ApiResponse.error("Pet not found");
@@ -49,24 +92,63 @@ public class PetController {
         return ApiResponse.ok(pet);
     }
 
+    // Full update of the descriptive fields; a status in the body is ignored, see /status
     @PutMapping("/update")
     public ApiResponse updatePet(@RequestBody Pet pet) {
         petService.updatePet(pet);
-        return ApiResponse.ok(pet);
+        return ApiResponse.ok(petService.getPetById(pet.getId()));
+    }
+
+    /**
+     * 部分更新: only the fields present in the body are written. Send back the
+     * updatedAt you read to have the write rejected if someone changed the row since.
+     */
+    @PatchMapping("/update/{id}")
+    public ApiResponse patchPet(@PathVariable Integer id, @RequestBody Pet patch) {
+        patch.setId(id);
+        try {
+            return ApiResponse.ok(petService.patchPet(patch));
+        } catch (NoSuchElementException | IllegalArgumentException | IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
     }
     
     @PutMapping("/status")
     public ApiResponse updatePetStatus(@RequestBody Pet pet) {
-         // 只更新状态
-         Pet existingPet = petService.getPetById(pet.getId());
-         if (existingPet != null) {
-             existingPet.setStatus(pet.getStatus());
-             petService.updatePet(existingPet);
-             return ApiResponse.ok(existingPet);
+         // 只更新状态 (the detail instance is shared through the cache, so it is never modified in place)
+         try {
+             if (petService.updatePetStatus(pet.getId(), pet.getStatus())) {
+                 return ApiResponse.ok(petService.getPetById(pet.getId()));
+             }
+         } catch (IllegalStateException e) {
+             return ApiResponse.error(e.getMessage());
          }
          return ApiResponse.error("Pet not found");
     }
 
+    /**
+     * 预订宠物: creates the deposit order and books the pet for it. The pet returns to
+     * available if the deposit is not paid within app.pet-reservation.hold-minutes.
+     */
+    @PostMapping("/reserve")
+    public ApiResponse reservePet(@Valid @RequestBody PetReserveRequest request,
+                                  @RequestHeader(value = "x-wx-openid", required = false) String openId) {
+        String userId = openId != null ? openId : request.getUserId();
+        if (userId == null) {
+            return ApiResponse.error("Missing user identity");
+        }
+        try {
+            Order order = orderService.reservePet(request.getPetId(), userId, request.getAddressSnapshot());
+            Map<String, Object> data = new HashMap<>();
+            data.put("orderNo", order.getOrderNo());
+            data.put("orderId", order.getId());
+            data.put("deposit", order.getTotalAmount());
+            return ApiResponse.ok(data);
+        } catch (NoSuchElementException | IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
     @DeleteMapping("/delete/{id}")
     public ApiResponse deletePet(@PathVariable Integer id) {
         petService.deletePet(id);
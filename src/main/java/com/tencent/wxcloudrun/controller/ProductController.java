@@ -1,13 +1,19 @@
 package com.tencent.wxcloudrun.controller;
 
 import com.tencent.wxcloudrun.config.ApiResponse;
+import com.tencent.wxcloudrun.config.HttpCaching;
+import com.tencent.wxcloudrun.datasource.ReadFromReplica;
+import com.tencent.wxcloudrun.dto.CursorPage;
 import com.tencent.wxcloudrun.model.Product;
+import com.tencent.wxcloudrun.service.CountService;
 import com.tencent.wxcloudrun.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/api/product")
@@ -16,25 +22,53 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private CountService countService;
+
+    // Routed as a whole: list version and list come from the same replica, version first
+    @ReadFromReplica
     @GetMapping("/list")
     public ApiResponse getProductList(@RequestParam(defaultValue = "1") int page,
                                       @RequestParam(defaultValue = "10") int size,
-                                      @RequestParam(required = false) String keyword) {
+                                      @RequestParam(required = false) String keyword,
+                                      @RequestParam(required = false) String cursor,
+                                      WebRequest webRequest) {
+        if (HttpCaching.notModified(webRequest, HttpCaching.listEtag("products", productService.getListVersion()))) {
+            return null;
+        }
+        // 游标分页：传 cursor（首页传空串）时按 (sales, id) 定位，深页与首页代价相同
+        if (cursor != null) {
+            CursorPage<Product> products;
+            try {
+                products = productService.getProductsAfter(cursor, size, keyword);
+            } catch (IllegalArgumentException e) {
+                return ApiResponse.error(e.getMessage());
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("list", products.getList());
+            result.put("size", size);
+            result.put("nextCursor", products.getNextCursor());
+            return ApiResponse.ok(result);
+        }
+
         List<Product> products = productService.getProducts(page, size, keyword);
         
         Map<String, Object> result = new HashMap<>();
         result.put("list", products);
         result.put("page", page);
         result.put("size", size);
-        result.put("total", products.size());
+        result.put("total", countService.countProducts(keyword));
         
         return ApiResponse.ok(result);
     }
 
     @GetMapping("/detail/{id}")
-    public ApiResponse getProductDetail(@PathVariable Integer id) {
+    public ApiResponse getProductDetail(@PathVariable Integer id, WebRequest webRequest) {
         Product product = productService.getProductById(id);
         if (product != null) {
+            if (HttpCaching.notModified(webRequest, HttpCaching.detailEtag("product", id, product.getUpdatedAt()))) {
+                return null;
+            }
             return ApiResponse.ok(product);
         } else {
             return ApiResponse.error("Product not found");
@@ -49,10 +83,25 @@ public class ProductController {
 
     @PutMapping("/update")
     public ApiResponse updateProduct(@RequestBody Product product) {
-        productService.updateProduct(product);
+        try {
+            productService.updateProduct(product);
+        } catch (NoSuchElementException | IllegalArgumentException | IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
         return ApiResponse.ok(product);
     }
 
+    // 部分更新 (non-null fields only; updatedAt, if sent, must still match; stock only via stockDelta)
+    @PatchMapping("/update/{id}")
+    public ApiResponse patchProduct(@PathVariable Integer id, @RequestBody Product patch) {
+        patch.setId(id);
+        try {
+            return ApiResponse.ok(productService.patchProduct(patch));
+        } catch (NoSuchElementException | IllegalArgumentException | IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
     @DeleteMapping("/delete/{id}")
     public ApiResponse deleteProduct(@PathVariable Integer id) {
         productService.deleteProduct(id);
@@ -1,13 +1,19 @@
 package com.tencent.wxcloudrun.controller;
 
 import com.tencent.wxcloudrun.config.ApiResponse;
+import com.tencent.wxcloudrun.config.HttpCaching;
+import com.tencent.wxcloudrun.datasource.ReadFromReplica;
+import com.tencent.wxcloudrun.dto.CursorPage;
 import com.tencent.wxcloudrun.model.Service;
+import com.tencent.wxcloudrun.service.CountService;
 import com.tencent.wxcloudrun.service.ServiceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/api/service")
@@ -16,25 +22,53 @@ public class ServiceController {
     @Autowired
     private ServiceService serviceService;
 
+    @Autowired
+    private CountService countService;
+
+    // Routed as a whole: list version and list come from the same replica, version first
+    @ReadFromReplica
     @GetMapping("/list")
     public ApiResponse getServiceList(@RequestParam(defaultValue = "1") int page,
                                       @RequestParam(defaultValue = "10") int size,
-                                      @RequestParam(required = false) String keyword) {
+                                      @RequestParam(required = false) String keyword,
+                                      @RequestParam(required = false) String cursor,
+                                      WebRequest webRequest) {
+        if (HttpCaching.notModified(webRequest, HttpCaching.listEtag("services", serviceService.getListVersion()))) {
+            return null;
+        }
+        // 游标分页：传 cursor（首页传空串）时按 (sales, id) 定位，深页与首页代价相同
+        if (cursor != null) {
+            CursorPage<Service> services;
+            try {
+                services = serviceService.getServicesAfter(cursor, size, keyword);
+            } catch (IllegalArgumentException e) {
+                return ApiResponse.error(e.getMessage());
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("list", services.getList());
+            result.put("size", size);
+            result.put("nextCursor", services.getNextCursor());
+            return ApiResponse.ok(result);
+        }
+
         List<Service> services = serviceService.getServices(page, size, keyword);
         
         Map<String, Object> result = new HashMap<>();
         result.put("list", services);
         result.put("page", page);
         result.put("size", size);
-        result.put("total", services.size());
+        result.put("total", countService.countServices(keyword));
         
         return ApiResponse.ok(result);
     }
 
     @GetMapping("/detail/{id}")
-    public ApiResponse getServiceDetail(@PathVariable Integer id) {
+    public ApiResponse getServiceDetail(@PathVariable Integer id, WebRequest webRequest) {
         Service service = serviceService.getServiceById(id);
         if (service != null) {
+            if (HttpCaching.notModified(webRequest, HttpCaching.detailEtag("service", id, service.getUpdatedAt()))) {
+                return null;
+            }
             return ApiResponse.ok(service);
         } else {
             return ApiResponse.error("Service not found");
@@ -53,6 +87,17 @@ public class ServiceController {
         return ApiResponse.ok(service);
     }
 
+    // 部分更新 (non-null fields only; updatedAt, if sent, must still match)
+    @PatchMapping("/update/{id}")
+    public ApiResponse patchService(@PathVariable Integer id, @RequestBody Service patch) {
+        patch.setId(id);
+        try {
+            return ApiResponse.ok(serviceService.patchService(patch));
+        } catch (NoSuchElementException | IllegalArgumentException | IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
     @DeleteMapping("/delete/{id}")
     public ApiResponse deleteService(@PathVariable Integer id) {
         serviceService.deleteService(id);
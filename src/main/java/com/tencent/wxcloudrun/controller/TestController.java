@@ -29,7 +29,6 @@ public class TestController {
             order.setTotalAmount(new BigDecimal("99.99"));
             order.setItemsJson("[]");
             order.setAddressSnapshot("{}");
-            order.setOrderNo("TEST" + System.currentTimeMillis());
             order.setStatus("pending");
             
             orderService.createOrder(order);
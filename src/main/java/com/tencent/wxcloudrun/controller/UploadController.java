@@ -1,63 +1,50 @@
 package com.tencent.wxcloudrun.controller;
 
 import com.tencent.wxcloudrun.config.ApiResponse;
+import com.tencent.wxcloudrun.storage.FileStorage;
+import com.tencent.wxcloudrun.storage.ImageDerivativeService;
+import com.tencent.wxcloudrun.storage.StoredFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.servlet.http.HttpServletRequest;
-import java.io.File;
 import java.io.IOException;
-import java.util.UUID;
+import java.io.InputStream;
 
 @RestController
 public class UploadController {
 
     private final Logger logger = LoggerFactory.getLogger(UploadController.class);
 
+    @Autowired
+    private FileStorage fileStorage;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
     @PostMapping(value = "/api/upload")
-    public ApiResponse upload(@RequestParam("file") MultipartFile file, HttpServletRequest request) {
+    public ApiResponse upload(@RequestParam("file") MultipartFile file) {
         if (file.isEmpty()) {
             return ApiResponse.error("文件为空");
         }
 
-        try {
-            // 获取文件名
-            String originalFilename = file.getOriginalFilename();
-            // 获取文件后缀
-            String suffixName = originalFilename.substring(originalFilename.lastIndexOf("."));
-            // 生成新文件名
-            String fileName = UUID.randomUUID() + suffixName;
-            
-            // 获取当前工作目录
-            String currentPath = System.getProperty("user.dir");
-            File dest = new File(currentPath + File.separator + "uploads" + File.separator + fileName);
-            
-            // 检测目录是否存在
-            if (!dest.getParentFile().exists()) {
-                dest.getParentFile().mkdirs();
+        // 按内容哈希存储: 同一张图片重复上传只保留一份, 返回同一个 URL
+        // 文件名与后缀由内容决定, 不再使用客户端传来的文件名
+        try (InputStream in = file.getInputStream()) {
+            StoredFile stored = fileStorage.store(in);
+            if (stored.isDeduplicated()) {
+                logger.debug("Upload matched existing file {}", stored.getKey());
             }
-            
-            // 保存文件
-            file.transferTo(dest);
-            
-            // 构建返回的URL
-            // 注意：这里假设服务运行在本地或可以通过相对路径访问
-            // 在实际生产环境中，应该返回完整的域名+路径
-            String scheme = request.getScheme();
-            String serverName = request.getServerName();
-            int serverPort = request.getServerPort();
-            // String url = scheme + "://" + serverName + ":" + serverPort + "/uploads/" + fileName;
-            
-            // 为了方便小程序访问，这里我们返回相对路径，或者根据配置返回完整路径
-            // 考虑到小程序可能需要完整路径，这里尽量构建完整路径
-            // 如果是在容器中，serverName可能是localhost，需要前端配合替换base url
-            String url = "/uploads/" + fileName;
-            
-            return ApiResponse.ok(url);
+            // 后台生成缩略图, 列表页用 url?size=200 取图
+            imageDerivativeService.submit(stored.getKey());
+            // 返回相对路径，小程序端拼接 base url
+            return ApiResponse.ok(stored.getUrl());
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
         } catch (IOException e) {
             logger.error("文件上传失败", e);
             return ApiResponse.error("文件上传失败");
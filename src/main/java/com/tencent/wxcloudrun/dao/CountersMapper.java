@@ -3,14 +3,17 @@ package com.tencent.wxcloudrun.dao;
 import com.tencent.wxcloudrun.model.Counter;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 public interface CountersMapper {
 
-  Counter getCounter(@Param("id") Integer id);
+  Counter getCounterByName(@Param("name") String name);
 
-  void upsertCount(Counter counter);
+  List<Counter> getCountersByNames(@Param("names") Collection<String> names);
 
-  void clearCount(@Param("id") Integer id);
+  void addCount(@Param("name") String name, @Param("delta") long delta);
+
+  void clearCount(@Param("name") String name);
 }
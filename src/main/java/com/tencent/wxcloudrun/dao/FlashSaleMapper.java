@@ -0,0 +1,18 @@
+package com.tencent.wxcloudrun.dao;
+
+import com.tencent.wxcloudrun.model.FlashSale;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import java.util.List;
+
+@Mapper
+public interface FlashSaleMapper {
+    void insertSale(@Param("sale") FlashSale sale, @Param("leaseSeconds") long leaseSeconds);
+    int renewLease(@Param("id") Integer id, @Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds);
+    List<FlashSale> getExpiredSales();
+    FlashSale lockExpiredSale(@Param("id") Integer id);
+    List<Integer> lockOwnedSales(@Param("ids") List<Integer> ids, @Param("owner") String owner);
+    int addSold(@Param("id") Integer id, @Param("count") int count);
+    int addReturned(@Param("id") Integer id, @Param("count") int count);
+    int closeSale(@Param("id") Integer id, @Param("returned") int returned);
+}
@@ -3,6 +3,9 @@ package com.tencent.wxcloudrun.dao;
 import com.tencent.wxcloudrun.model.Merchant;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -10,7 +13,13 @@ public interface MerchantMapper {
     Merchant getMerchantById(Integer id);
     List<Merchant> getMerchants(@Param("offset") int offset, @Param("limit") int limit);
     List<Merchant> searchMerchants(@Param("offset") int offset, @Param("limit") int limit, @Param("keyword") String keyword);
+    List<Merchant> searchMerchantsAfter(@Param("limit") int limit, @Param("keyword") String keyword,
+                                        @Param("cursorRating") BigDecimal cursorRating, @Param("cursorId") Integer cursorId);
+    void scanMerchantsForIndex(ResultHandler<Merchant> handler);
+    List<Merchant> getMerchantsByIds(@Param("ids") List<Integer> ids);
     void createMerchant(Merchant merchant);
     void updateMerchant(Merchant merchant);
+    int patchMerchant(@Param("patch") Merchant patch, @Param("expectedUpdatedAt") LocalDateTime expectedUpdatedAt);
     void deleteMerchant(Integer id);
+    Integer countSearchMerchants(@Param("keyword") String keyword);
 }
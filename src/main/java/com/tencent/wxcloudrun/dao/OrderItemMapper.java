@@ -0,0 +1,16 @@
+package com.tencent.wxcloudrun.dao;
+
+import com.tencent.wxcloudrun.model.OrderItem;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface OrderItemMapper {
+    void batchInsert(@Param("items") List<OrderItem> items);
+    List<OrderItem> getItemsByOrderIds(@Param("orderIds") Collection<Integer> orderIds);
+    List<OrderItem> getItemsByOrderNos(@Param("orderNos") Collection<String> orderNos);
+    List<Map<String, Object>> getBestSellers(@Param("limit") int limit);
+}
@@ -1,8 +1,12 @@
 package com.tencent.wxcloudrun.dao;
 
 import com.tencent.wxcloudrun.model.Order;
+import com.tencent.wxcloudrun.model.OrderStatusTotal;
+import com.tencent.wxcloudrun.model.OrderSummary;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -11,9 +15,29 @@ public interface OrderMapper {
     Order getOrderByOrderNo(String orderNo);
     List<Order> getOrdersByUserId(String userId);
     List<Order> getOrdersByStatus(@Param("userId") String userId, @Param("status") String status);
-    List<Order> getAllOrders(); // For merchants/admin
+    List<OrderSummary> getMerchantOrderSummaries(@Param("status") String status,
+                                                 @Param("startTime") LocalDateTime startTime,
+                                                 @Param("endTime") LocalDateTime endTime,
+                                                 @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                                 @Param("cursorId") Integer cursorId,
+                                                 @Param("limit") int limit);
+    List<OrderStatusTotal> getOrderTotalsByStatus(@Param("startTime") LocalDateTime startTime,
+                                                  @Param("endTime") LocalDateTime endTime);
+    List<OrderSummary> getRecentOrderSummaries(@Param("limit") int limit);
+    Long countOrders();
+    Long countDistinctCustomers();
     void createOrder(Order order);
-    void updateOrderStatus(@Param("orderNo") String orderNo, @Param("status") String status);
+    String getOrderStatus(@Param("orderNo") String orderNo);
+    String getOrderStatusById(@Param("id") Integer id);
+    int transitionOrderStatus(@Param("orderNo") String orderNo, @Param("status") String status,
+                              @Param("fromStatuses") Collection<String> fromStatuses);
+    int transitionOrderStatusWithTracking(@Param("orderNo") String orderNo, @Param("status") String status,
+                                          @Param("fromStatuses") Collection<String> fromStatuses,
+                                          @Param("trackingNumber") String trackingNumber);
+    int updateTrackingNumberByOrderNo(@Param("orderNo") String orderNo, @Param("trackingNumber") String trackingNumber);
+    List<OrderSummary> lockOrderStatusesByOrderNos(@Param("orderNos") Collection<String> orderNos); // FOR UPDATE
+    int transitionOrderStatusById(@Param("id") Integer id, @Param("status") String status,
+                                  @Param("fromStatuses") Collection<String> fromStatuses);
     void updateTrackingNumber(@Param("id") Integer id, @Param("trackingNumber") String trackingNumber);
-    void deleteOrder(Integer id);
+    int deleteOrder(Integer id);
 }
@@ -3,6 +3,8 @@ package com.tencent.wxcloudrun.dao;
 import com.tencent.wxcloudrun.model.Pet;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -11,8 +13,22 @@ public interface PetMapper {
     List<Pet> getPets(@Param("offset") int offset, @Param("limit") int limit);
     List<Pet> searchPets(@Param("offset") int offset, @Param("limit") int limit, 
                          @Param("keyword") String keyword, @Param("userId") String userId);
+    List<Pet> searchPetsAfter(@Param("limit") int limit, @Param("keyword") String keyword, @Param("userId") String userId,
+                              @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt, @Param("cursorId") Integer cursorId);
+    void scanPetsForIndex(ResultHandler<Pet> handler);
+    List<Pet> getPetsByIds(@Param("ids") List<Integer> ids);
     void createPet(Pet pet);
     void updatePet(Pet pet);
-    void deletePet(Integer id);
+    int patchPet(@Param("patch") Pet patch, @Param("expectedUpdatedAt") LocalDateTime expectedUpdatedAt);
+    int updatePetStatus(@Param("id") Integer id, @Param("status") String status);
+    int reservePet(@Param("id") Integer id, @Param("orderId") Integer orderId, @Param("until") LocalDateTime until);
+    int confirmReservation(@Param("id") Integer id, @Param("orderId") Integer orderId);
+    int completeReservation(@Param("id") Integer id, @Param("orderId") Integer orderId);
+    int releaseReservation(@Param("id") Integer id, @Param("orderId") Integer orderId);
+    List<Pet> getExpiredReservations(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    int deletePet(Integer id);
     Integer countPets();
+    Integer countSearchPets(@Param("keyword") String keyword, @Param("userId") String userId);
+
+    String getListVersion();
 }
@@ -3,6 +3,8 @@ package com.tencent.wxcloudrun.dao;
 import com.tencent.wxcloudrun.model.Product;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -10,8 +12,20 @@ public interface ProductMapper {
     Product getProductById(Integer id);
     List<Product> getProducts(@Param("offset") int offset, @Param("limit") int limit);
     List<Product> searchProducts(@Param("offset") int offset, @Param("limit") int limit, @Param("keyword") String keyword);
+    List<Product> searchProductsAfter(@Param("limit") int limit, @Param("keyword") String keyword,
+                                      @Param("cursorSales") Integer cursorSales, @Param("cursorId") Integer cursorId);
+    void scanProductsForIndex(ResultHandler<Product> handler);
+    List<Product> getProductsByIds(@Param("ids") List<Integer> ids);
     void createProduct(Product product);
-    void updateProduct(Product product);
-    void deleteProduct(Integer id);
+    int updateProduct(Product product);
+    int patchProduct(@Param("patch") Product patch, @Param("expectedUpdatedAt") LocalDateTime expectedUpdatedAt);
+    int deleteProduct(Integer id);
+    List<Product> lockProductStocks(@Param("ids") List<Integer> ids); // id and stock, FOR UPDATE
+    int reserveStock(@Param("id") Integer id, @Param("quantity") int quantity);
+    int releaseStock(@Param("id") Integer id, @Param("quantity") int quantity);
+    int addSales(@Param("id") Integer id, @Param("quantity") int quantity);
     Integer countProducts();
+    Integer countSearchProducts(@Param("keyword") String keyword);
+
+    String getListVersion();
 }
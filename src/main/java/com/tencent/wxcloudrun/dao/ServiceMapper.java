@@ -3,6 +3,8 @@ package com.tencent.wxcloudrun.dao;
 import com.tencent.wxcloudrun.model.Service;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -10,8 +12,16 @@ public interface ServiceMapper {
     Service getServiceById(Integer id);
     List<Service> getServices(@Param("offset") int offset, @Param("limit") int limit);
     List<Service> searchServices(@Param("offset") int offset, @Param("limit") int limit, @Param("keyword") String keyword);
+    List<Service> searchServicesAfter(@Param("limit") int limit, @Param("keyword") String keyword,
+                                      @Param("cursorSales") Integer cursorSales, @Param("cursorId") Integer cursorId);
+    void scanServicesForIndex(ResultHandler<Service> handler);
+    List<Service> getServicesByIds(@Param("ids") List<Integer> ids);
     void createService(Service service);
     void updateService(Service service);
-    void deleteService(Integer id);
+    int patchService(@Param("patch") Service patch, @Param("expectedUpdatedAt") LocalDateTime expectedUpdatedAt);
+    int deleteService(Integer id);
     Integer countServices();
+    Integer countSearchServices(@Param("keyword") String keyword);
+
+    String getListVersion();
 }
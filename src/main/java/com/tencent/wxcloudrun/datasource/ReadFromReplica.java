@@ -0,0 +1,20 @@
+package com.tencent.wxcloudrun.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 读库路由
+ * Marks a service or controller method (or every method of a class) whose statements
+ * may run on a read replica, like @Transactional(readOnly = true) does. Only for reads that can
+ * show data a few seconds old: results that fill a shared cache should stay on the
+ * primary, or a lagging replica would put stale rows in front of every user.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadFromReplica {
+}
@@ -0,0 +1,72 @@
+package com.tencent.wxcloudrun.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Where connections taken by the current thread go: TRUE for a replica, FALSE for the
+ * primary, null outside any routed method (primary as well). Set by
+ * {@link ReplicaRoutingAspect} around a routed call and restored afterwards, so a
+ * write nested in a read method still reaches the primary.
+ * <p>
+ * The first replica a routed call gets a connection from is kept for the rest of that
+ * call, so two statements in it (a list version and the list it describes) never come
+ * from replicas that are at different points of the replication stream.
+ */
+public final class ReadRoute {
+
+    private static final ThreadLocal<Boolean> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Object> PINNED = new ThreadLocal<>();
+
+    private ReadRoute() {
+    }
+
+    static Boolean current() {
+        return CURRENT.get();
+    }
+
+    /** True while the current thread's reads go to a replica */
+    public static boolean isReplica() {
+        return Boolean.TRUE.equals(CURRENT.get());
+    }
+
+    /**
+     * Runs a read on the primary even inside a replica-routed call. For loads that fill
+     * a cache shared by every request, which must not take a lagging replica's rows.
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        if (!isReplica()) {
+            return read.get();
+        }
+        Boolean previous = set(false);
+        try {
+            return read.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /** @return the previous route, to be passed back to {@link #restore} */
+    static Boolean set(boolean replica) {
+        Boolean previous = CURRENT.get();
+        CURRENT.set(replica);
+        return previous;
+    }
+
+    static void restore(Boolean previous) {
+        if (previous == null) {
+            CURRENT.remove();
+            PINNED.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /** The replica this routed call already reads from, or null before its first connection */
+    static Object pinned() {
+        return PINNED.get();
+    }
+
+    static void pin(Object replica) {
+        PINNED.set(replica);
+    }
+}
@@ -0,0 +1,81 @@
+package com.tencent.wxcloudrun.datasource;
+
+import com.tencent.wxcloudrun.config.AuthenticationInterceptor;
+import com.tencent.wxcloudrun.model.User;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 读己之写
+ * Remembers, per caller, when their last write went through, so their reads keep going
+ * to the primary for app.datasource.read-your-writes-ms afterwards and never show a
+ * replica that has not caught up with them yet. Callers are told apart by the principal
+ * AuthenticationInterceptor resolved, or else by their openid header. Callers without an
+ * identity are not tracked: behind the proxy they all share one address, so keying them by
+ * it would pin all of them to the primary after any one write. The window is per instance:
+ * a request that lands on another instance right after a write may still read from a replica.
+ */
+public class ReadYourWrites {
+
+    // Expired entries are dropped once the map grows past this, instead of on a timer
+    private static final int PRUNE_THRESHOLD = 10000;
+
+    private final long windowMs;
+    private final Map<String, Long> lastWrite = new ConcurrentHashMap<>();
+
+    public ReadYourWrites(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    /** Called for every write statement; writes outside a web request (schedulers, flushes) are not tracked */
+    public void recordWrite() {
+        String caller = currentCaller();
+        if (caller == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        lastWrite.put(caller, now);
+        if (lastWrite.size() > PRUNE_THRESHOLD) {
+            lastWrite.values().removeIf(at -> now - at >= windowMs);
+        }
+    }
+
+    public boolean wroteRecently() {
+        String caller = currentCaller();
+        if (caller == null) {
+            return false;
+        }
+        Long at = lastWrite.get(caller);
+        if (at == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - at < windowMs) {
+            return true;
+        }
+        lastWrite.remove(caller, at);
+        return false;
+    }
+
+    private static String currentCaller() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        Object principal = request.getAttribute(AuthenticationInterceptor.CURRENT_USER);
+        if (principal instanceof User) {
+            return ((User) principal).getOpenid();
+        }
+        // Same headers AuthenticationInterceptor identifies callers by
+        String openid = request.getHeader("x-wx-openid");
+        if (openid == null || openid.isEmpty()) {
+            openid = request.getHeader("X-Debug-OpenId");
+        }
+        return openid == null || openid.isEmpty() ? null : openid;
+    }
+}
@@ -0,0 +1,72 @@
+package com.tencent.wxcloudrun.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离配置, active only when app.datasource.replica-urls is set. The primary is
+ * still built from spring.datasource; each replica URL gets a pool of its own with the
+ * same driver and, unless replica-username/replica-password say otherwise, the same
+ * credentials. Without replica URLs none of this exists and Spring Boot's single
+ * DataSource is used as before.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica-urls")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public RoutingDataSource dataSource(DataSourceProperties properties,
+                                        @Value("${app.datasource.replica-urls}") String replicaUrls,
+                                        @Value("${app.datasource.replica-username:}") String replicaUsername,
+                                        @Value("${app.datasource.replica-password:}") String replicaPassword,
+                                        @Value("${app.datasource.replica-pool-size:10}") int replicaPoolSize,
+                                        @Value("${app.datasource.replica-connect-timeout-ms:1000}") long connectTimeoutMs,
+                                        @Value("${app.datasource.max-replica-lag-seconds:3}") long maxLagSeconds) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        String username = StringUtils.hasText(replicaUsername) ? replicaUsername : properties.determineUsername();
+        String password = StringUtils.hasText(replicaUsername) ? replicaPassword : properties.determinePassword();
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : StringUtils.commaDelimitedListToStringArray(replicaUrls)) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(replicaPoolSize);
+            // Short, so a dead replica fails over to the next one instead of holding the request for 30s
+            replica.setConnectionTimeout(connectTimeoutMs);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new RoutingDataSource(primary, replicas, maxLagSeconds);
+    }
+
+    @Bean
+    public ReadYourWrites readYourWrites(@Value("${app.datasource.read-your-writes-ms:5000}") long windowMs) {
+        return new ReadYourWrites(windowMs);
+    }
+
+    @Bean
+    public ReplicaRoutingAspect replicaRoutingAspect(ReadYourWrites readYourWrites) {
+        return new ReplicaRoutingAspect(readYourWrites);
+    }
+
+    @Bean
+    public WriteTrackingInterceptor writeTrackingInterceptor(ReadYourWrites readYourWrites) {
+        return new WriteTrackingInterceptor(readYourWrites);
+    }
+}
@@ -0,0 +1,74 @@
+package com.tencent.wxcloudrun.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+
+/**
+ * Decides per routed call whether its connections come from a replica. Reads
+ * ({@link ReadFromReplica}, @Transactional(readOnly = true)) go to a replica unless
+ * the caller wrote within the read-your-writes window or the call joins a transaction
+ * that is already open on the primary. Any other @Transactional method is pinned to the
+ * primary, even when called from a read. Runs outside the transaction interceptor,
+ * because a transaction takes its connection as soon as it begins.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReplicaRoutingAspect {
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReplicaRoutingAspect(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Around("@annotation(com.tencent.wxcloudrun.datasource.ReadFromReplica)"
+            + " || @within(com.tencent.wxcloudrun.datasource.ReadFromReplica)"
+            + " || @annotation(org.springframework.transaction.annotation.Transactional)"
+            + " || @within(org.springframework.transaction.annotation.Transactional)")
+    public Object route(ProceedingJoinPoint pjp) throws Throwable {
+        Boolean previous = ReadRoute.current();
+        boolean replica;
+        if (!isRead(pjp)) {
+            replica = false;
+        } else if (previous != null) {
+            // Nested read: same place as the enclosing call
+            replica = previous;
+        } else {
+            replica = !TransactionSynchronizationManager.isActualTransactionActive() && !readYourWrites.wroteRecently();
+        }
+        ReadRoute.set(replica);
+        try {
+            return pjp.proceed();
+        } finally {
+            ReadRoute.restore(previous);
+        }
+    }
+
+    private static boolean isRead(ProceedingJoinPoint pjp) {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        Class<?> targetClass = AopUtils.getTargetClass(pjp.getTarget());
+        Method specific = AopUtils.getMostSpecificMethod(method, targetClass);
+        if (AnnotatedElementUtils.hasAnnotation(specific, ReadFromReplica.class)) {
+            return true;
+        }
+        Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(specific, Transactional.class);
+        if (transactional != null) {
+            return transactional.readOnly();
+        }
+        if (AnnotatedElementUtils.hasAnnotation(targetClass, ReadFromReplica.class)) {
+            return true;
+        }
+        transactional = AnnotatedElementUtils.findMergedAnnotation(targetClass, Transactional.class);
+        return transactional != null && transactional.readOnly();
+    }
+}
@@ -0,0 +1,200 @@
+package com.tencent.wxcloudrun.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离数据源
+ * Hands out primary connections, except on a thread that {@link ReplicaRoutingAspect}
+ * routed to the replicas: those get a connection from the next healthy replica, round
+ * robin, and keep reading from it until the routed call ends. A replica that refuses a connection is marked down on the spot and the read
+ * moves on to the next one, then to the primary, so a replica outage costs at most one
+ * connect timeout. The health check brings it back once it answers again and its
+ * replication lag is within bounds.
+ */
+public class RoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingDataSource.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public RoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, long maxLagSeconds) {
+        this.primary = primary;
+        for (HikariDataSource replica : replicas) {
+            this.replicas.add(new Replica(replica));
+        }
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (ReadRoute.isReplica()) {
+            Connection connection = replicaConnection(null, null);
+            if (connection != null) {
+                return connection;
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (ReadRoute.isReplica()) {
+            Connection connection = replicaConnection(username, password);
+            if (connection != null) {
+                return connection;
+            }
+        }
+        return primary.getConnection(username, password);
+    }
+
+    private Connection replicaConnection(String username, String password) {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        Object pinned = ReadRoute.pinned();
+        if (pinned != null) {
+            // Not another replica, which may be further behind than what this call has
+            // read so far; the primary is never behind
+            return connect((Replica) pinned, username, password);
+        }
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            Connection connection = connect(replica, username, password);
+            if (connection != null) {
+                ReadRoute.pin(replica);
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    private static Connection connect(Replica replica, String username, String password) {
+        if (!replica.healthy) {
+            return null;
+        }
+        try {
+            return username == null
+                    ? replica.dataSource.getConnection()
+                    : replica.dataSource.getConnection(username, password);
+        } catch (SQLException e) {
+            replica.markDown(e.getMessage());
+            return null;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.health-check-interval-ms:5000}",
+               initialDelayString = "${app.datasource.health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            String problem = probe(replica.dataSource);
+            if (problem == null) {
+                replica.markUp();
+            } else {
+                replica.markDown(problem);
+            }
+        }
+    }
+
+    /** @return null when the replica can serve reads, otherwise why not */
+    private String probe(HikariDataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                return "connection not valid";
+            }
+            Long lag = replicationLag(connection);
+            if (lag != null && lag < 0) {
+                return "replication stopped";
+            }
+            if (lag != null && lag > maxLagSeconds) {
+                return "replication lag " + lag + "s";
+            }
+            return null;
+        } catch (SQLException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Seconds behind the source as MySQL reports it, -1 when replication is stopped,
+     * or null when there is nothing to go by: not a replica (two independent local
+     * instances, for one) or no REPLICATION CLIENT privilege.
+     */
+    private static Long replicationLag(Connection connection) {
+        // SHOW REPLICA STATUS from 8.0.22 on, SHOW SLAVE STATUS before that
+        for (String sql : new String[]{"SHOW REPLICA STATUS", "SHOW SLAVE STATUS"}) {
+            try (Statement st = connection.createStatement()) {
+                st.setQueryTimeout(VALIDATION_TIMEOUT_SECONDS);
+                try (ResultSet rs = st.executeQuery(sql)) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    ResultSetMetaData meta = rs.getMetaData();
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        String column = meta.getColumnLabel(i);
+                        if ("Seconds_Behind_Source".equalsIgnoreCase(column) || "Seconds_Behind_Master".equalsIgnoreCase(column)) {
+                            long lag = rs.getLong(i);
+                            return rs.wasNull() ? -1L : lag;
+                        }
+                    }
+                    return null;
+                }
+            } catch (SQLException e) {
+                // Older server or missing privilege; try the next form
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void destroy() {
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+        primary.close();
+    }
+
+    private static final class Replica {
+        final HikariDataSource dataSource;
+        volatile boolean healthy = true;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        // Logged on the transition only; a replica that stays down is not reported every check
+        void markDown(String reason) {
+            if (healthy) {
+                healthy = false;
+                logger.warn("Replica {} taken out of rotation, reads go elsewhere: {}", dataSource.getPoolName(), reason);
+            }
+        }
+
+        void markUp() {
+            if (!healthy) {
+                healthy = true;
+                logger.info("Replica {} back in rotation", dataSource.getPoolName());
+            }
+        }
+    }
+}
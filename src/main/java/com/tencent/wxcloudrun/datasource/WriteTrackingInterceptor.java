@@ -0,0 +1,41 @@
+package com.tencent.wxcloudrun.datasource;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+
+import java.util.Properties;
+
+/**
+ * Tells {@link ReadYourWrites} about every insert, update and delete that goes
+ * through a mapper. Recorded before the statement runs, so a read issued while the
+ * write is still in flight already goes to the primary.
+ */
+@Intercepts(@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}))
+public class WriteTrackingInterceptor implements Interceptor {
+
+    private final ReadYourWrites readYourWrites;
+
+    public WriteTrackingInterceptor(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        readYourWrites.recordWrite();
+        return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.tencent.wxcloudrun.dto;
+
+import lombok.Data;
+
+/**
+ * Per-entry outcome of a batch order update, in request order.
+ */
+@Data
+public class BatchOrderResult {
+    private final String orderNo;
+    private final boolean success;
+    private final String message;
+
+    public static BatchOrderResult ok(String orderNo) {
+        return new BatchOrderResult(orderNo, true, null);
+    }
+
+    public static BatchOrderResult fail(String orderNo, String message) {
+        return new BatchOrderResult(orderNo, false, message);
+    }
+}
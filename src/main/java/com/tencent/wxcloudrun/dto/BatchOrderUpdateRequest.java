@@ -0,0 +1,29 @@
+package com.tencent.wxcloudrun.dto;
+
+import lombok.Data;
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * 批量发货/改状态
+ */
+@Data
+public class BatchOrderUpdateRequest {
+    @Valid
+    @NotEmpty(message = "items cannot be empty")
+    @Size(max = 500, message = "at most 500 items per batch")
+    private List<Item> items;
+
+    @Data
+    public static class Item {
+        @NotBlank(message = "orderNo cannot be empty")
+        private String orderNo;
+
+        private String status;          // target status, optional for tracking-only updates
+
+        private String trackingNumber;  // optional
+    }
+}
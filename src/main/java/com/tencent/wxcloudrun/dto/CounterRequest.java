@@ -10,4 +10,10 @@ public class CounterRequest {
   // 等于 `"clear"` 时，表示计数重置（清零）
   private String action;
 
+  // 计数器名称，缺省为 "default"
+  private String name;
+
+  // 为 true 时立即落库并返回数据库中的值，否则返回内存中的近似值
+  private Boolean consistent;
+
 }
@@ -0,0 +1,25 @@
+package com.tencent.wxcloudrun.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果
+ */
+@Data
+public class CursorPage<T> {
+
+    private final List<T> list;
+    private final String nextCursor;
+
+    /**
+     * A full page may have more rows behind it, so it gets a cursor built from its last row;
+     * a short page is the end of the listing.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, String> cursorOf) {
+        String next = rows.size() == size && size > 0 ? cursorOf.apply(rows.get(rows.size() - 1)) : null;
+        return new CursorPage<>(rows, next);
+    }
+}
@@ -0,0 +1,19 @@
+package com.tencent.wxcloudrun.dto;
+
+import lombok.Data;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class FlashSaleBuyRequest {
+    @NotBlank(message = "itemType cannot be empty")
+    private String itemType;
+
+    @NotNull(message = "itemId cannot be null")
+    private Integer itemId;
+
+    @NotBlank(message = "addressSnapshot cannot be empty")
+    private String addressSnapshot;
+
+    private String userId; // Optional in body, can be from header
+}
@@ -0,0 +1,29 @@
+package com.tencent.wxcloudrun.dto;
+
+import lombok.Data;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+
+/**
+ * 开启秒杀
+ */
+@Data
+public class FlashSaleRequest {
+    @NotBlank(message = "itemType cannot be empty")
+    private String itemType; // product or pet
+
+    @NotNull(message = "itemId cannot be null")
+    private Integer itemId;
+
+    @Min(value = 1, message = "quantity must be at least 1")
+    private Integer quantity; // products only, a pet is always one
+
+    @DecimalMin(value = "0.01", message = "price must be greater than 0")
+    private BigDecimal price; // optional sale price
+
+    @Min(value = 1, message = "durationSeconds must be at least 1")
+    private Integer durationSeconds;
+}
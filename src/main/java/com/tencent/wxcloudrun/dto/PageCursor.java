@@ -0,0 +1,68 @@
+package com.tencent.wxcloudrun.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 列表游标 (keyset pagination)
+ * Opaque token carrying the sort key and id of the last row of a page,
+ * e.g. "created_at,id" for pets or "sales,id" for products.
+ */
+@Data
+public class PageCursor {
+
+    private static final String SEPARATOR = ",";
+
+    private final String key;
+    private final Integer id;
+
+    public static String encode(Object key, Integer id) {
+        String raw = String.valueOf(key) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return decoded cursor, or null for an empty token (first page)
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int idx = raw.lastIndexOf(SEPARATOR);
+            return new PageCursor(raw.substring(0, idx), Integer.valueOf(raw.substring(idx + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public LocalDateTime keyAsDateTime() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public Integer keyAsInt() {
+        try {
+            return Integer.valueOf(key);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public BigDecimal keyAsDecimal() {
+        try {
+            return new BigDecimal(key);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
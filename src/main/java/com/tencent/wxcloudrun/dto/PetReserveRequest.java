@@ -0,0 +1,16 @@
+package com.tencent.wxcloudrun.dto;
+
+import lombok.Data;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class PetReserveRequest {
+    @NotNull(message = "petId cannot be null")
+    private Integer petId;
+
+    @NotBlank(message = "addressSnapshot cannot be empty")
+    private String addressSnapshot;
+
+    private String userId; // Optional in body, can be from header
+}
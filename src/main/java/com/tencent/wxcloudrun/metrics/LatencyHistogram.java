@@ -0,0 +1,135 @@
+package com.tencent.wxcloudrun.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图 (HdrHistogram-style log-linear buckets)
+ * Latencies are counted in units of 1024 ns. Each power of two is split into 32
+ * linear sub-buckets, so any recorded value is within about 3% of its bucket's
+ * bounds, from 1 us up to about 19 hours. record() only touches preallocated
+ * counters and never allocates.
+ */
+public final class LatencyHistogram {
+
+    private static final int UNIT_SHIFT = 10; // 1024 ns
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_MSB = 35;
+    static final int BUCKETS = (MAX_MSB - SUB_BITS + 2) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(index(nanos >>> UNIT_SHIFT));
+        count.increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    static int index(long units) {
+        if (units < SUB_COUNT) {
+            return (int) units;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(units);
+        if (msb > MAX_MSB) {
+            return BUCKETS - 1;
+        }
+        int shift = msb - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) ((units >>> shift) - SUB_COUNT);
+    }
+
+    /** Largest value in nanoseconds that falls into the bucket. */
+    static long upperBoundNanos(int index) {
+        long units;
+        if (index < SUB_COUNT) {
+            units = index;
+        } else {
+            int shift = index / SUB_COUNT - 1;
+            long sub = index % SUB_COUNT;
+            units = ((SUB_COUNT + sub + 1) << shift) - 1;
+        }
+        return ((units + 1) << UNIT_SHIFT) - 1;
+    }
+
+    /**
+     * Copies the counters. Concurrent records may be partly included, which only
+     * makes the snapshot lag by those few values.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, sumNanos.sum(), maxNanos.get());
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long total;
+        private final long sumNanos;
+        private final long maxNanos;
+
+        Snapshot(long[] counts, long sumNanos, long maxNanos) {
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.counts = counts;
+            this.total = total;
+            this.sumNanos = sumNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return total;
+        }
+
+        public long getSumNanos() {
+            return sumNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /** Number of values at or below the given latency (bucket resolution). */
+        public long countAtOrBelow(long nanos) {
+            long n = 0;
+            for (int i = 0; i < counts.length && upperBoundNanos(i) <= nanos; i++) {
+                n += counts[i];
+            }
+            return n;
+        }
+
+        /**
+         * @param quantile 0..1, e.g. 0.99
+         * @return upper bound in nanoseconds of the bucket holding that quantile
+         */
+        public long valueAtQuantile(double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundNanos(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+}
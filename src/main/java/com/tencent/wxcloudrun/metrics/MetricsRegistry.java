@@ -0,0 +1,78 @@
+package com.tencent.wxcloudrun.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 指标注册表
+ * Timers are grouped into named families (one Prometheus metric each) and looked
+ * up by an arbitrary key, such as the advised Method, so the hot path needs no
+ * string building; the label is only computed when a timer is first created.
+ */
+@Component
+public class MetricsRegistry {
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    public <K> Timer timer(String family, String help, String labelName, K key, Function<K, String> label) {
+        return timer(family, help, labelName, false, key, label);
+    }
+
+    /**
+     * @param tracksRows whether the family's timers report rows and parameter shapes
+     */
+    public <K> Timer timer(String family, String help, String labelName, boolean tracksRows,
+                           K key, Function<K, String> label) {
+        Family f = families.get(family);
+        if (f == null) {
+            f = families.computeIfAbsent(family, name -> new Family(name, help, labelName, tracksRows));
+        }
+        Timer timer = f.timers.get(key);
+        if (timer == null) {
+            timer = f.timers.computeIfAbsent(key, k -> new Timer(label.apply(key)));
+        }
+        return timer;
+    }
+
+    public Map<String, Family> getFamilies() {
+        return families;
+    }
+
+    public static final class Family {
+        private final String name;
+        private final String help;
+        private final String labelName;
+        private final boolean tracksRows;
+        private final Map<Object, Timer> timers = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String labelName, boolean tracksRows) {
+            this.name = name;
+            this.help = help;
+            this.labelName = labelName;
+            this.tracksRows = tracksRows;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHelp() {
+            return help;
+        }
+
+        public String getLabelName() {
+            return labelName;
+        }
+
+        public boolean isTracksRows() {
+            return tracksRows;
+        }
+
+        public Iterable<Timer> getTimers() {
+            return timers.values();
+        }
+    }
+}
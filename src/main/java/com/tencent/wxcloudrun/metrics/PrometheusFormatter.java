@@ -0,0 +1,119 @@
+package com.tencent.wxcloudrun.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Renders the registry in the Prometheus text exposition format (0.0.4). Each
+ * family becomes a histogram in seconds plus _errors_total and _in_flight series;
+ * statement families add row counts and parameter shapes.
+ * Bucket counts come from the log-linear buckets, so a value within ~3% below an
+ * "le" bound may be counted in the next bound.
+ */
+public final class PrometheusFormatter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Seconds
+    private static final double[] BOUNDS = {
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private PrometheusFormatter() {
+    }
+
+    public static String format(MetricsRegistry registry) {
+        StringBuilder sb = new StringBuilder(8192);
+        Map<String, MetricsRegistry.Family> families = new TreeMap<>(registry.getFamilies());
+        for (MetricsRegistry.Family family : families.values()) {
+            List<Timer> timers = new ArrayList<>();
+            family.getTimers().forEach(timers::add);
+            timers.sort(Comparator.comparing(Timer::getLabel));
+            String name = family.getName();
+            String label = family.getLabelName();
+
+            List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>(timers.size());
+            for (Timer timer : timers) {
+                snapshots.add(timer.getHistogram().snapshot());
+            }
+
+            sb.append("# HELP ").append(name).append("_seconds ").append(family.getHelp()).append('\n');
+            sb.append("# TYPE ").append(name).append("_seconds histogram\n");
+            for (int i = 0; i < timers.size(); i++) {
+                Timer timer = timers.get(i);
+                LatencyHistogram.Snapshot snapshot = snapshots.get(i);
+                String value = escape(timer.getLabel());
+                for (double bound : BOUNDS) {
+                    sb.append(name).append("_seconds_bucket{").append(label).append("=\"").append(value)
+                            .append("\",le=\"").append(number(bound)).append("\"} ")
+                            .append(snapshot.countAtOrBelow((long) (bound * 1e9))).append('\n');
+                }
+                sb.append(name).append("_seconds_bucket{").append(label).append("=\"").append(value)
+                        .append("\",le=\"+Inf\"} ").append(snapshot.getCount()).append('\n');
+                sb.append(name).append("_seconds_sum{").append(label).append("=\"").append(value).append("\"} ")
+                        .append(snapshot.getSumNanos() / 1e9).append('\n');
+                sb.append(name).append("_seconds_count{").append(label).append("=\"").append(value).append("\"} ")
+                        .append(snapshot.getCount()).append('\n');
+            }
+
+            sb.append("# HELP ").append(name).append("_seconds_max Largest latency since start\n");
+            sb.append("# TYPE ").append(name).append("_seconds_max gauge\n");
+            for (int i = 0; i < timers.size(); i++) {
+                sample(sb, name + "_seconds_max", label, timers.get(i),
+                        Double.toString(snapshots.get(i).getMaxNanos() / 1e9));
+            }
+
+            sb.append("# HELP ").append(name).append("_errors_total Calls that failed\n");
+            sb.append("# TYPE ").append(name).append("_errors_total counter\n");
+            for (Timer timer : timers) {
+                sample(sb, name + "_errors_total", label, timer, Long.toString(timer.getErrors()));
+            }
+
+            sb.append("# HELP ").append(name).append("_in_flight Calls currently running\n");
+            sb.append("# TYPE ").append(name).append("_in_flight gauge\n");
+            for (Timer timer : timers) {
+                sample(sb, name + "_in_flight", label, timer, Long.toString(timer.getInFlight()));
+            }
+
+            if (family.isTracksRows()) {
+                sb.append("# HELP ").append(name).append("_rows_total Rows returned or affected\n");
+                sb.append("# TYPE ").append(name).append("_rows_total counter\n");
+                for (Timer timer : timers) {
+                    sample(sb, name + "_rows_total", label, timer, Long.toString(timer.getRows()));
+                }
+                sb.append("# HELP ").append(name).append("_rows_max Most rows of a single call\n");
+                sb.append("# TYPE ").append(name).append("_rows_max gauge\n");
+                for (Timer timer : timers) {
+                    sample(sb, name + "_rows_max", label, timer, Long.toString(timer.getMaxRows()));
+                }
+                sb.append("# HELP ").append(name).append("_param_shapes_total Calls per parameter shape\n");
+                sb.append("# TYPE ").append(name).append("_param_shapes_total counter\n");
+                for (Timer timer : timers) {
+                    for (Map.Entry<String, LongAdder> shape : new TreeMap<>(timer.getShapes()).entrySet()) {
+                        sb.append(name).append("_param_shapes_total{").append(label).append("=\"")
+                                .append(escape(timer.getLabel())).append("\",shape=\"").append(escape(shape.getKey()))
+                                .append("\"} ").append(shape.getValue().sum()).append('\n');
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void sample(StringBuilder sb, String metric, String label, Timer timer, String value) {
+        sb.append(metric).append('{').append(label).append("=\"").append(escape(timer.getLabel())).append("\"} ")
+                .append(value).append('\n');
+    }
+
+    private static String number(double bound) {
+        return bound == Math.rint(bound) ? Long.toString((long) bound) : Double.toString(bound);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,186 @@
+package com.tencent.wxcloudrun.metrics;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * MyBatis 语句级监控
+ * Times every mapper statement by its id (e.g. com.tencent.wxcloudrun.dao.OrderMapper.getOrdersByUserId)
+ * into the mybatis_statements family served at /metrics, together with the rows it
+ * returned or changed and the shape of its parameters ("orderNos:List[<=512]").
+ * Slow statements and oversized results are logged with their SQL, sampled per
+ * statement; parameter values are never logged.
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class})
+})
+public class StatementMetricsInterceptor implements Interceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementMetricsInterceptor.class);
+
+    public static final String FAMILY = "mybatis_statements";
+
+    private static final int MAX_SHAPES = 8;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern POSITIONAL = Pattern.compile("param\\d+");
+
+    private final MetricsRegistry metricsRegistry;
+    private final long slowStatementMs;
+    private final long largeResultRows;
+    private final long logIntervalMs;
+
+    public StatementMetricsInterceptor(MetricsRegistry metricsRegistry,
+                                       @Value("${app.metrics.slow-statement-ms:200}") long slowStatementMs,
+                                       @Value("${app.metrics.large-result-rows:1000}") long largeResultRows,
+                                       @Value("${app.metrics.slow-log-interval-ms:10000}") long logIntervalMs) {
+        this.metricsRegistry = metricsRegistry;
+        this.slowStatementMs = slowStatementMs;
+        this.largeResultRows = largeResultRows;
+        this.logIntervalMs = logIntervalMs;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object[] args = invocation.getArgs();
+        MappedStatement ms = (MappedStatement) args[0];
+        Object parameter = args[1];
+        Timer timer = metricsRegistry.timer(FAMILY, "Mapper statement latency", "statement", true, ms,
+                MappedStatement::getId);
+
+        // Statements streaming into a ResultHandler return nothing; count what the handler sees
+        CountingResultHandler counting = null;
+        if (args.length > 3 && args[3] != null) {
+            counting = new CountingResultHandler((ResultHandler<?>) args[3]);
+            args[3] = counting;
+        }
+
+        timer.start();
+        long start = System.nanoTime();
+        boolean error = true;
+        long rows = -1;
+        try {
+            Object result = invocation.proceed();
+            error = false;
+            if (counting != null) {
+                rows = counting.count;
+            } else if (result instanceof List) {
+                rows = ((List<?>) result).size();
+            } else if (result instanceof Integer && (Integer) result >= 0) {
+                // BATCH executors return a negative placeholder until the batch is flushed
+                rows = (Integer) result;
+            }
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            timer.stop(elapsed, error);
+            String shape = shape(parameter);
+            timer.recordShape(shape, MAX_SHAPES);
+            if (rows >= 0) {
+                timer.recordRows(rows);
+            }
+            long elapsedMs = elapsed / 1_000_000;
+            boolean slow = elapsedMs >= slowStatementMs;
+            boolean large = rows >= largeResultRows;
+            if ((slow || large) && timer.tryAcquireLog(logIntervalMs)) {
+                logger.warn("{} statement {} took {}ms, {} rows, params {}: {}",
+                        slow ? "Slow" : "Large", ms.getId(), elapsedMs, rows, shape, sql(ms, parameter, args));
+            }
+        }
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+    private static String sql(MappedStatement ms, Object parameter, Object[] args) {
+        BoundSql boundSql = args.length > 5 ? (BoundSql) args[5] : ms.getBoundSql(parameter);
+        return WHITESPACE.matcher(boundSql.getSql()).replaceAll(" ").trim();
+    }
+
+    /**
+     * Parameter names and types, with collection sizes rounded up to a power of two
+     * so that IN lists of similar length share one shape.
+     */
+    static String shape(Object parameter) {
+        if (!(parameter instanceof Map)) {
+            return shapeOf(parameter);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<?, ?> entry : new TreeMap<>((Map<?, ?>) parameter).entrySet()) {
+            String name = String.valueOf(entry.getKey());
+            if (POSITIONAL.matcher(name).matches()) {
+                continue; // MyBatis' param1, param2... duplicates of the named entries
+            }
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(name).append(':').append(shapeOf(entry.getValue()));
+        }
+        return sb.length() == 0 ? "none" : sb.toString();
+    }
+
+    private static String shapeOf(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Collection) {
+            return "List[<=" + ceilPowerOfTwo(((Collection<?>) value).size()) + "]";
+        }
+        if (value.getClass().isArray()) {
+            return "Array[<=" + ceilPowerOfTwo(java.lang.reflect.Array.getLength(value)) + "]";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    private static int ceilPowerOfTwo(int n) {
+        return n <= 1 ? n : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    private static final class CountingResultHandler implements ResultHandler<Object> {
+        private final ResultHandler<Object> delegate;
+        private long count;
+
+        @SuppressWarnings("unchecked")
+        CountingResultHandler(ResultHandler<?> delegate) {
+            this.delegate = (ResultHandler<Object>) delegate;
+        }
+
+        @Override
+        public void handleResult(ResultContext<?> context) {
+            count++;
+            delegate.handleResult(context);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.tencent.wxcloudrun.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, error count and in-flight gauge of one labelled operation. Database
+ * statements also report the rows they returned or changed and the shapes of the
+ * parameters they were called with.
+ */
+public final class Timer {
+
+    private final String label;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    private final AtomicLong lastSlowLog = new AtomicLong();
+    private final LongAdder rows = new LongAdder();
+    private final LongAccumulator maxRows = new LongAccumulator(Math::max, 0);
+    private final Map<String, LongAdder> shapes = new ConcurrentHashMap<>();
+
+    Timer(String label) {
+        this.label = label;
+    }
+
+    public void start() {
+        inFlight.increment();
+    }
+
+    public void stop(long nanos, boolean error) {
+        inFlight.decrement();
+        histogram.record(nanos);
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    public void recordRows(long n) {
+        rows.add(n);
+        maxRows.accumulate(n);
+    }
+
+    /**
+     * Counts a parameter shape; only the first few distinct shapes are kept so that
+     * the label set stays bounded.
+     */
+    public void recordShape(String shape, int maxShapes) {
+        LongAdder counter = shapes.get(shape);
+        if (counter == null) {
+            if (shapes.size() >= maxShapes) {
+                return;
+            }
+            counter = shapes.computeIfAbsent(shape, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Lets one caller through per interval, for sampled logging.
+     */
+    public boolean tryAcquireLog(long intervalMs) {
+        long now = System.currentTimeMillis();
+        long last = lastSlowLog.get();
+        return now - last >= intervalMs && lastSlowLog.compareAndSet(last, now);
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getMaxRows() {
+        return maxRows.get();
+    }
+
+    public Map<String, LongAdder> getShapes() {
+        return Collections.unmodifiableMap(shapes);
+    }
+}
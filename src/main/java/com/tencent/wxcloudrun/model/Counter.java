@@ -10,6 +10,8 @@ public class Counter implements Serializable {
 
   private Integer id;
 
+  private String name;
+
   private Integer count;
 
   private LocalDateTime createdAt;
@@ -0,0 +1,23 @@
+package com.tencent.wxcloudrun.model;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 秒杀记录 (flash_sales row): how much stock a sale took and where it went
+ */
+@Data
+public class FlashSale {
+    private Integer id;
+    private String itemType; // product, pet
+    private Integer itemId;
+    private Integer allotted;
+    private Integer sold;
+    private Integer returned;
+    private String status; // open, closed
+    private String owner; // instance holding the tokens
+    private LocalDateTime leaseUntil; // settled by any instance once past, unless renewed
+    private LocalDateTime endsAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -3,6 +3,7 @@ package com.tencent.wxcloudrun.model;
 import lombok.Data;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 public class Order {
@@ -16,4 +17,5 @@ public class Order {
     private String trackingNumber;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private List<OrderItem> items; // order_items rows, not a column
 }
@@ -0,0 +1,19 @@
+package com.tencent.wxcloudrun.model;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+@Data
+public class OrderItem {
+    public static final String TYPE_PRODUCT = "product";
+    public static final String TYPE_PET = "pet";
+
+    private Integer id;
+    private Integer orderId;
+    private String itemType; // product, pet
+    private Integer productId;
+    private String productName;
+    private BigDecimal price;
+    private Integer quantity;
+    private BigDecimal amount;
+}
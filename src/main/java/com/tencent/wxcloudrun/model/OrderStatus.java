@@ -1,5 +1,13 @@
 package com.tencent.wxcloudrun.model;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public enum OrderStatus {
     PENDING("pending"),
     PAID("paid"),
@@ -7,6 +15,26 @@ public enum OrderStatus {
     COMPLETED("completed"),
     CANCELLED("cancelled");
 
+    // 状态流转表: target -> statuses it may be reached from (completed/cancelled are final)
+    private static final Map<OrderStatus, Set<OrderStatus>> PREDECESSORS = new EnumMap<>(OrderStatus.class);
+    private static final Map<OrderStatus, List<String>> PREDECESSOR_VALUES = new EnumMap<>(OrderStatus.class);
+
+    static {
+        PREDECESSORS.put(PENDING, EnumSet.noneOf(OrderStatus.class));
+        PREDECESSORS.put(PAID, EnumSet.of(PENDING));
+        PREDECESSORS.put(SHIPPED, EnumSet.of(PAID));
+        PREDECESSORS.put(COMPLETED, EnumSet.of(SHIPPED));
+        PREDECESSORS.put(CANCELLED, EnumSet.of(PENDING, PAID));
+
+        for (Map.Entry<OrderStatus, Set<OrderStatus>> entry : PREDECESSORS.entrySet()) {
+            List<String> values = new ArrayList<>();
+            for (OrderStatus from : entry.getValue()) {
+                values.add(from.value);
+            }
+            PREDECESSOR_VALUES.put(entry.getKey(), Collections.unmodifiableList(values));
+        }
+    }
+
     private final String value;
 
     OrderStatus(String value) {
@@ -17,6 +45,18 @@ public enum OrderStatus {
         return value;
     }
 
+    public boolean canTransitionTo(OrderStatus next) {
+        return PREDECESSORS.get(next).contains(this);
+    }
+
+    /**
+     * Status values an order must currently have to move to this status,
+     * used as the IN list of the conditional update.
+     */
+    public List<String> predecessorValues() {
+        return PREDECESSOR_VALUES.get(this);
+    }
+
     public static OrderStatus fromValue(String value) {
         for (OrderStatus status : OrderStatus.values()) {
             if (status.value.equalsIgnoreCase(value)) {
@@ -0,0 +1,14 @@
+package com.tencent.wxcloudrun.model;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+/**
+ * 订单金额汇总 (order count and total_amount sum of one status)
+ */
+@Data
+public class OrderStatusTotal {
+    private String status;
+    private Long orderCount;
+    private BigDecimal totalAmount;
+}
@@ -0,0 +1,22 @@
+package com.tencent.wxcloudrun.model;
+
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单摘要 (Order without the items_json / address_snapshot blobs)
+ */
+@Data
+public class OrderSummary {
+    private Integer id;
+    private String orderNo;
+    private String userId;
+    private BigDecimal totalAmount;
+    private String status;
+    private String trackingNumber;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private List<OrderItem> items; // order_items rows, not a column
+}
@@ -18,6 +18,8 @@ public class Pet {
     private String avatar;
     private String healthStatus;
     private Integer merchantId;
+    private Integer reservedOrderId; // deposit order holding a booked pet
+    private LocalDateTime reservedUntil; // deposit payment deadline
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
@@ -12,6 +12,7 @@ public class Product {
     private BigDecimal price;
     private BigDecimal originalPrice;
     private Integer stock;
+    private Integer stockDelta; // request only: stock is changed by this much, never set outright
     private Integer sales;
     private BigDecimal rating;
     private String image;
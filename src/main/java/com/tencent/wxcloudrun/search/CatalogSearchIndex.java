@@ -0,0 +1,267 @@
+package com.tencent.wxcloudrun.search;
+
+import com.tencent.wxcloudrun.dao.MerchantMapper;
+import com.tencent.wxcloudrun.dao.PetMapper;
+import com.tencent.wxcloudrun.dao.ProductMapper;
+import com.tencent.wxcloudrun.dao.ServiceMapper;
+import com.tencent.wxcloudrun.model.Merchant;
+import com.tencent.wxcloudrun.model.Pet;
+import com.tencent.wxcloudrun.model.Product;
+import com.tencent.wxcloudrun.model.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 商品目录搜索索引
+ * Keyword searches over pets, products, services and merchants are answered from
+ * in-memory n-gram indexes instead of LIKE '%kw%' scans. The indexes are loaded once
+ * the application is ready, kept current by the catalog services' writes and
+ * reloaded periodically to pick up changes made by other instances.
+ * Until the first load finishes {@link #isReady()} is false and callers use SQL.
+ */
+@Component
+public class CatalogSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSearchIndex.class);
+
+    @Autowired
+    private PetMapper petMapper;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ServiceMapper serviceMapper;
+
+    @Autowired
+    private MerchantMapper merchantMapper;
+
+    @Value("${app.search.enabled:true}")
+    private boolean enabled;
+
+    private volatile Indexes current;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final Object writeLock = new Object();
+    // Writes seen while a rebuild is loading, replayed onto the new indexes before the swap
+    private List<Consumer<Indexes>> replay;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.rebuild-interval-ms:600000}",
+               initialDelayString = "${app.search.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            synchronized (writeLock) {
+                replay = new ArrayList<>();
+            }
+            Indexes fresh = new Indexes();
+            merchantMapper.scanMerchantsForIndex(ctx -> fresh.putMerchant(ctx.getResultObject()));
+            petMapper.scanPetsForIndex(ctx -> fresh.putPet(ctx.getResultObject()));
+            productMapper.scanProductsForIndex(ctx -> fresh.putProduct(ctx.getResultObject()));
+            serviceMapper.scanServicesForIndex(ctx -> fresh.putService(ctx.getResultObject()));
+            synchronized (writeLock) {
+                for (Consumer<Indexes> change : replay) {
+                    change.accept(fresh);
+                }
+                current = fresh;
+            }
+            logger.info("Search index built in {}ms: {} pets, {} products, {} services, {} merchants",
+                    System.currentTimeMillis() - start, fresh.pets.size(), fresh.products.size(),
+                    fresh.services.size(), fresh.merchants.size());
+        } catch (RuntimeException e) {
+            logger.error("Search index rebuild failed", e);
+        } finally {
+            synchronized (writeLock) {
+                replay = null;
+            }
+            rebuilding.set(false);
+        }
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    public List<Integer> searchPets(String keyword, String userId) {
+        Indexes indexes = current;
+        if (userId == null || userId.isEmpty()) {
+            return indexes.pets.search(keyword, id -> true);
+        }
+        // Same filter as the SQL: pets of the merchants registered with this phone
+        Set<Integer> merchantIds = indexes.merchantsByPhone.get(userId);
+        if (merchantIds == null || merchantIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return indexes.pets.search(keyword, id -> merchantIds.contains(indexes.petMerchant.get(id)));
+    }
+
+    public List<Integer> searchProducts(String keyword) {
+        return current.products.search(keyword, id -> true);
+    }
+
+    public List<Integer> searchServices(String keyword) {
+        return current.services.search(keyword, id -> true);
+    }
+
+    public List<Integer> searchMerchants(String keyword) {
+        return current.merchants.search(keyword, id -> true);
+    }
+
+    public void indexPet(Pet pet) {
+        write(indexes -> indexes.putPet(pet));
+    }
+
+    public void removePet(Integer id) {
+        write(indexes -> indexes.removePet(id));
+    }
+
+    public void indexProduct(Product product) {
+        write(indexes -> indexes.putProduct(product));
+    }
+
+    public void removeProduct(Integer id) {
+        write(indexes -> indexes.products.remove(id));
+    }
+
+    public void indexService(Service service) {
+        write(indexes -> indexes.putService(service));
+    }
+
+    public void removeService(Integer id) {
+        write(indexes -> indexes.services.remove(id));
+    }
+
+    public void indexMerchant(Merchant merchant) {
+        write(indexes -> indexes.putMerchant(merchant));
+    }
+
+    public void removeMerchant(Integer id) {
+        write(indexes -> indexes.removeMerchant(id));
+    }
+
+    /**
+     * Loads one page of a ranked id list by primary key and returns the rows in rank order.
+     */
+    public static <T> List<T> page(List<Integer> rankedIds, int offset, int limit,
+                                   Function<List<Integer>, List<T>> loader, Function<T, Integer> idOf) {
+        if (offset < 0 || offset >= rankedIds.size() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Integer> pageIds = rankedIds.subList(offset, Math.min(rankedIds.size(), offset + limit));
+        Map<Integer, T> byId = new HashMap<>();
+        for (T row : loader.apply(new ArrayList<>(pageIds))) {
+            byId.put(idOf.apply(row), row);
+        }
+        List<T> rows = new ArrayList<>(pageIds.size());
+        for (Integer id : pageIds) {
+            T row = byId.get(id);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private void write(Consumer<Indexes> change) {
+        synchronized (writeLock) {
+            Indexes indexes = current;
+            if (indexes != null) {
+                change.accept(indexes);
+            }
+            if (replay != null) {
+                replay.add(change);
+            }
+        }
+    }
+
+    private static final class Indexes {
+        final NgramIndex pets = new NgramIndex();
+        final NgramIndex products = new NgramIndex();
+        final NgramIndex services = new NgramIndex();
+        final NgramIndex merchants = new NgramIndex();
+
+        final Map<Integer, Integer> petMerchant = new ConcurrentHashMap<>();
+        final Map<Integer, String> merchantPhone = new ConcurrentHashMap<>();
+        final Map<String, Set<Integer>> merchantsByPhone = new ConcurrentHashMap<>();
+
+        void putPet(Pet pet) {
+            pets.put(pet.getId(), pet.getName(), pet.getBreed(), pet.getDescription());
+            if (pet.getMerchantId() != null) {
+                petMerchant.put(pet.getId(), pet.getMerchantId());
+            } else {
+                petMerchant.remove(pet.getId());
+            }
+        }
+
+        void removePet(Integer id) {
+            pets.remove(id);
+            petMerchant.remove(id);
+        }
+
+        void putProduct(Product product) {
+            products.put(product.getId(), product.getName(), product.getCategory());
+        }
+
+        void putService(Service service) {
+            services.put(service.getId(), service.getName(), service.getCategory(), service.getDescription());
+        }
+
+        void putMerchant(Merchant merchant) {
+            merchants.put(merchant.getId(), merchant.getName(), merchant.getAddress());
+            unlinkPhone(merchant.getId());
+            if (merchant.getPhone() != null) {
+                merchantPhone.put(merchant.getId(), merchant.getPhone());
+                merchantsByPhone.computeIfAbsent(merchant.getPhone(), p -> ConcurrentHashMap.newKeySet())
+                        .add(merchant.getId());
+            }
+        }
+
+        void removeMerchant(Integer id) {
+            merchants.remove(id);
+            unlinkPhone(id);
+        }
+
+        private void unlinkPhone(Integer merchantId) {
+            String phone = merchantPhone.remove(merchantId);
+            if (phone != null) {
+                merchantsByPhone.computeIfPresent(phone, (p, ids) -> {
+                    ids.remove(merchantId);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.tencent.wxcloudrun.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * 倒排索引 (character unigram + bigram postings)
+ * Chinese text has no word boundaries, so every single character and every pair of
+ * adjacent characters of a field is a term. A query is answered by intersecting the
+ * postings of its bigrams (or its one character) and then confirming the candidates
+ * with a substring check, which gives exactly the rows LIKE '%keyword%' would match.
+ *
+ * Reads run concurrently with single-document updates; a search may or may not see
+ * an update that happens while it runs.
+ */
+public class NgramIndex {
+
+    // Fields are joined with this character so no term or match spans two fields
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private final Map<String, Set<Integer>> postings = new ConcurrentHashMap<>();
+    private final Map<Integer, Doc> docs = new ConcurrentHashMap<>();
+
+    /**
+     * @param name   the field ranked highest (pet/product/service/merchant name)
+     * @param others further searchable fields, nulls allowed
+     */
+    public void put(int id, String name, String... others) {
+        StringBuilder text = new StringBuilder(normalize(name));
+        for (String other : others) {
+            text.append(FIELD_SEPARATOR).append(normalize(other));
+        }
+        Doc doc = new Doc(normalize(name), text.toString());
+        Doc previous = docs.put(id, doc);
+        if (previous != null) {
+            for (String term : terms(previous.text)) {
+                removePosting(term, id);
+            }
+        }
+        for (String term : terms(doc.text)) {
+            postings.computeIfAbsent(term, t -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    public void remove(int id) {
+        Doc previous = docs.remove(id);
+        if (previous != null) {
+            for (String term : terms(previous.text)) {
+                removePosting(term, id);
+            }
+        }
+    }
+
+    public int size() {
+        return docs.size();
+    }
+
+    /**
+     * @return ids of the matching documents, best first: exact name, name prefix, name
+     * substring, then other fields; equal scores keep newer (higher) ids first
+     */
+    public List<Integer> search(String keyword, IntPredicate filter) {
+        String query = normalize(keyword);
+        if (query.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Set<Integer>> lists = new ArrayList<>();
+        for (String term : queryTerms(query)) {
+            Set<Integer> posting = postings.get(term);
+            if (posting == null) {
+                return Collections.emptyList();
+            }
+            lists.add(posting);
+        }
+        Set<Integer> smallest = lists.get(0);
+        for (Set<Integer> posting : lists) {
+            if (posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+
+        List<long[]> scored = new ArrayList<>();
+        for (Integer id : smallest) {
+            if (!filter.test(id)) {
+                continue;
+            }
+            Doc doc = docs.get(id);
+            if (doc == null || !doc.text.contains(query)) {
+                continue;
+            }
+            scored.add(new long[]{score(doc, query), id});
+        }
+        scored.sort((a, b) -> a[0] != b[0] ? Long.compare(b[0], a[0]) : Long.compare(b[1], a[1]));
+
+        List<Integer> ids = new ArrayList<>(scored.size());
+        for (long[] entry : scored) {
+            ids.add((int) entry[1]);
+        }
+        return ids;
+    }
+
+    private static long score(Doc doc, String query) {
+        if (doc.name.equals(query)) {
+            return 100;
+        }
+        if (doc.name.startsWith(query)) {
+            return 50;
+        }
+        if (doc.name.contains(query)) {
+            return 20;
+        }
+        return 5;
+    }
+
+    private void removePosting(String term, int id) {
+        postings.computeIfPresent(term, (t, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == FIELD_SEPARATOR) {
+                continue;
+            }
+            terms.add(String.valueOf(c));
+            if (i + 1 < text.length() && text.charAt(i + 1) != FIELD_SEPARATOR) {
+                terms.add(text.substring(i, i + 2));
+            }
+        }
+        return terms;
+    }
+
+    private static Set<String> queryTerms(String query) {
+        if (query.length() == 1) {
+            return Collections.singleton(query);
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        for (int i = 0; i + 1 < query.length(); i++) {
+            terms.add(query.substring(i, i + 2));
+        }
+        return terms;
+    }
+
+    private static String normalize(String value) {
+        // MySQL's default collation compares case-insensitively
+        return value == null ? "" : value.replace(FIELD_SEPARATOR, ' ').toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Doc {
+        final String name;
+        final String text;
+
+        Doc(String name, String text) {
+            this.name = name;
+            this.text = text;
+        }
+    }
+}
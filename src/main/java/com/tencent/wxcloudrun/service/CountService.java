@@ -0,0 +1,19 @@
+package com.tencent.wxcloudrun.service;
+
+/**
+ * 列表总数统计 (filtered totals for the list endpoints)
+ * Counts are memoized per (entity, keyword, userId) for a short TTL and
+ * dropped whenever the entity is written.
+ */
+public interface CountService {
+    String PETS = "pets";
+    String PRODUCTS = "products";
+    String SERVICES = "services";
+    String MERCHANTS = "merchants";
+
+    int countPets(String keyword, String userId);
+    int countProducts(String keyword);
+    int countServices(String keyword);
+    int countMerchants(String keyword);
+    void invalidate(String entity);
+}
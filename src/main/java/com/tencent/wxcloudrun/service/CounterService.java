@@ -1,15 +1,24 @@
 package com.tencent.wxcloudrun.service;
 
-import com.tencent.wxcloudrun.model.Counter;
+/**
+ * 计数器引擎
+ * Increments are absorbed in memory and written to the Counters table in periodic
+ * count = count + delta flushes. Pass consistent = true to flush first and answer
+ * with the database value, which includes other instances' increments.
+ */
+public interface CounterService {
 
-import java.util.Optional;
-import java.util.List;
+  String DEFAULT = "default";
 
-public interface CounterService {
+  long get(String name, boolean consistent);
 
-  Optional<Counter> getCounter(Integer id);
+  long increment(String name, long delta, boolean consistent);
 
-  void upsertCount(Counter counter);
+  void clear(String name);
 
-  void clearCount(Integer id);
+  /**
+   * Writes every pending delta and refreshes the in-memory values.
+   * @return number of counters that had pending increments
+   */
+  int flush();
 }
@@ -0,0 +1,19 @@
+package com.tencent.wxcloudrun.service;
+
+import java.util.Map;
+
+/**
+ * 商家看板统计 (merchant dashboard)
+ * Backed by in-memory counters that the write paths keep up to date and that
+ * are periodically reconciled against the database.
+ */
+public interface DashboardService {
+    Map<String, Object> getStats();
+    void adjustPets(long delta);
+    void adjustProducts(long delta);
+    void adjustServices(long delta);
+    void onOrderCreated();
+    void onOrderChanged();
+    void onOrderDeleted();
+    void reconcile();
+}
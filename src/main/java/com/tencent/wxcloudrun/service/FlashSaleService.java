@@ -0,0 +1,34 @@
+package com.tencent.wxcloudrun.service;
+
+import com.tencent.wxcloudrun.dto.FlashSaleRequest;
+import com.tencent.wxcloudrun.model.OrderItem;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 秒杀
+ * While a product or pet is on flash sale its stock is held as in-memory tokens:
+ * purchases are admitted or rejected without touching MySQL and the admitted
+ * orders are written in batches in the background.
+ */
+public interface FlashSaleService {
+    Map<String, Object> startSale(FlashSaleRequest request);
+
+    /**
+     * Closes the sale, writes the orders still queued and returns unsold stock.
+     */
+    Map<String, Object> endSale(String itemType, Integer itemId);
+
+    List<Map<String, Object>> getSales();
+
+    /**
+     * @return the order number the admitted order will be stored under
+     * @throws IllegalStateException when the item is not on sale, sold out or already bought by this user
+     */
+    String buy(String itemType, Integer itemId, String userId, String addressSnapshot);
+
+    /**
+     * Regular checkout must not take stock that is being sold through a flash sale.
+     */
+    void ensureNotOnSale(List<OrderItem> items);
+}
@@ -0,0 +1,23 @@
+package com.tencent.wxcloudrun.service;
+
+import com.tencent.wxcloudrun.model.OrderItem;
+import java.util.List;
+
+/**
+ * 库存与销量
+ * Stock and sales only move through relative, conditional updates so concurrent
+ * checkouts never overwrite each other. Pet lines are not stocked and are ignored.
+ */
+public interface InventoryService {
+    /**
+     * Takes the items' quantities out of stock, all or nothing.
+     * @throws IllegalStateException if any product lacks stock; the caller's transaction must roll back
+     */
+    void reserve(List<OrderItem> items);
+
+    /** Puts the quantities of a cancelled order back into stock. */
+    void release(List<OrderItem> items);
+
+    /** Counts the quantities of a completed order as sales. */
+    void recordSales(List<OrderItem> items);
+}
@@ -1,5 +1,6 @@
 package com.tencent.wxcloudrun.service;
 
+import com.tencent.wxcloudrun.dto.CursorPage;
 import com.tencent.wxcloudrun.model.Merchant;
 import java.util.List;
 
@@ -7,7 +8,9 @@ public interface MerchantService {
     Merchant getMerchantById(Integer id);
     List<Merchant> getMerchants(int page, int size);
     List<Merchant> getMerchants(int page, int size, String keyword);
+    CursorPage<Merchant> getMerchantsAfter(String cursor, int size, String keyword);
     void createMerchant(Merchant merchant);
     void updateMerchant(Merchant merchant);
+    Merchant patchMerchant(Merchant patch);
     void deleteMerchant(Integer id);
 }
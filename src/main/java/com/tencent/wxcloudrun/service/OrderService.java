@@ -1,7 +1,14 @@
 package com.tencent.wxcloudrun.service;
 
+import com.tencent.wxcloudrun.dto.BatchOrderResult;
+import com.tencent.wxcloudrun.dto.BatchOrderUpdateRequest;
+import com.tencent.wxcloudrun.dto.CursorPage;
 import com.tencent.wxcloudrun.model.Order;
+import com.tencent.wxcloudrun.model.OrderStatusTotal;
+import com.tencent.wxcloudrun.model.OrderSummary;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface OrderService {
@@ -9,9 +16,14 @@ public interface OrderService {
     Optional<Order> getOrderByOrderNo(String orderNo);
     List<Order> getOrdersByUserId(String userId);
     List<Order> getOrdersByStatus(String userId, String status);
-    List<Order> getAllOrders();
+    List<Map<String, Object>> getBestSellers(int limit);
+    CursorPage<OrderSummary> getMerchantOrders(String status, LocalDate startDate, LocalDate endDate, String cursor, int size);
+    List<OrderStatusTotal> getMerchantOrderTotals(LocalDate startDate, LocalDate endDate); // per status, whole range
     void createOrder(Order order);
+    Order reservePet(Integer petId, String userId, String addressSnapshot); // 定金订单, books the pet until paid
     void updateOrderStatus(String orderNo, String status);
+    void updateOrderStatusById(Integer id, String status);
     void updateTrackingNumber(Integer id, String trackingNumber);
+    List<BatchOrderResult> batchUpdateOrders(List<BatchOrderUpdateRequest.Item> items);
     void deleteOrder(Integer id);
 }
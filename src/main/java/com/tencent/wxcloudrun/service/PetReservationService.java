@@ -0,0 +1,25 @@
+package com.tencent.wxcloudrun.service;
+
+import com.tencent.wxcloudrun.model.OrderItem;
+import com.tencent.wxcloudrun.model.OrderStatus;
+import java.util.List;
+
+/**
+ * 宠物预订 (available -> booked -> sold)
+ * A pet line of an order books the pet for that order with one conditional update;
+ * the order's later transitions confirm, complete or release the booking. Unpaid
+ * bookings expire after app.pet-reservation.hold-minutes.
+ */
+public interface PetReservationService {
+    /**
+     * Books the pets of a freshly inserted order (items must carry the order id).
+     * @throws IllegalStateException if a pet is no longer available; the caller's transaction must roll back
+     */
+    void reserve(List<OrderItem> items);
+
+    /** Applies a transition of the order that holds these pets. */
+    void onOrderStatusChanged(OrderStatus status, List<OrderItem> items);
+
+    /** Cancels unpaid deposit orders past their deadline and frees their pets. */
+    int expireReservations();
+}
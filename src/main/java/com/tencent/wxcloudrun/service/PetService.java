@@ -1,5 +1,6 @@
 package com.tencent.wxcloudrun.service;
 
+import com.tencent.wxcloudrun.dto.CursorPage;
 import com.tencent.wxcloudrun.model.Pet;
 import java.util.List;
 
@@ -7,8 +8,12 @@ public interface PetService {
     Pet getPetById(Integer id);
     List<Pet> getPets(int page, int size);
     List<Pet> getPets(int page, int size, String keyword, String userId);
+    CursorPage<Pet> getPetsAfter(String cursor, int size, String keyword, String userId);
     void createPet(Pet pet);
     void updatePet(Pet pet);
+    Pet patchPet(Pet patch);
+    boolean updatePetStatus(Integer id, String status);
     void deletePet(Integer id);
     Integer countPets();
+    String getListVersion(); // ETag token of the list endpoints
 }
@@ -1,5 +1,6 @@
 package com.tencent.wxcloudrun.service;
 
+import com.tencent.wxcloudrun.dto.CursorPage;
 import com.tencent.wxcloudrun.model.Product;
 import java.util.List;
 
@@ -7,8 +8,11 @@ public interface ProductService {
     Product getProductById(Integer id);
     List<Product> getProducts(int page, int size);
     List<Product> getProducts(int page, int size, String keyword);
+    CursorPage<Product> getProductsAfter(String cursor, int size, String keyword);
     void createProduct(Product product);
     void updateProduct(Product product);
+    Product patchProduct(Product patch);
     void deleteProduct(Integer id);
     Integer countProducts();
+    String getListVersion(); // ETag token of the list endpoints
 }
@@ -1,5 +1,6 @@
 package com.tencent.wxcloudrun.service;
 
+import com.tencent.wxcloudrun.dto.CursorPage;
 import com.tencent.wxcloudrun.model.Service;
 import java.util.List;
 
@@ -7,8 +8,11 @@ public interface ServiceService {
     Service getServiceById(Integer id);
     List<Service> getServices(int page, int size);
     List<Service> getServices(int page, int size, String keyword);
+    CursorPage<Service> getServicesAfter(String cursor, int size, String keyword);
     void createService(Service service);
     void updateService(Service service);
+    Service patchService(Service patch);
     void deleteService(Integer id);
     Integer countServices();
+    String getListVersion(); // ETag token of the list endpoints
 }
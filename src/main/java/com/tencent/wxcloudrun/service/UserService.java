@@ -4,6 +4,7 @@ import com.tencent.wxcloudrun.model.User;
 
 public interface UserService {
     User getUserByOpenId(String openid);
+    User getPrincipal(String openid); // cached, for authorization checks
     User getUserByPhone(String phone);
     User registerUser(User user);
     void updateUserRole(String openid, String role);
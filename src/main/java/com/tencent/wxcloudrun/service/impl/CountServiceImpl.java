@@ -0,0 +1,130 @@
+package com.tencent.wxcloudrun.service.impl;
+
+import com.tencent.wxcloudrun.dao.MerchantMapper;
+import com.tencent.wxcloudrun.dao.PetMapper;
+import com.tencent.wxcloudrun.dao.ProductMapper;
+import com.tencent.wxcloudrun.dao.ServiceMapper;
+import com.tencent.wxcloudrun.datasource.ReadRoute;
+import com.tencent.wxcloudrun.search.CatalogSearchIndex;
+import com.tencent.wxcloudrun.service.CountService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+@Service
+public class CountServiceImpl implements CountService {
+
+    @Autowired
+    private PetMapper petMapper;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ServiceMapper serviceMapper;
+
+    @Autowired
+    private MerchantMapper merchantMapper;
+
+    @Autowired
+    private CatalogSearchIndex searchIndex;
+
+    @Value("${app.count-cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${app.count-cache.max-entries:1000}")
+    private int maxEntries;
+
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+
+    // Bumped on every write; entries loaded under an older generation are stale
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    @Override
+    public int countPets(String keyword, String userId) {
+        if (useIndex(keyword)) {
+            return searchIndex.searchPets(keyword, userId).size();
+        }
+        return cached(PETS, keyword, userId, () -> petMapper.countSearchPets(keyword, userId));
+    }
+
+    @Override
+    public int countProducts(String keyword) {
+        if (useIndex(keyword)) {
+            return searchIndex.searchProducts(keyword).size();
+        }
+        return cached(PRODUCTS, keyword, null, () -> productMapper.countSearchProducts(keyword));
+    }
+
+    @Override
+    public int countServices(String keyword) {
+        if (useIndex(keyword)) {
+            return searchIndex.searchServices(keyword).size();
+        }
+        return cached(SERVICES, keyword, null, () -> serviceMapper.countSearchServices(keyword));
+    }
+
+    @Override
+    public int countMerchants(String keyword) {
+        if (useIndex(keyword)) {
+            return searchIndex.searchMerchants(keyword).size();
+        }
+        return cached(MERCHANTS, keyword, null, () -> merchantMapper.countSearchMerchants(keyword));
+    }
+
+    @Override
+    public void invalidate(String entity) {
+        generation(entity).incrementAndGet();
+        String prefix = entity + "|";
+        counts.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    // Keyword totals come straight from the search index once it is loaded
+    private boolean useIndex(String keyword) {
+        return keyword != null && !keyword.isEmpty() && searchIndex.isReady();
+    }
+
+    private int cached(String entity, String keyword, String userId, Supplier<Integer> loader) {
+        String key = entity + "|" + (keyword == null ? "" : keyword) + "|" + (userId == null ? "" : userId);
+        long generation = generation(entity).get();
+        long now = System.currentTimeMillis();
+
+        CachedCount cached = counts.get(key);
+        if (cached != null && cached.generation == generation && cached.expiresAt > now) {
+            return cached.value;
+        }
+
+        // Shared by every caller, so loaded from the primary even for a replica-routed list
+        Integer loaded = ReadRoute.onPrimary(loader);
+        int value = loaded == null ? 0 : loaded;
+        if (counts.size() >= maxEntries) {
+            counts.values().removeIf(c -> c.expiresAt <= now);
+            if (counts.size() >= maxEntries) {
+                counts.clear();
+            }
+        }
+        counts.put(key, new CachedCount(value, now + ttlMs, generation));
+        return value;
+    }
+
+    private AtomicLong generation(String entity) {
+        return generations.computeIfAbsent(entity, e -> new AtomicLong());
+    }
+
+    private static final class CachedCount {
+        final int value;
+        final long expiresAt;
+        final long generation;
+
+        CachedCount(int value, long expiresAt, long generation) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.generation = generation;
+        }
+    }
+}
@@ -3,33 +3,181 @@ package com.tencent.wxcloudrun.service.impl;
 import com.tencent.wxcloudrun.dao.CountersMapper;
 import com.tencent.wxcloudrun.model.Counter;
 import com.tencent.wxcloudrun.service.CounterService;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Optional;
-import java.util.List;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
 
 @Service
 public class CounterServiceImpl implements CounterService {
 
+  private static final Logger logger = LoggerFactory.getLogger(CounterServiceImpl.class);
+
+  private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.:-]{1,64}");
+
   final CountersMapper countersMapper;
+  final SqlSessionFactory sqlSessionFactory;
+  final TransactionTemplate transactionTemplate;
+
+  @Value("${app.counter.max-counters:1000}")
+  private int maxCounters;
+
+  private final Map<String, Cell> cells = new ConcurrentHashMap<>();
+
+  // Flushes, clears and consistent reads take turns, so a delta is never written twice
+  private final Object flushLock = new Object();
 
-  public CounterServiceImpl(@Autowired CountersMapper countersMapper) {
+  public CounterServiceImpl(@Autowired CountersMapper countersMapper,
+                            @Autowired SqlSessionFactory sqlSessionFactory,
+                            @Autowired PlatformTransactionManager transactionManager) {
     this.countersMapper = countersMapper;
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
   }
 
   @Override
-  public Optional<Counter> getCounter(Integer id) {
-    return Optional.ofNullable(countersMapper.getCounter(id));
+  public long get(String name, boolean consistent) {
+    Cell cell = cell(name);
+    if (consistent) {
+      synchronized (flushLock) {
+        flush(Collections.singletonMap(name, cell), true);
+      }
+    }
+    return cell.value();
   }
 
   @Override
-  public void upsertCount(Counter counter) {
-    countersMapper.upsertCount(counter);
+  public long increment(String name, long delta, boolean consistent) {
+    Cell cell = cell(name);
+    cell.added.add(delta);
+    if (consistent) {
+      synchronized (flushLock) {
+        flush(Collections.singletonMap(name, cell), true);
+      }
+    }
+    return cell.value();
   }
 
   @Override
-  public void clearCount(Integer id) {
-    countersMapper.clearCount(id);
+  public void clear(String name) {
+    Cell cell = cell(name);
+    synchronized (flushLock) {
+      // Everything counted so far is dropped along with the row
+      long total = cell.added.sum();
+      countersMapper.clearCount(name);
+      cell.flushed = total;
+      cell.base = -total;
+    }
+  }
+
+  @Override
+  @Scheduled(fixedDelayString = "${app.counter.flush-interval-ms:1000}")
+  public int flush() {
+    if (cells.isEmpty()) {
+      return 0;
+    }
+    synchronized (flushLock) {
+      return flush(cells, false);
+    }
+  }
+
+  // Pending increments would be lost with the JVM
+  @PreDestroy
+  public void flushOnShutdown() {
+    int flushed = flush();
+    logger.info("Flushed {} counters on shutdown", flushed);
+  }
+
+  /**
+   * One transaction of count = count + delta upserts, then one read of the stored
+   * values. If the write fails nothing is marked as flushed and the deltas are
+   * retried on the next run; a consistent caller gets the failure instead of a
+   * value that was never stored. Caller holds flushLock.
+   */
+  private int flush(Map<String, Cell> targets, boolean consistent) {
+    Map<String, Long> deltas = new HashMap<>();
+    for (Map.Entry<String, Cell> entry : targets.entrySet()) {
+      long delta = entry.getValue().added.sum() - entry.getValue().flushed;
+      if (delta != 0) {
+        deltas.put(entry.getKey(), delta);
+      }
+    }
+
+    if (!deltas.isEmpty()) {
+      try {
+        transactionTemplate.execute(status -> {
+          try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            CountersMapper batchMapper = session.getMapper(CountersMapper.class);
+            deltas.forEach(batchMapper::addCount);
+            session.flushStatements();
+          }
+          return null;
+        });
+      } catch (RuntimeException e) {
+        logger.error("Counter flush failed, {} counters will be retried", deltas.size(), e);
+        if (consistent) {
+          throw new IllegalStateException("Counter not saved yet, pending increments will be retried", e);
+        }
+        return 0;
+      }
+      deltas.forEach((name, delta) -> targets.get(name).flushed += delta);
+    }
+
+    // Pick up increments flushed by other instances; a missing row means it was cleared
+    Map<String, Long> stored = new HashMap<>();
+    for (Counter counter : countersMapper.getCountersByNames(targets.keySet())) {
+      stored.put(counter.getName(), counter.getCount().longValue());
+    }
+    targets.forEach((name, cell) -> cell.base = stored.getOrDefault(name, 0L) - cell.flushed);
+    return deltas.size();
+  }
+
+  private Cell cell(String name) {
+    if (name == null || !NAME.matcher(name).matches()) {
+      throw new IllegalArgumentException("Invalid counter name");
+    }
+    Cell cell = cells.get(name);
+    if (cell != null) {
+      return cell;
+    }
+    if (cells.size() >= maxCounters) {
+      throw new IllegalStateException("Too many counters");
+    }
+    Counter stored = countersMapper.getCounterByName(name);
+    Cell created = new Cell(stored == null ? 0 : stored.getCount());
+    cell = cells.putIfAbsent(name, created);
+    return cell != null ? cell : created;
+  }
+
+  private static final class Cell {
+    // Every increment taken by this instance; never reset, so no update can be lost to a reset
+    final LongAdder added = new LongAdder();
+    // Part of `added` already written to the database (guarded by flushLock)
+    long flushed;
+    // Stored count minus `flushed`, so that base + added = stored count + pending increments
+    volatile long base;
+
+    Cell(long base) {
+      this.base = base;
+    }
+
+    long value() {
+      return base + added.sum();
+    }
   }
 }
@@ -0,0 +1,132 @@
+package com.tencent.wxcloudrun.service.impl;
+
+import com.tencent.wxcloudrun.dao.OrderMapper;
+import com.tencent.wxcloudrun.dao.PetMapper;
+import com.tencent.wxcloudrun.dao.ProductMapper;
+import com.tencent.wxcloudrun.dao.ServiceMapper;
+import com.tencent.wxcloudrun.model.OrderSummary;
+import com.tencent.wxcloudrun.service.DashboardService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class DashboardServiceImpl implements DashboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardServiceImpl.class);
+
+    @Autowired
+    private PetMapper petMapper;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ServiceMapper serviceMapper;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Value("${app.dashboard.recent-orders:5}")
+    private int recentOrderLimit;
+
+    private final AtomicLong pets = new AtomicLong();
+    private final AtomicLong products = new AtomicLong();
+    private final AtomicLong services = new AtomicLong();
+    private final AtomicLong orders = new AtomicLong();
+    private final AtomicLong customers = new AtomicLong();
+
+    private final AtomicBoolean initialized = new AtomicBoolean(false);
+    private final AtomicBoolean recentOrdersStale = new AtomicBoolean(true);
+    private volatile List<OrderSummary> recentOrders;
+
+    @Override
+    public Map<String, Object> getStats() {
+        if (!initialized.get()) {
+            reconcile();
+        }
+        if (recentOrdersStale.getAndSet(false)) {
+            recentOrders = orderMapper.getRecentOrderSummaries(recentOrderLimit);
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pets", pets.get());
+        stats.put("products", products.get());
+        stats.put("services", services.get());
+        stats.put("orders", orders.get());
+        stats.put("customers", customers.get());
+        stats.put("recentOrders", recentOrders);
+        return stats;
+    }
+
+    @Override
+    public void adjustPets(long delta) {
+        TransactionHooks.afterCommit(() -> pets.addAndGet(delta));
+    }
+
+    @Override
+    public void adjustProducts(long delta) {
+        TransactionHooks.afterCommit(() -> products.addAndGet(delta));
+    }
+
+    @Override
+    public void adjustServices(long delta) {
+        TransactionHooks.afterCommit(() -> services.addAndGet(delta));
+    }
+
+    @Override
+    public void onOrderCreated() {
+        TransactionHooks.afterCommit(() -> {
+            orders.incrementAndGet();
+            recentOrdersStale.set(true);
+        });
+    }
+
+    @Override
+    public void onOrderChanged() {
+        TransactionHooks.afterCommit(() -> recentOrdersStale.set(true));
+    }
+
+    @Override
+    public void onOrderDeleted() {
+        TransactionHooks.afterCommit(() -> {
+            orders.decrementAndGet();
+            recentOrdersStale.set(true);
+        });
+    }
+
+    /**
+     * Resets the counters from the database. Writes made by other instances and the
+     * distinct customer count only show up here, so the counters are exact as of the
+     * last run and incrementally maintained in between.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${app.dashboard.reconcile-interval-ms:60000}",
+               initialDelayString = "${app.dashboard.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        try {
+            pets.set(nullToZero(petMapper.countPets()));
+            products.set(nullToZero(productMapper.countProducts()));
+            services.set(nullToZero(serviceMapper.countServices()));
+            orders.set(nullToZero(orderMapper.countOrders()));
+            customers.set(nullToZero(orderMapper.countDistinctCustomers()));
+            recentOrdersStale.set(true);
+            initialized.set(true);
+        } catch (Exception e) {
+            logger.error("Dashboard reconcile failed", e);
+        }
+    }
+
+    private static long nullToZero(Number n) {
+        return n == null ? 0 : n.longValue();
+    }
+}
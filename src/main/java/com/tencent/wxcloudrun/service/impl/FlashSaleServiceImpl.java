@@ -0,0 +1,737 @@
+package com.tencent.wxcloudrun.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tencent.wxcloudrun.cache.CacheRegistry;
+import com.tencent.wxcloudrun.cache.ReadThroughCache;
+import com.tencent.wxcloudrun.dao.FlashSaleMapper;
+import com.tencent.wxcloudrun.dao.OrderItemMapper;
+import com.tencent.wxcloudrun.dao.OrderMapper;
+import com.tencent.wxcloudrun.dao.PetMapper;
+import com.tencent.wxcloudrun.dto.FlashSaleRequest;
+import com.tencent.wxcloudrun.model.FlashSale;
+import com.tencent.wxcloudrun.model.Order;
+import com.tencent.wxcloudrun.model.OrderItem;
+import com.tencent.wxcloudrun.model.OrderStatus;
+import com.tencent.wxcloudrun.model.Pet;
+import com.tencent.wxcloudrun.model.Product;
+import com.tencent.wxcloudrun.service.DashboardService;
+import com.tencent.wxcloudrun.service.FlashSaleService;
+import com.tencent.wxcloudrun.service.InventoryService;
+import com.tencent.wxcloudrun.service.PetService;
+import com.tencent.wxcloudrun.service.ProductService;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tokens, buyers and the admission queue live in this instance only, so a sale must
+ * be started, bought and ended on the same instance (see app.flash-sale in
+ * application.yml). What the database needs to settle a sale after a crash is kept in
+ * flash_sales: the allotment taken from products.stock, how much of it became orders,
+ * and the instance holding the tokens with a lease it keeps renewing. Any instance
+ * settles an open sale whose lease has run out, returning its unsold allotment; the
+ * owner stops admitting buyers before its lease can run out unnoticed.
+ */
+@Service
+public class FlashSaleServiceImpl implements FlashSaleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlashSaleServiceImpl.class);
+
+    private static final long DEFAULT_DURATION_SECONDS = 3600;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private OrderNoGenerator orderNoGenerator;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CacheRegistry cacheRegistry;
+
+    @Autowired
+    private FlashSaleMapper flashSaleMapper;
+
+    @Value("${app.flash-sale.stripes:16}")
+    private int stripes;
+
+    @Value("${app.flash-sale.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.flash-sale.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    @Value("${app.flash-sale.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.flash-sale.lease-seconds:30}")
+    private long leaseSeconds;
+
+    @Value("${app.pet-reservation.hold-minutes:30}")
+    private long holdMinutes;
+
+    // Owner of the flash_sales rows started here; a restarted instance is a new owner, its tokens are gone
+    private final String instanceId = instanceId();
+
+    private final Map<String, Sale> sales = new ConcurrentHashMap<>();
+    private BlockingQueue<PendingOrder> queue;
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService persister;
+    private ReadThroughCache<Integer, Pet> petCache;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        petCache = cacheRegistry.cache(CacheRegistry.PETS);
+        // Bounded: admitted orders exist only here until written, so when the writer falls behind buyers are turned away
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        reconcileExpiredSales();
+        persister = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "flash-sale-persister");
+            t.setDaemon(true);
+            return t;
+        });
+        persister.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        persister.scheduleWithFixedDelay(this::endExpiredSales, 1, 1, TimeUnit.SECONDS);
+        long renewMs = Math.max(1000, TimeUnit.SECONDS.toMillis(leaseSeconds) / 3);
+        persister.scheduleWithFixedDelay(this::renewLeases, renewMs, renewMs, TimeUnit.MILLISECONDS);
+        persister.scheduleWithFixedDelay(this::reconcileExpiredSales, leaseSeconds, Math.max(1, leaseSeconds), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persister.shutdown();
+        // Admitted orders must not be lost on a normal shutdown
+        flushQuietly();
+    }
+
+    @Override
+    public Map<String, Object> startSale(FlashSaleRequest request) {
+        String type = request.getItemType();
+        Integer itemId = request.getItemId();
+        long durationMs = TimeUnit.SECONDS.toMillis(request.getDurationSeconds() == null
+                ? DEFAULT_DURATION_SECONDS : request.getDurationSeconds());
+
+        Sale sale;
+        if (OrderItem.TYPE_PRODUCT.equals(type)) {
+            Product product = productService.getProductById(itemId);
+            if (product == null) {
+                throw new IllegalArgumentException("Product not found");
+            }
+            if (request.getQuantity() == null) {
+                throw new IllegalArgumentException("quantity cannot be null");
+            }
+            int quantity = request.getQuantity();
+            sale = new Sale(type, itemId, product.getName(),
+                    request.getPrice() != null ? request.getPrice() : product.getPrice(),
+                    quantity, new StripedStock(quantity, stripes), System.currentTimeMillis() + durationMs);
+        } else if (OrderItem.TYPE_PET.equals(type)) {
+            Pet pet = petService.getPetById(itemId);
+            if (pet == null) {
+                throw new IllegalArgumentException("Pet not found");
+            }
+            if (!"available".equals(pet.getStatus())) {
+                throw new IllegalStateException("Pet is not available");
+            }
+            // A pet is bought through its deposit, like a regular pet order
+            sale = new Sale(type, itemId, pet.getName(),
+                    request.getPrice() != null ? request.getPrice() : pet.getDeposit(),
+                    1, new StripedStock(1, 1), System.currentTimeMillis() + durationMs);
+        } else {
+            throw new IllegalArgumentException("Unknown itemType: " + type);
+        }
+
+        if (sales.putIfAbsent(sale.key, sale) != null) {
+            throw new IllegalStateException("Item is already on flash sale");
+        }
+        FlashSale record = new FlashSale();
+        record.setItemType(type);
+        record.setItemId(itemId);
+        record.setAllotted(sale.allotted);
+        record.setEndsAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(sale.endsAt), ZoneId.systemDefault()));
+        record.setOwner(instanceId);
+        long leaseStart = System.currentTimeMillis();
+        try {
+            transactionTemplate.execute(status -> {
+                if (sale.isProduct()) {
+                    // The allotment leaves products.stock up front, so regular checkout can never sell it twice
+                    inventoryService.reserve(Collections.singletonList(stockLine(itemId, sale.allotted)));
+                }
+                flashSaleMapper.insertSale(record, leaseSeconds);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            sales.remove(sale.key);
+            throw e;
+        }
+        sale.id = record.getId();
+        sale.leaseValidUntil = leaseStart + TimeUnit.SECONDS.toMillis(leaseSeconds);
+        sale.open = true;
+        logger.info("Flash sale started for {} with {} units", sale.key, sale.allotted);
+        return sale.stats();
+    }
+
+    @Override
+    public Map<String, Object> endSale(String itemType, Integer itemId) {
+        Sale sale = sales.get(key(itemType, itemId));
+        if (sale == null) {
+            throw new IllegalArgumentException("No flash sale for this item");
+        }
+        return end(sale);
+    }
+
+    @Override
+    public List<Map<String, Object>> getSales() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Sale sale : sales.values()) {
+            list.add(sale.stats());
+        }
+        return list;
+    }
+
+    @Override
+    public String buy(String itemType, Integer itemId, String userId, String addressSnapshot) {
+        Sale sale = sales.get(key(itemType, itemId));
+        if (sale == null || !sale.open) {
+            throw new IllegalStateException("No flash sale for this item");
+        }
+        long now = System.currentTimeMillis();
+        if (now >= sale.endsAt) {
+            throw new IllegalStateException("Flash sale has ended");
+        }
+        if (now >= sale.leaseValidUntil) {
+            // Not renewed in time (database unreachable): another instance may settle the sale any moment
+            throw new IllegalStateException("Flash sale is busy, please try again");
+        }
+        if (!sale.buyers.add(userId)) {
+            throw new IllegalStateException("Already purchased in this flash sale");
+        }
+        if (!sale.stock.tryAcquire()) {
+            sale.buyers.remove(userId);
+            throw new IllegalStateException("Sold out");
+        }
+        String orderNo = orderNoGenerator.nextOrderNo();
+        if (!queue.offer(new PendingOrder(sale, orderNo, userId, addressSnapshot))) {
+            giveBack(sale, userId);
+            throw new IllegalStateException("Flash sale is busy, please try again");
+        }
+        sale.admitted.incrementAndGet();
+        return orderNo;
+    }
+
+    @Override
+    public void ensureNotOnSale(List<OrderItem> items) {
+        if (sales.isEmpty()) {
+            return;
+        }
+        for (OrderItem item : items) {
+            Sale sale = sales.get(key(item.getItemType(), item.getProductId()));
+            if (sale != null) {
+                throw new IllegalStateException(sale.name + " is on flash sale");
+            }
+        }
+    }
+
+    /**
+     * 结束秒杀并对账: closes admission, writes whatever is still queued and returns
+     * the unsold tokens to products.stock.
+     */
+    private Map<String, Object> end(Sale sale) {
+        synchronized (sale) {
+            if (!sale.open) {
+                return sale.stats();
+            }
+            sale.open = false;
+        }
+        flushQuietly();
+        int unsold;
+        synchronized (sale) {
+            unsold = sale.stock.drain();
+        }
+        try {
+            boolean closed = transactionTemplate.execute(status -> {
+                if (flashSaleMapper.closeSale(sale.id, unsold) == 0) {
+                    // Already settled by another instance after our lease ran out; it returned the stock
+                    return false;
+                }
+                if (unsold > 0 && sale.isProduct()) {
+                    inventoryService.release(Collections.singletonList(stockLine(sale.itemId, unsold)));
+                }
+                return true;
+            });
+            if (closed) {
+                sale.returned.addAndGet(unsold);
+            } else {
+                sale.lost = true;
+                logger.error("Flash sale {} was settled by another instance before it ended here", sale.key);
+            }
+        } catch (RuntimeException e) {
+            // The row stays open, so the next startup returns the allotment still unaccounted for
+            logger.error("Closing flash sale {} failed, {} unsold units are left for startup reconciliation", sale.key, unsold, e);
+        }
+        sales.remove(sale.key, sale);
+
+        int sold = sale.persisted.get();
+        if (sold + sale.returned.get() != sale.allotted) {
+            logger.warn("Flash sale {} does not balance: allotted {}, persisted {}, returned {}, queued {}",
+                    sale.key, sale.allotted, sold, sale.returned.get(), queue.size());
+        }
+        logger.info("Flash sale ended for {}: {} sold, {} returned", sale.key, sold, sale.returned.get());
+        return sale.stats();
+    }
+
+    /**
+     * 对账: an open sale whose lease ran out belongs to an instance that stopped (or
+     * lost the database) without ending it, together with its in-memory tokens and
+     * queued orders. Whatever of its allotment did not become an order goes back to
+     * products.stock. The row is re-read under lock, so a lease renewed or an order
+     * batch committed in the meantime is respected.
+     */
+    private void reconcileExpiredSales() {
+        List<FlashSale> expired;
+        try {
+            expired = flashSaleMapper.getExpiredSales();
+        } catch (RuntimeException e) {
+            logger.error("Could not look for flash sales whose lease expired", e);
+            return;
+        }
+        for (FlashSale candidate : expired) {
+            if (instanceId.equals(candidate.getOwner())) {
+                // Ours: settled by end(), or by another instance once this one stops renewing
+                continue;
+            }
+            try {
+                FlashSale settled = transactionTemplate.execute(status -> {
+                    FlashSale orphan = flashSaleMapper.lockExpiredSale(candidate.getId());
+                    if (orphan == null) {
+                        return null;
+                    }
+                    int unsettled = unsettled(orphan);
+                    flashSaleMapper.closeSale(orphan.getId(), unsettled);
+                    if (unsettled > 0 && OrderItem.TYPE_PRODUCT.equals(orphan.getItemType())) {
+                        inventoryService.release(Collections.singletonList(stockLine(orphan.getItemId(), unsettled)));
+                    }
+                    return orphan;
+                });
+                if (settled != null) {
+                    logger.warn("Flash sale {} for {} lost its owner {}: {} sold, {} units returned to stock",
+                            settled.getId(), key(settled.getItemType(), settled.getItemId()), settled.getOwner(),
+                            settled.getSold(), unsettled(settled));
+                }
+            } catch (RuntimeException e) {
+                logger.error("Reconciling flash sale {} failed", candidate.getId(), e);
+            }
+        }
+    }
+
+    private static int unsettled(FlashSale sale) {
+        return Math.max(0, sale.getAllotted() - sale.getSold() - sale.getReturned());
+    }
+
+    /**
+     * Extends the lease of every open sale. A sale whose row is no longer open and ours
+     * was settled by another instance: its tokens are dropped without touching stock.
+     */
+    private void renewLeases() {
+        for (Sale sale : sales.values()) {
+            if (!sale.open) {
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            try {
+                if (flashSaleMapper.renewLease(sale.id, instanceId, leaseSeconds) == 1) {
+                    sale.leaseValidUntil = start + TimeUnit.SECONDS.toMillis(leaseSeconds);
+                } else {
+                    lose(sale);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Renewing the lease of flash sale {} failed; admission stops when it runs out", sale.key, e);
+            }
+        }
+    }
+
+    private void lose(Sale sale) {
+        synchronized (sale) {
+            if (!sale.open) {
+                return;
+            }
+            sale.open = false;
+            sale.lost = true;
+            sale.stock.drain();
+        }
+        sales.remove(sale.key, sale);
+        logger.error("Flash sale {} was settled by another instance; {} admitted orders not yet written are dropped",
+                sale.key, sale.admitted.get() - sale.persisted.get());
+    }
+
+    private void endExpiredSales() {
+        long now = System.currentTimeMillis();
+        for (Sale sale : sales.values()) {
+            if (sale.open && now >= sale.endsAt) {
+                try {
+                    end(sale);
+                } catch (RuntimeException e) {
+                    logger.error("Ending flash sale {} failed", sale.key, e);
+                }
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Flash sale flush failed", e);
+        }
+    }
+
+    // One drainer at a time: the persister thread, or a caller ending a sale
+    private synchronized void flush() {
+        List<PendingOrder> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                persist(batch);
+            } catch (RuntimeException e) {
+                logger.error("Persisting {} flash sale orders failed, returning their stock", batch.size(), e);
+                for (PendingOrder pending : batch) {
+                    giveBack(pending.sale, pending.userId);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes a batch of admitted orders in one transaction: the orders as one JDBC
+     * batch, their items as one multi-row insert and, for pets, the conditional
+     * available -> booked update.
+     */
+    private void persist(List<PendingOrder> admitted) {
+        List<PendingOrder> batch = new ArrayList<>(admitted.size());
+        List<PendingOrder> rejected = new ArrayList<>();
+        transactionTemplate.execute(status -> {
+            // Locked until commit: a sale being settled waits for these orders to count,
+            // and one already settled by another instance takes no more
+            Set<Integer> saleIds = new HashSet<>();
+            for (PendingOrder pending : admitted) {
+                saleIds.add(pending.sale.id);
+            }
+            Set<Integer> owned = new HashSet<>(flashSaleMapper.lockOwnedSales(new ArrayList<>(saleIds), instanceId));
+            batch.clear();
+            for (PendingOrder pending : admitted) {
+                if (owned.contains(pending.sale.id)) {
+                    batch.add(pending);
+                } else {
+                    lose(pending.sale);
+                }
+            }
+            if (batch.isEmpty()) {
+                return null;
+            }
+            try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+                OrderMapper orderMapper = session.getMapper(OrderMapper.class);
+                List<Order> orders = new ArrayList<>(batch.size());
+                for (PendingOrder pending : batch) {
+                    Order order = toOrder(pending);
+                    orderMapper.createOrder(order);
+                    orders.add(order);
+                }
+                // Generated ids are filled in when the batch is flushed
+                session.flushStatements();
+
+                List<OrderItem> items = new ArrayList<>(batch.size());
+                List<PendingOrder> petOrders = new ArrayList<>();
+                List<Integer> petOrderIds = new ArrayList<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    PendingOrder pending = batch.get(i);
+                    OrderItem item = orderItem(pending.sale, 1);
+                    item.setOrderId(orders.get(i).getId());
+                    items.add(item);
+                    if (!pending.sale.isProduct()) {
+                        petOrders.add(pending);
+                        petOrderIds.add(item.getOrderId());
+                    }
+                }
+                session.getMapper(OrderItemMapper.class).batchInsert(items);
+                session.flushStatements();
+
+                if (!petOrders.isEmpty()) {
+                    PetMapper petMapper = session.getMapper(PetMapper.class);
+                    LocalDateTime until = LocalDateTime.now().plusMinutes(holdMinutes);
+                    for (int i = 0; i < petOrders.size(); i++) {
+                        petMapper.reservePet(petOrders.get(i).sale.itemId, petOrderIds.get(i), until);
+                    }
+                    List<Integer> unknown = new ArrayList<>();
+                    int n = 0;
+                    for (BatchResult result : session.flushStatements()) {
+                        for (int count : result.getUpdateCounts()) {
+                            if (count == Statement.SUCCESS_NO_INFO) {
+                                unknown.add(n);
+                            } else if (count <= 0) {
+                                rejected.add(petOrders.get(n));
+                            }
+                            n++;
+                        }
+                    }
+                    if (!unknown.isEmpty()) {
+                        // No per-row count from the driver: the pet is ours if it now points at our order
+                        List<Integer> petIds = new ArrayList<>(unknown.size());
+                        for (Integer i : unknown) {
+                            petIds.add(petOrders.get(i).sale.itemId);
+                        }
+                        Map<Integer, Integer> holders = new HashMap<>();
+                        for (Pet pet : petMapper.getPetsByIds(petIds)) {
+                            holders.put(pet.getId(), pet.getReservedOrderId());
+                        }
+                        for (Integer i : unknown) {
+                            if (!petOrderIds.get(i).equals(holders.get(petOrders.get(i).sale.itemId))) {
+                                rejected.add(petOrders.get(i));
+                            }
+                        }
+                    }
+                    // Sold through another channel meanwhile; the order is kept but cancelled
+                    for (PendingOrder pending : rejected) {
+                        orderMapper.transitionOrderStatus(pending.orderNo, OrderStatus.CANCELLED.getValue(),
+                                OrderStatus.CANCELLED.predecessorValues());
+                    }
+                    session.flushStatements();
+                }
+
+                // Counted in the same transaction as the orders, for startup reconciliation
+                Map<Sale, Integer> sold = new HashMap<>();
+                for (PendingOrder pending : batch) {
+                    if (!rejected.contains(pending)) {
+                        sold.merge(pending.sale, 1, Integer::sum);
+                    }
+                }
+                FlashSaleMapper saleMapper = session.getMapper(FlashSaleMapper.class);
+                for (Map.Entry<Sale, Integer> entry : sold.entrySet()) {
+                    saleMapper.addSold(entry.getKey().id, entry.getValue());
+                }
+                session.flushStatements();
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                dashboardService.onOrderCreated();
+            }
+            return null;
+        });
+        for (PendingOrder pending : batch) {
+            pending.sale.persisted.incrementAndGet();
+        }
+        for (PendingOrder pending : rejected) {
+            pending.sale.persisted.decrementAndGet();
+            pending.sale.returned.incrementAndGet();
+        }
+        for (PendingOrder pending : batch) {
+            if (!pending.sale.isProduct()) {
+                petCache.invalidate(pending.sale.itemId);
+            }
+        }
+    }
+
+    /**
+     * A token whose order could not be written goes back on sale, or back to
+     * products.stock once the sale has closed.
+     */
+    private void giveBack(Sale sale, String userId) {
+        sale.buyers.remove(userId);
+        synchronized (sale) {
+            if (sale.open) {
+                sale.stock.release();
+                return;
+            }
+            if (sale.lost) {
+                // Its whole allotment was already settled by whoever closed the row
+                return;
+            }
+        }
+        transactionTemplate.execute(status -> {
+            if (sale.isProduct()) {
+                inventoryService.release(Collections.singletonList(stockLine(sale.itemId, 1)));
+            }
+            flashSaleMapper.addReturned(sale.id, 1);
+            return null;
+        });
+        sale.returned.incrementAndGet();
+    }
+
+    private Order toOrder(PendingOrder pending) {
+        Sale sale = pending.sale;
+        Order order = new Order();
+        order.setOrderNo(pending.orderNo);
+        order.setUserId(pending.userId);
+        order.setTotalAmount(sale.price);
+        order.setStatus(OrderStatus.PENDING.getValue());
+        order.setAddressSnapshot(pending.addressSnapshot);
+        order.setItemsJson(sale.itemsJson);
+        return order;
+    }
+
+    private String itemsJson(Sale sale) {
+        // Same shape the mini-program sends, so order views need no special case
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("id", sale.itemId);
+        line.put("name", sale.name);
+        line.put("price", sale.price);
+        line.put("quantity", 1);
+        line.put("type", sale.itemType);
+        try {
+            return objectMapper.writeValueAsString(Collections.singletonList(line));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static OrderItem orderItem(Sale sale, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setItemType(sale.itemType);
+        item.setProductId(sale.itemId);
+        item.setProductName(sale.name);
+        item.setPrice(sale.price);
+        item.setQuantity(quantity);
+        item.setAmount(sale.price.multiply(BigDecimal.valueOf(quantity)));
+        return item;
+    }
+
+    private static OrderItem stockLine(Integer productId, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setItemType(OrderItem.TYPE_PRODUCT);
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private static String instanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private static String key(String itemType, Integer itemId) {
+        return itemType + ":" + itemId;
+    }
+
+    private final class Sale {
+        Integer id; // flash_sales.id, set before the sale opens
+        final String key;
+        final String itemType;
+        final Integer itemId;
+        final String name;
+        final BigDecimal price;
+        final int allotted;
+        final StripedStock stock;
+        final long endsAt;
+        final String itemsJson;
+        final Set<String> buyers = ConcurrentHashMap.newKeySet();
+        final AtomicInteger admitted = new AtomicInteger();
+        final AtomicInteger persisted = new AtomicInteger();
+        final AtomicInteger returned = new AtomicInteger();
+        volatile boolean open; // once its flash_sales row and allotment are committed
+        volatile boolean lost; // settled by another instance after the lease ran out
+        volatile long leaseValidUntil;
+
+        Sale(String itemType, Integer itemId, String name, BigDecimal price, int allotted,
+             StripedStock stock, long endsAt) {
+            this.key = key(itemType, itemId);
+            this.itemType = itemType;
+            this.itemId = itemId;
+            this.name = name;
+            this.price = price;
+            this.allotted = allotted;
+            this.stock = stock;
+            this.endsAt = endsAt;
+            this.itemsJson = itemsJson(this);
+        }
+
+        boolean isProduct() {
+            return OrderItem.TYPE_PRODUCT.equals(itemType);
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("itemType", itemType);
+            stats.put("itemId", itemId);
+            stats.put("name", name);
+            stats.put("price", price);
+            stats.put("open", open);
+            stats.put("endsAt", endsAt);
+            stats.put("allotted", allotted);
+            stats.put("remaining", stock.remaining());
+            stats.put("admitted", admitted.get());
+            stats.put("persisted", persisted.get());
+            stats.put("returned", returned.get());
+            return stats;
+        }
+    }
+
+    private static final class PendingOrder {
+        final Sale sale;
+        final String orderNo;
+        final String userId;
+        final String addressSnapshot;
+
+        PendingOrder(Sale sale, String orderNo, String userId, String addressSnapshot) {
+            this.sale = sale;
+            this.orderNo = orderNo;
+            this.userId = userId;
+            this.addressSnapshot = addressSnapshot;
+        }
+    }
+}
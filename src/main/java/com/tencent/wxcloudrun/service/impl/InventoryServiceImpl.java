@@ -0,0 +1,126 @@
+package com.tencent.wxcloudrun.service.impl;
+
+import com.tencent.wxcloudrun.cache.CacheRegistry;
+import com.tencent.wxcloudrun.cache.ReadThroughCache;
+import com.tencent.wxcloudrun.dao.ProductMapper;
+import com.tencent.wxcloudrun.model.OrderItem;
+import com.tencent.wxcloudrun.model.Product;
+import com.tencent.wxcloudrun.service.InventoryService;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+@Service
+public class InventoryServiceImpl implements InventoryService {
+
+    final SqlSessionFactory sqlSessionFactory;
+    final ProductMapper productMapper;
+    final ReadThroughCache<Integer, Product> productCache;
+
+    @Autowired
+    public InventoryServiceImpl(SqlSessionFactory sqlSessionFactory, ProductMapper productMapper,
+                                CacheRegistry cacheRegistry) {
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.productMapper = productMapper;
+        this.productCache = cacheRegistry.cache(CacheRegistry.PRODUCTS);
+    }
+
+    /**
+     * Checks the stock of the locked rows first: with rewriteBatchedStatements the
+     * driver reports SUCCESS_NO_INFO for each update of a larger batch, so the update
+     * counts alone cannot tell a reservation from a shortfall.
+     */
+    @Override
+    @Transactional
+    public void reserve(List<OrderItem> items) {
+        SortedMap<Integer, Integer> quantities = quantitiesByProduct(items);
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Map<Integer, Integer> stocks = new HashMap<>();
+        for (Product product : productMapper.lockProductStocks(new ArrayList<>(quantities.keySet()))) {
+            stocks.put(product.getId(), product.getStock());
+        }
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            Integer stock = stocks.get(entry.getKey());
+            if (stock == null || stock < entry.getValue()) {
+                throw new IllegalStateException("Insufficient stock for product " + entry.getKey());
+            }
+        }
+        List<Integer> counts = apply(quantities, ProductMapper::reserveStock);
+        int i = 0;
+        for (Integer productId : quantities.keySet()) {
+            // Cannot miss while the rows are locked; kept as a guard on the conditional update
+            if (counts.get(i++) == 0) {
+                throw new IllegalStateException("Insufficient stock for product " + productId);
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    public void release(List<OrderItem> items) {
+        apply(quantitiesByProduct(items), ProductMapper::releaseStock);
+    }
+
+    @Override
+    @Transactional
+    public void recordSales(List<OrderItem> items) {
+        apply(quantitiesByProduct(items), ProductMapper::addSales);
+    }
+
+    /**
+     * One conditional update per product, sent as a single JDBC batch on the
+     * transaction's connection. Rows are always locked in ascending id order,
+     * so two checkouts touching the same products cannot deadlock. A count may be
+     * SUCCESS_NO_INFO when the driver rewrites the batch.
+     *
+     * @return update counts in the map's (ascending id) order
+     */
+    private List<Integer> apply(SortedMap<Integer, Integer> quantities, Updater updater) {
+        List<Integer> counts = new ArrayList<>(quantities.size());
+        if (quantities.isEmpty()) {
+            return counts;
+        }
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            ProductMapper mapper = session.getMapper(ProductMapper.class);
+            for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                updater.apply(mapper, entry.getKey(), entry.getValue());
+            }
+            for (BatchResult batch : session.flushStatements()) {
+                for (int count : batch.getUpdateCounts()) {
+                    counts.add(count);
+                }
+            }
+        }
+        TransactionHooks.afterCommit(() -> quantities.keySet().forEach(productCache::invalidate));
+        return counts;
+    }
+
+    private static SortedMap<Integer, Integer> quantitiesByProduct(List<OrderItem> items) {
+        SortedMap<Integer, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : items) {
+            if (OrderItem.TYPE_PRODUCT.equals(item.getItemType()) && item.getProductId() != null
+                    && item.getQuantity() != null && item.getQuantity() > 0) {
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        return quantities;
+    }
+
+    @FunctionalInterface
+    private interface Updater {
+        int apply(ProductMapper mapper, Integer productId, int quantity);
+    }
+}
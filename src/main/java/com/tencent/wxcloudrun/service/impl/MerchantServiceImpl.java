@@ -1,11 +1,21 @@
 package com.tencent.wxcloudrun.service.impl;
 
+import com.tencent.wxcloudrun.cache.CacheRegistry;
+import com.tencent.wxcloudrun.cache.ReadThroughCache;
 import com.tencent.wxcloudrun.dao.MerchantMapper;
+import com.tencent.wxcloudrun.datasource.ReadFromReplica;
+import com.tencent.wxcloudrun.dto.CursorPage;
+import com.tencent.wxcloudrun.dto.PageCursor;
 import com.tencent.wxcloudrun.model.Merchant;
+import com.tencent.wxcloudrun.search.CatalogSearchIndex;
+import com.tencent.wxcloudrun.service.CountService;
 import com.tencent.wxcloudrun.service.MerchantService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 @Service
 public class MerchantServiceImpl implements MerchantService {
@@ -13,35 +23,106 @@ public class MerchantServiceImpl implements MerchantService {
     @Autowired
     private MerchantMapper merchantMapper;
 
+    @Autowired
+    private CountService countService;
+
+    @Autowired
+    private CacheRegistry cacheRegistry;
+
+    @Autowired
+    private CatalogSearchIndex searchIndex;
+
+    private ReadThroughCache<Integer, Merchant> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = cacheRegistry.cache(CacheRegistry.MERCHANTS);
+    }
+
     @Override
     public Merchant getMerchantById(Integer id) {
         return merchantMapper.getMerchantById(id);
     }
 
     @Override
+    @ReadFromReplica
     public List<Merchant> getMerchants(int page, int size) {
         int offset = (page - 1) * size;
         return merchantMapper.getMerchants(offset, size);
     }
     
     @Override
+    @ReadFromReplica
     public List<Merchant> getMerchants(int page, int size, String keyword) {
         int offset = (page - 1) * size;
+        if (keyword != null && !keyword.isEmpty() && searchIndex.isReady()) {
+            return CatalogSearchIndex.page(searchIndex.searchMerchants(keyword), offset, size, merchantMapper::getMerchantsByIds, Merchant::getId);
+        }
         return merchantMapper.searchMerchants(offset, size, keyword);
     }
 
+    @Override
+    @ReadFromReplica
+    public CursorPage<Merchant> getMerchantsAfter(String cursor, int size, String keyword) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<Merchant> merchants = after == null
+                ? merchantMapper.searchMerchantsAfter(size, keyword, null, null)
+                : merchantMapper.searchMerchantsAfter(size, keyword, after.keyAsDecimal(), after.getId());
+        return CursorPage.of(merchants, size, m -> PageCursor.encode(m.getRating(), m.getId()));
+    }
+
     @Override
     public void createMerchant(Merchant merchant) {
         merchantMapper.createMerchant(merchant);
+        searchIndex.indexMerchant(merchant);
+        countService.invalidate(CountService.MERCHANTS);
     }
 
     @Override
     public void updateMerchant(Merchant merchant) {
         merchantMapper.updateMerchant(merchant);
+        searchIndex.indexMerchant(merchant);
+        cache.invalidate(merchant.getId());
+        countService.invalidate(CountService.MERCHANTS);
+        // The pet search filters by merchant phone
+        countService.invalidate(CountService.PETS);
+    }
+
+    @Override
+    public Merchant patchMerchant(Merchant patch) {
+        if (isEmpty(patch)) {
+            throw new IllegalArgumentException("Nothing to update");
+        }
+        int updated = merchantMapper.patchMerchant(patch, patch.getUpdatedAt());
+        Merchant current = merchantMapper.getMerchantById(patch.getId());
+        if (current == null) {
+            throw new NoSuchElementException("Merchant not found");
+        }
+        if (updated == 0) {
+            throw new IllegalStateException("Merchant was modified by someone else, reload and retry");
+        }
+        searchIndex.indexMerchant(current);
+        cache.invalidate(current.getId());
+        countService.invalidate(CountService.MERCHANTS);
+        // The pet search filters by merchant phone
+        countService.invalidate(CountService.PETS);
+        return current;
     }
 
     @Override
     public void deleteMerchant(Integer id) {
         merchantMapper.deleteMerchant(id);
+        countService.invalidate(CountService.MERCHANTS);
+        countService.invalidate(CountService.PETS);
+        cache.invalidate(id);
+        searchIndex.removeMerchant(id);
+    }
+
+    private static boolean isEmpty(Merchant patch) {
+        return patch.getName() == null
+                && patch.getPhone() == null
+                && patch.getAddress() == null
+                && patch.getLogo() == null
+                && patch.getRating() == null;
     }
 }
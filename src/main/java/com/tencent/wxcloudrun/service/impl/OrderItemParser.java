@@ -0,0 +1,121 @@
+package com.tencent.wxcloudrun.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tencent.wxcloudrun.model.OrderItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the itemsJson sent by the mini-program into order_items rows.
+ * Cart items use id/name/quantity, older clients send count; pet deposits carry type "pet".
+ */
+@Component
+public class OrderItemParser {
+
+    private static final int MAX_ITEMS = 200;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public OrderItemParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public List<OrderItem> parse(String itemsJson) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(itemsJson);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid itemsJson");
+        }
+        if (root == null || !root.isArray()) {
+            throw new IllegalArgumentException("itemsJson must be an array");
+        }
+        if (root.size() > MAX_ITEMS) {
+            throw new IllegalArgumentException("Too many items in order");
+        }
+
+        List<OrderItem> items = new ArrayList<>(root.size());
+        for (JsonNode node : root) {
+            JsonNode id = first(node, "productId", "id");
+            JsonNode price = node.get("price");
+            if (price == null || !isDecimal(price)) {
+                throw new IllegalArgumentException("Order item price is missing");
+            }
+            JsonNode qty = first(node, "quantity", "count");
+            Integer quantity = qty == null ? Integer.valueOf(1) : toQuantity(qty);
+            BigDecimal unitPrice = new BigDecimal(price.asText());
+            if (quantity == null || quantity <= 0 || unitPrice.signum() < 0) {
+                throw new IllegalArgumentException("Invalid order item quantity or price");
+            }
+
+            OrderItem item = new OrderItem();
+            item.setItemType(OrderItem.TYPE_PET.equals(node.path("type").asText()) ? OrderItem.TYPE_PET : OrderItem.TYPE_PRODUCT);
+            item.setProductId(toInteger(id));
+            JsonNode name = first(node, "productName", "name");
+            item.setProductName(name == null ? null : name.asText());
+            item.setPrice(unitPrice);
+            item.setQuantity(quantity);
+            item.setAmount(unitPrice.multiply(BigDecimal.valueOf(quantity)));
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static JsonNode first(JsonNode node, String... names) {
+        for (String name : names) {
+            JsonNode value = node.get(name);
+            if (value != null && !value.isNull()) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static Integer toInteger(JsonNode node) {
+        if (node == null) {
+            return null;
+        }
+        if (node.canConvertToInt()) {
+            return node.asInt();
+        }
+        try {
+            return Integer.valueOf(node.asText().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Whole numbers only, as JSON numbers or digit strings; "2.5" or "abc" is not coerced
+    private static Integer toQuantity(JsonNode node) {
+        if (node.isIntegralNumber()) {
+            return node.canConvertToInt() ? node.asInt() : null;
+        }
+        if (!node.isTextual()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(node.asText().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean isDecimal(JsonNode node) {
+        if (node.isNumber()) {
+            return true;
+        }
+        try {
+            new BigDecimal(node.asText());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
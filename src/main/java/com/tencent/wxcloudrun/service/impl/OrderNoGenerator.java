@@ -0,0 +1,120 @@
+package com.tencent.wxcloudrun.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单号生成器 (Snowflake layout)
+ * 41 bits of milliseconds since 2024-01-01, 10 bits of worker id, 12 bits of sequence.
+ * The last (timestamp, sequence) pair lives in one AtomicLong and is advanced with CAS,
+ * so ids are unique per worker without locking.
+ */
+@Component
+public class OrderNoGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderNoGenerator.class);
+
+    public static final String PREFIX = "ORD";
+
+    private static final long EPOCH = 1704038400000L; // 2024-01-01T00:00:00+08:00
+    private static final int WORKER_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_WORKER_ID = (1L << WORKER_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long workerId;
+    private final long maxBackwardMs;
+
+    // (timestamp << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong state = new AtomicLong();
+
+    public OrderNoGenerator(long workerId, long maxBackwardMs) {
+        this(workerId, maxBackwardMs, false);
+    }
+
+    /**
+     * @param workerId        0-1023, must differ between instances; negative derives one from the host name
+     * @param maxBackwardMs   how far the clock may step back before generation fails instead of
+     *                        continuing on logical time
+     * @param requireWorkerId fail startup instead of deriving a worker id that may collide
+     */
+    @Autowired
+    public OrderNoGenerator(@Value("${app.order-no.worker-id:-1}") long workerId,
+                            @Value("${app.order-no.max-backward-ms:5000}") long maxBackwardMs,
+                            @Value("${app.order-no.require-worker-id:false}") boolean requireWorkerId) {
+        if (workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("worker id must be between 0 and " + MAX_WORKER_ID);
+        }
+        if (workerId < 0 && requireWorkerId) {
+            throw new IllegalStateException("app.order-no.worker-id (ORDER_NO_WORKER_ID) is required: "
+                    + "set a value 0-" + MAX_WORKER_ID + " that is unique per instance");
+        }
+        this.workerId = workerId < 0 ? hostWorkerId() : workerId;
+        this.maxBackwardMs = maxBackwardMs;
+        logger.info("Order number worker id {}", this.workerId);
+    }
+
+    public String nextOrderNo() {
+        return PREFIX + nextId();
+    }
+
+    public long nextId() {
+        while (true) {
+            long prev = state.get();
+            long lastTs = prev >>> SEQUENCE_BITS;
+            long now = System.currentTimeMillis() - EPOCH;
+
+            long ts;
+            long seq;
+            if (now > lastTs) {
+                ts = now;
+                seq = 0;
+            } else if (lastTs - now > maxBackwardMs) {
+                throw new IllegalStateException("Clock moved backwards by " + (lastTs - now) + "ms");
+            } else {
+                // Same millisecond, or the clock stepped back a little: keep counting on logical time
+                seq = (prev & SEQUENCE_MASK) + 1;
+                ts = lastTs;
+                if (seq > SEQUENCE_MASK) {
+                    if (lastTs > now) {
+                        // Already running ahead of the wall clock; wait for it instead of drifting further
+                        Thread.yield();
+                        continue;
+                    }
+                    ts = lastTs + 1;
+                    seq = 0;
+                }
+            }
+
+            if (state.compareAndSet(prev, (ts << SEQUENCE_BITS) | seq)) {
+                return (ts << (WORKER_BITS + SEQUENCE_BITS)) | (workerId << SEQUENCE_BITS) | seq;
+            }
+        }
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    private static long hostWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = String.valueOf(System.nanoTime());
+        }
+        long workerId = (host.hashCode() & Integer.MAX_VALUE) % (MAX_WORKER_ID + 1);
+        // A hash of 1024 buckets: two instances can land on the same id and then hand out duplicate order numbers
+        logger.warn("app.order-no.worker-id not set, using worker id {} hashed from host name {}. "
+                + "Instances with colliding ids generate duplicate order numbers; set ORDER_NO_WORKER_ID "
+                + "per instance (and ORDER_NO_REQUIRE_WORKER_ID=true) in production", workerId, host);
+        return workerId;
+    }
+}
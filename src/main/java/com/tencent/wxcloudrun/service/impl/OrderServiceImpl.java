@@ -1,13 +1,51 @@
 package com.tencent.wxcloudrun.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tencent.wxcloudrun.dao.OrderItemMapper;
 import com.tencent.wxcloudrun.dao.OrderMapper;
+import com.tencent.wxcloudrun.dto.BatchOrderResult;
+import com.tencent.wxcloudrun.dto.BatchOrderUpdateRequest;
+import com.tencent.wxcloudrun.dto.CursorPage;
+import com.tencent.wxcloudrun.dto.PageCursor;
 import com.tencent.wxcloudrun.model.Order;
+import com.tencent.wxcloudrun.model.OrderItem;
+import com.tencent.wxcloudrun.model.OrderStatusTotal;
+import com.tencent.wxcloudrun.model.OrderSummary;
+import com.tencent.wxcloudrun.model.Pet;
+import com.tencent.wxcloudrun.service.DashboardService;
+import com.tencent.wxcloudrun.service.FlashSaleService;
+import com.tencent.wxcloudrun.service.InventoryService;
 import com.tencent.wxcloudrun.service.OrderService;
+import com.tencent.wxcloudrun.service.PetReservationService;
+import com.tencent.wxcloudrun.service.PetService;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.tencent.wxcloudrun.model.OrderStatus;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,96 +54,398 @@ import org.springframework.transaction.annotation.Transactional;
 public class OrderServiceImpl implements OrderService {
 
     final OrderMapper orderMapper;
+    final OrderItemMapper orderItemMapper;
+    final OrderItemParser orderItemParser;
+    final DashboardService dashboardService;
+    final SqlSessionFactory sqlSessionFactory;
+    final OrderNoGenerator orderNoGenerator;
+    final InventoryService inventoryService;
+    final FlashSaleService flashSaleService;
+    final PetReservationService petReservationService;
+    final PetService petService;
+    final ObjectMapper objectMapper;
 
     @Autowired
-    public OrderServiceImpl(OrderMapper orderMapper) {
+    public OrderServiceImpl(OrderMapper orderMapper, OrderItemMapper orderItemMapper,
+                            OrderItemParser orderItemParser, DashboardService dashboardService,
+                            SqlSessionFactory sqlSessionFactory, OrderNoGenerator orderNoGenerator,
+                            InventoryService inventoryService, FlashSaleService flashSaleService,
+                            PetReservationService petReservationService, PetService petService,
+                            ObjectMapper objectMapper) {
         this.orderMapper = orderMapper;
+        this.orderItemMapper = orderItemMapper;
+        this.orderItemParser = orderItemParser;
+        this.dashboardService = dashboardService;
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.orderNoGenerator = orderNoGenerator;
+        this.inventoryService = inventoryService;
+        this.flashSaleService = flashSaleService;
+        this.petReservationService = petReservationService;
+        this.petService = petService;
+        this.objectMapper = objectMapper;
     }
 
     @Override
     public Optional<Order> getOrderById(Integer id) {
-        return Optional.ofNullable(orderMapper.getOrderById(id));
+        Order order = orderMapper.getOrderById(id);
+        if (order != null) {
+            attachItems(Collections.singletonList(order), Order::getId, Order::setItems);
+        }
+        return Optional.ofNullable(order);
     }
 
     @Override
     public Optional<Order> getOrderByOrderNo(String orderNo) {
-        return Optional.ofNullable(orderMapper.getOrderByOrderNo(orderNo));
+        Order order = orderMapper.getOrderByOrderNo(orderNo);
+        if (order != null) {
+            attachItems(Collections.singletonList(order), Order::getId, Order::setItems);
+        }
+        return Optional.ofNullable(order);
     }
 
     @Override
     public List<Order> getOrdersByUserId(String userId) {
-        return orderMapper.getOrdersByUserId(userId);
+        List<Order> orders = orderMapper.getOrdersByUserId(userId);
+        attachItems(orders, Order::getId, Order::setItems);
+        return orders;
     }
 
     @Override
     public List<Order> getOrdersByStatus(String userId, String status) {
-        return orderMapper.getOrdersByStatus(userId, status);
+        List<Order> orders = orderMapper.getOrdersByStatus(userId, status);
+        attachItems(orders, Order::getId, Order::setItems);
+        return orders;
+    }
+
+    @Override
+    public List<Map<String, Object>> getBestSellers(int limit) {
+        return orderItemMapper.getBestSellers(limit);
     }
 
     @Override
-    public List<Order> getAllOrders() {
-        return orderMapper.getAllOrders();
+    public CursorPage<OrderSummary> getMerchantOrders(String status, LocalDate startDate, LocalDate endDate, String cursor, int size) {
+        if (status != null && !status.isEmpty()) {
+            status = OrderStatus.fromValue(status).getValue();
+        }
+        LocalDateTime startTime = startDate == null ? null : startDate.atStartOfDay();
+        // endDate is inclusive
+        LocalDateTime endTime = endDate == null ? null : endDate.plusDays(1).atStartOfDay();
+
+        PageCursor after = PageCursor.decode(cursor);
+        List<OrderSummary> orders = after == null
+                ? orderMapper.getMerchantOrderSummaries(status, startTime, endTime, null, null, size)
+                : orderMapper.getMerchantOrderSummaries(status, startTime, endTime, after.keyAsDateTime(), after.getId(), size);
+        attachItems(orders, OrderSummary::getId, OrderSummary::setItems);
+        return CursorPage.of(orders, size, o -> PageCursor.encode(o.getCreatedAt(), o.getId()));
+    }
+
+    @Override
+    public List<OrderStatusTotal> getMerchantOrderTotals(LocalDate startDate, LocalDate endDate) {
+        // Same inclusive date range as getMerchantOrders
+        return orderMapper.getOrderTotalsByStatus(startDate == null ? null : startDate.atStartOfDay(),
+                endDate == null ? null : endDate.plusDays(1).atStartOfDay());
     }
 
     @Override
     @Transactional
     public void createOrder(Order order) {
         // Idempotency check could be here (e.g. check if orderNo exists), but DB unique constraint handles it.
+        if (order.getOrderNo() == null) {
+            order.setOrderNo(orderNoGenerator.nextOrderNo());
+        }
+        List<OrderItem> items = orderItemParser.parse(order.getItemsJson());
+        flashSaleService.ensureNotOnSale(items);
+        // Fails the whole checkout when any line is out of stock
+        inventoryService.reserve(items);
         orderMapper.createOrder(order);
+        if (!items.isEmpty()) {
+            for (OrderItem item : items) {
+                item.setOrderId(order.getId());
+            }
+            orderItemMapper.batchInsert(items);
+            // One conditional UPDATE per pet; losing the race rolls the whole order back
+            petReservationService.reserve(items);
+        }
+        order.setItems(items);
+        dashboardService.onOrderCreated();
     }
 
     @Override
     @Transactional
-    public void updateOrderStatus(String orderNo, String status) {
-        Order order = orderMapper.getOrderByOrderNo(orderNo);
-        if (order == null) {
-            throw new RuntimeException("Order not found");
+    public Order reservePet(Integer petId, String userId, String addressSnapshot) {
+        Pet pet = petService.getPetById(petId);
+        if (pet == null) {
+            throw new NoSuchElementException("Pet not found");
+        }
+        // Cheap early answer from the cache; the reservation UPDATE is what actually decides
+        if (!"available".equals(pet.getStatus())) {
+            throw new IllegalStateException("Pet is not available");
         }
-        
-        // State Machine Validation
+        BigDecimal deposit = pet.getDeposit() != null && pet.getDeposit().signum() > 0 ? pet.getDeposit() : pet.getPrice();
+
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("id", pet.getId());
+        line.put("name", pet.getName());
+        line.put("price", deposit);
+        line.put("quantity", 1);
+        line.put("type", OrderItem.TYPE_PET);
+        Order order = new Order();
+        order.setUserId(userId);
+        order.setTotalAmount(deposit);
+        order.setStatus(OrderStatus.PENDING.getValue());
+        order.setAddressSnapshot(addressSnapshot);
         try {
-            OrderStatus currentStatus = OrderStatus.fromValue(order.getStatus());
-            OrderStatus newStatus = OrderStatus.fromValue(status);
-            
-            boolean isValid = false;
-            switch (currentStatus) {
-                case PENDING:
-                    if (newStatus == OrderStatus.PAID || newStatus == OrderStatus.CANCELLED) isValid = true;
-                    break;
-                case PAID:
-                    if (newStatus == OrderStatus.SHIPPED || newStatus == OrderStatus.CANCELLED) isValid = true;
-                    break;
-                case SHIPPED:
-                    if (newStatus == OrderStatus.COMPLETED) isValid = true;
-                    break;
-                case COMPLETED:
-                case CANCELLED:
-                    // Final states
-                    break;
-            }
-            
-            if (!isValid) {
-                // Allow same status update (idempotency)
-                if (currentStatus == newStatus) return;
-                throw new IllegalArgumentException("Invalid status transition from " + currentStatus + " to " + newStatus);
+            order.setItemsJson(objectMapper.writeValueAsString(Collections.singletonList(line)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        createOrder(order);
+        return order;
+    }
+
+    @Override
+    @Transactional
+    public void updateOrderStatus(String orderNo, String status) {
+        OrderStatus next = OrderStatus.fromValue(status);
+        int updated = next.predecessorValues().isEmpty()
+                ? 0 : orderMapper.transitionOrderStatus(orderNo, next.getValue(), next.predecessorValues());
+        afterTransition(updated, () -> orderMapper.getOrderStatus(orderNo), next,
+                () -> orderItemMapper.getItemsByOrderNos(Collections.singletonList(orderNo)));
+    }
+
+    @Override
+    @Transactional
+    public void updateOrderStatusById(Integer id, String status) {
+        OrderStatus next = OrderStatus.fromValue(status);
+        int updated = next.predecessorValues().isEmpty()
+                ? 0 : orderMapper.transitionOrderStatusById(id, next.getValue(), next.predecessorValues());
+        afterTransition(updated, () -> orderMapper.getOrderStatusById(id), next,
+                () -> orderItemMapper.getItemsByOrderIds(Collections.singletonList(id)));
+    }
+
+    /**
+     * The conditional update is the whole transition; the current status is only
+     * read when it matched nothing, to tell the caller why.
+     */
+    private void afterTransition(int updated, Supplier<String> currentStatus, OrderStatus next,
+                                 Supplier<List<OrderItem>> items) {
+        if (updated > 0) {
+            if (next != OrderStatus.PENDING && next != OrderStatus.SHIPPED) {
+                applyItemEffects(next, items.get());
             }
-        } catch (IllegalArgumentException e) {
-            // If status string is invalid or transition invalid
-            throw e;
+            dashboardService.onOrderChanged();
+            return;
+        }
+        String current = currentStatus.get();
+        if (current == null) {
+            throw new NoSuchElementException("Order not found");
         }
+        OrderStatus currentValue = OrderStatus.fromValue(current);
+        // Allow same status update (idempotency)
+        if (currentValue == next) {
+            return;
+        }
+        throw new IllegalArgumentException("Invalid status transition from " + currentValue + " to " + next);
+    }
 
-        orderMapper.updateOrderStatus(orderNo, status);
+    /**
+     * Stock was taken at checkout: a cancellation gives it back and a completion
+     * counts it as sold. Booked pets follow their deposit order the same way. Only
+     * called for transitions that actually happened, so a repeated request cannot
+     * apply them twice.
+     */
+    private void applyItemEffects(OrderStatus next, List<OrderItem> items) {
+        if (next == OrderStatus.CANCELLED) {
+            inventoryService.release(items);
+        } else if (next == OrderStatus.COMPLETED) {
+            inventoryService.recordSales(items);
+        }
+        petReservationService.onOrderStatusChanged(next, items);
     }
 
     @Override
     @Transactional
     public void updateTrackingNumber(Integer id, String trackingNumber) {
         orderMapper.updateTrackingNumber(id, trackingNumber);
+        dashboardService.onOrderChanged();
+    }
+
+    /**
+     * 批量更新: every entry becomes one conditional UPDATE queued on a BATCH executor,
+     * so the whole run is flushed in a few JDBC batches. The orders' statuses are read and
+     * locked first, which classifies entries whose update matched nothing and decides the
+     * ones the driver reports as SUCCESS_NO_INFO.
+     */
+    @Override
+    @Transactional
+    public List<BatchOrderResult> batchUpdateOrders(List<BatchOrderUpdateRequest.Item> items) {
+        BatchOrderResult[] results = new BatchOrderResult[items.size()];
+        List<Integer> pending = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            BatchOrderUpdateRequest.Item item = items.get(i);
+            String error = validate(item);
+            if (error == null && !seen.add(item.getOrderNo())) {
+                error = "Duplicate orderNo in batch";
+            }
+            if (error != null) {
+                results[i] = BatchOrderResult.fail(item.getOrderNo(), error);
+            } else {
+                pending.add(i);
+            }
+        }
+
+        // Same target status and same columns -> same SQL, so consecutive entries share one JDBC batch
+        pending.sort(Comparator.comparing((Integer i) -> String.valueOf(items.get(i).getStatus()))
+                .thenComparing(i -> items.get(i).getTrackingNumber() == null));
+
+        // Locked until commit, so these are still the statuses the updates below run against
+        Map<String, String> current = new HashMap<>();
+        if (!pending.isEmpty()) {
+            List<String> orderNos = new ArrayList<>(pending.size());
+            for (Integer i : pending) {
+                orderNos.add(items.get(i).getOrderNo());
+            }
+            for (OrderSummary order : orderMapper.lockOrderStatusesByOrderNos(orderNos)) {
+                current.put(order.getOrderNo(), order.getStatus());
+            }
+        }
+
+        Map<String, String> unmatched = new HashMap<>();
+        Map<OrderStatus, List<String>> transitioned = new EnumMap<>(OrderStatus.class);
+        boolean changed = false;
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            OrderMapper batchMapper = session.getMapper(OrderMapper.class);
+            List<Integer> queued = new ArrayList<>(pending.size());
+            for (Integer i : pending) {
+                BatchOrderUpdateRequest.Item item = items.get(i);
+                if (item.getStatus() == null) {
+                    batchMapper.updateTrackingNumberByOrderNo(item.getOrderNo(), item.getTrackingNumber());
+                } else {
+                    OrderStatus next = OrderStatus.fromValue(item.getStatus());
+                    if (next.predecessorValues().isEmpty()) {
+                        // nothing can move into this status; only an idempotent repeat can succeed
+                        unmatched.put(item.getOrderNo(), item.getStatus());
+                        continue;
+                    }
+                    batchMapper.transitionOrderStatusWithTracking(item.getOrderNo(), next.getValue(),
+                            next.predecessorValues(), item.getTrackingNumber());
+                }
+                queued.add(i);
+            }
+
+            // BatchExecutor only reuses a statement for consecutive identical SQL, so the
+            // flattened update counts line up with the submission order
+            int n = 0;
+            for (BatchResult batch : session.flushStatements()) {
+                for (int count : batch.getUpdateCounts()) {
+                    BatchOrderUpdateRequest.Item item = items.get(queued.get(n++));
+                    boolean matched = count == Statement.SUCCESS_NO_INFO
+                            ? matches(item, current.get(item.getOrderNo()))
+                            : count > 0;
+                    if (matched) {
+                        changed = true;
+                        if (item.getStatus() != null) {
+                            transitioned.computeIfAbsent(OrderStatus.fromValue(item.getStatus()), s -> new ArrayList<>())
+                                    .add(item.getOrderNo());
+                        }
+                    } else {
+                        unmatched.put(item.getOrderNo(), item.getStatus());
+                    }
+                }
+            }
+
+            // Already in the target status: the status is idempotent, but the tracking number still has to land
+            List<String> retracked = new ArrayList<>();
+            for (Integer i : pending) {
+                BatchOrderUpdateRequest.Item item = items.get(i);
+                String orderNo = item.getOrderNo();
+                if (!unmatched.containsKey(orderNo)) {
+                    results[i] = BatchOrderResult.ok(orderNo);
+                    continue;
+                }
+                String status = current.get(orderNo);
+                if (status == null) {
+                    results[i] = BatchOrderResult.fail(orderNo, "Order not found");
+                } else if (item.getStatus() == null || OrderStatus.fromValue(status) == OrderStatus.fromValue(item.getStatus())) {
+                    results[i] = BatchOrderResult.ok(orderNo);
+                    if (item.getStatus() != null && item.getTrackingNumber() != null) {
+                        batchMapper.updateTrackingNumberByOrderNo(orderNo, item.getTrackingNumber());
+                        retracked.add(orderNo);
+                    }
+                } else {
+                    results[i] = BatchOrderResult.fail(orderNo, "Invalid status transition from "
+                            + OrderStatus.fromValue(status) + " to " + OrderStatus.fromValue(item.getStatus()));
+                }
+            }
+            if (!retracked.isEmpty()) {
+                session.flushStatements();
+                changed = true;
+            }
+        }
+
+        for (Map.Entry<OrderStatus, List<String>> entry : transitioned.entrySet()) {
+            if (entry.getKey() != OrderStatus.PENDING && entry.getKey() != OrderStatus.SHIPPED) {
+                applyItemEffects(entry.getKey(), orderItemMapper.getItemsByOrderNos(entry.getValue()));
+            }
+        }
+
+        if (changed) {
+            dashboardService.onOrderChanged();
+        }
+        return Arrays.asList(results);
+    }
+
+    /** Whether the queued update for this item matches an order currently in the given status */
+    private static boolean matches(BatchOrderUpdateRequest.Item item, String status) {
+        if (status == null) {
+            return false;
+        }
+        return item.getStatus() == null || OrderStatus.fromValue(item.getStatus()).predecessorValues().contains(status);
+    }
+
+    private static String validate(BatchOrderUpdateRequest.Item item) {
+        if (item.getOrderNo() == null || item.getOrderNo().isEmpty()) {
+            return "orderNo cannot be empty";
+        }
+        if (item.getStatus() == null && item.getTrackingNumber() == null) {
+            return "Nothing to update";
+        }
+        if (item.getStatus() != null) {
+            try {
+                OrderStatus.fromValue(item.getStatus());
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Loads the order_items of a page of orders with one query.
+     */
+    private <T> void attachItems(List<T> orders, Function<T, Integer> idOf, BiConsumer<T, List<OrderItem>> setItems) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(orders.size());
+        for (T order : orders) {
+            ids.add(idOf.apply(order));
+        }
+        Map<Integer, List<OrderItem>> byOrder = new HashMap<>();
+        for (OrderItem item : orderItemMapper.getItemsByOrderIds(ids)) {
+            byOrder.computeIfAbsent(item.getOrderId(), k -> new ArrayList<>()).add(item);
+        }
+        for (T order : orders) {
+            setItems.accept(order, byOrder.getOrDefault(idOf.apply(order), Collections.emptyList()));
+        }
     }
 
     @Override
     @Transactional
     public void deleteOrder(Integer id) {
-        orderMapper.deleteOrder(id);
+        if (orderMapper.deleteOrder(id) > 0) {
+            dashboardService.onOrderDeleted();
+        }
     }
 }
@@ -0,0 +1,168 @@
+package com.tencent.wxcloudrun.service.impl;
+
+import com.tencent.wxcloudrun.cache.CacheRegistry;
+import com.tencent.wxcloudrun.cache.ReadThroughCache;
+import com.tencent.wxcloudrun.dao.OrderItemMapper;
+import com.tencent.wxcloudrun.dao.OrderMapper;
+import com.tencent.wxcloudrun.dao.PetMapper;
+import com.tencent.wxcloudrun.model.OrderItem;
+import com.tencent.wxcloudrun.model.OrderStatus;
+import com.tencent.wxcloudrun.model.Pet;
+import com.tencent.wxcloudrun.service.DashboardService;
+import com.tencent.wxcloudrun.service.InventoryService;
+import com.tencent.wxcloudrun.service.PetReservationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+@Service
+public class PetReservationServiceImpl implements PetReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PetReservationServiceImpl.class);
+
+    private static final int EXPIRE_BATCH = 100;
+
+    final PetMapper petMapper;
+    final OrderMapper orderMapper;
+    final OrderItemMapper orderItemMapper;
+    final InventoryService inventoryService;
+    final DashboardService dashboardService;
+    final ReadThroughCache<Integer, Pet> petCache;
+    final TransactionTemplate transactionTemplate;
+
+    @Value("${app.pet-reservation.hold-minutes:30}")
+    private long holdMinutes;
+
+    @Autowired
+    public PetReservationServiceImpl(PetMapper petMapper, OrderMapper orderMapper, OrderItemMapper orderItemMapper,
+                                     InventoryService inventoryService, DashboardService dashboardService,
+                                     CacheRegistry cacheRegistry, PlatformTransactionManager transactionManager) {
+        this.petMapper = petMapper;
+        this.orderMapper = orderMapper;
+        this.orderItemMapper = orderItemMapper;
+        this.inventoryService = inventoryService;
+        this.dashboardService = dashboardService;
+        this.petCache = cacheRegistry.cache(CacheRegistry.PETS);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void reserve(List<OrderItem> items) {
+        List<OrderItem> pets = petLines(items);
+        LocalDateTime until = LocalDateTime.now().plusMinutes(holdMinutes);
+        for (OrderItem item : pets) {
+            if (petMapper.reservePet(item.getProductId(), item.getOrderId(), until) == 0) {
+                throw new IllegalStateException((item.getProductName() != null ? item.getProductName() : "Pet")
+                        + " is not available");
+            }
+        }
+        evictAfterCommit(pets);
+    }
+
+    @Override
+    public void onOrderStatusChanged(OrderStatus status, List<OrderItem> items) {
+        List<OrderItem> pets = petLines(items);
+        for (OrderItem item : pets) {
+            switch (status) {
+                case PAID:
+                case SHIPPED:
+                    // Deposit paid: the pet stays booked with no deadline
+                    petMapper.confirmReservation(item.getProductId(), item.getOrderId());
+                    break;
+                case COMPLETED:
+                    petMapper.completeReservation(item.getProductId(), item.getOrderId());
+                    break;
+                case CANCELLED:
+                    petMapper.releaseReservation(item.getProductId(), item.getOrderId());
+                    break;
+                default:
+                    break;
+            }
+        }
+        evictAfterCommit(pets);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.pet-reservation.expire-interval-ms:60000}",
+               initialDelayString = "${app.pet-reservation.expire-interval-ms:60000}")
+    public int expireReservations() {
+        int expired = 0;
+        try {
+            for (Pet pet : petMapper.getExpiredReservations(LocalDateTime.now(), EXPIRE_BATCH)) {
+                Boolean cancelled = transactionTemplate.execute(tx -> expire(pet));
+                if (Boolean.TRUE.equals(cancelled)) {
+                    expired++;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Pet reservation expiry failed", e);
+        }
+        if (expired > 0) {
+            logger.info("Expired {} unpaid pet reservations", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Cancels the deposit order only while it is still unpaid; a payment that lands
+     * first wins and merely has its booking confirmed.
+     */
+    private boolean expire(Pet pet) {
+        Integer orderId = pet.getReservedOrderId();
+        List<OrderItem> items = orderId == null
+                ? Collections.emptyList() : orderItemMapper.getItemsByOrderIds(Collections.singletonList(orderId));
+        if (orderId != null && orderMapper.transitionOrderStatusById(orderId, OrderStatus.CANCELLED.getValue(),
+                Collections.singletonList(OrderStatus.PENDING.getValue())) > 0) {
+            inventoryService.release(items);
+            onOrderStatusChanged(OrderStatus.CANCELLED, items);
+            dashboardService.onOrderChanged();
+            return true;
+        }
+        String status = orderId == null ? null : orderMapper.getOrderStatusById(orderId);
+        if (status == null) {
+            // The order is gone; nothing can pay for this booking any more
+            petMapper.releaseReservation(pet.getId(), orderId);
+            evictAfterCommit(Collections.singletonList(petLine(pet.getId(), orderId)));
+        } else {
+            onOrderStatusChanged(OrderStatus.fromValue(status), items);
+        }
+        return false;
+    }
+
+    private void evictAfterCommit(List<OrderItem> pets) {
+        if (!pets.isEmpty()) {
+            TransactionHooks.afterCommit(() -> pets.forEach(item -> petCache.invalidate(item.getProductId())));
+        }
+    }
+
+    // Pet lines in id order, so concurrent orders lock pets in the same order
+    private static List<OrderItem> petLines(List<OrderItem> items) {
+        List<OrderItem> pets = new ArrayList<>();
+        for (OrderItem item : items) {
+            if (OrderItem.TYPE_PET.equals(item.getItemType()) && item.getProductId() != null) {
+                pets.add(item);
+            }
+        }
+        pets.sort(Comparator.comparing(OrderItem::getProductId));
+        return pets;
+    }
+
+    private static OrderItem petLine(Integer petId, Integer orderId) {
+        OrderItem item = new OrderItem();
+        item.setItemType(OrderItem.TYPE_PET);
+        item.setProductId(petId);
+        item.setOrderId(orderId);
+        return item;
+    }
+}
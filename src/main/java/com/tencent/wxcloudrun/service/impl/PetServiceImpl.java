@@ -1,11 +1,23 @@
 package com.tencent.wxcloudrun.service.impl;
 
+import com.tencent.wxcloudrun.cache.CacheRegistry;
+import com.tencent.wxcloudrun.cache.CatalogVersions;
+import com.tencent.wxcloudrun.cache.ReadThroughCache;
 import com.tencent.wxcloudrun.dao.PetMapper;
+import com.tencent.wxcloudrun.datasource.ReadFromReplica;
+import com.tencent.wxcloudrun.dto.CursorPage;
+import com.tencent.wxcloudrun.dto.PageCursor;
 import com.tencent.wxcloudrun.model.Pet;
+import com.tencent.wxcloudrun.search.CatalogSearchIndex;
+import com.tencent.wxcloudrun.service.CountService;
+import com.tencent.wxcloudrun.service.DashboardService;
 import com.tencent.wxcloudrun.service.PetService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 @Service
 public class PetServiceImpl implements PetService {
@@ -13,40 +25,145 @@ public class PetServiceImpl implements PetService {
     @Autowired
     private PetMapper petMapper;
 
+    @Autowired
+    private CountService countService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private CacheRegistry cacheRegistry;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private CatalogSearchIndex searchIndex;
+
+    private ReadThroughCache<Integer, Pet> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = cacheRegistry.cache(CacheRegistry.PETS);
+    }
+
     @Override
     public Pet getPetById(Integer id) {
-        return petMapper.getPetById(id);
+        return cache.get(id, petMapper::getPetById);
     }
 
     @Override
+    @ReadFromReplica
     public List<Pet> getPets(int page, int size) {
         int offset = (page - 1) * size;
         return petMapper.getPets(offset, size);
     }
     
     @Override
+    @ReadFromReplica
     public List<Pet> getPets(int page, int size, String keyword, String userId) {
         int offset = (page - 1) * size;
+        if (keyword != null && !keyword.isEmpty() && searchIndex.isReady()) {
+            return CatalogSearchIndex.page(searchIndex.searchPets(keyword, userId), offset, size, petMapper::getPetsByIds, Pet::getId);
+        }
         return petMapper.searchPets(offset, size, keyword, userId);
     }
 
+    @Override
+    @ReadFromReplica
+    public CursorPage<Pet> getPetsAfter(String cursor, int size, String keyword, String userId) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<Pet> pets = after == null
+                ? petMapper.searchPetsAfter(size, keyword, userId, null, null)
+                : petMapper.searchPetsAfter(size, keyword, userId, after.keyAsDateTime(), after.getId());
+        return CursorPage.of(pets, size, p -> PageCursor.encode(p.getCreatedAt(), p.getId()));
+    }
+
     @Override
     public void createPet(Pet pet) {
         petMapper.createPet(pet);
+        // Drops a cached "not found" for the new id and moves the list version on
+        cache.invalidate(pet.getId());
+        searchIndex.indexPet(pet);
+        countService.invalidate(CountService.PETS);
+        dashboardService.adjustPets(1);
     }
 
     @Override
     public void updatePet(Pet pet) {
         petMapper.updatePet(pet);
+        searchIndex.indexPet(pet);
+        cache.invalidate(pet.getId());
+        countService.invalidate(CountService.PETS);
+    }
+
+    @Override
+    public Pet patchPet(Pet patch) {
+        if (patch.getStatus() != null) {
+            throw new IllegalArgumentException("Status is changed through /api/cat/status");
+        }
+        if (isEmpty(patch)) {
+            throw new IllegalArgumentException("Nothing to update");
+        }
+        int updated = petMapper.patchPet(patch, patch.getUpdatedAt());
+        Pet current = petMapper.getPetById(patch.getId());
+        if (current == null) {
+            throw new NoSuchElementException("Pet not found");
+        }
+        if (updated == 0) {
+            throw new IllegalStateException("Pet was modified by someone else, reload and retry");
+        }
+        searchIndex.indexPet(current);
+        cache.invalidate(current.getId());
+        countService.invalidate(CountService.PETS);
+        return current;
+    }
+
+    @Override
+    public boolean updatePetStatus(Integer id, String status) {
+        boolean updated = petMapper.updatePetStatus(id, status) > 0;
+        cache.invalidate(id);
+        countService.invalidate(CountService.PETS);
+        if (!updated) {
+            Pet current = petMapper.getPetById(id);
+            if (current != null && current.getReservedOrderId() != null && "booked".equals(current.getStatus())) {
+                throw new IllegalStateException("Pet is reserved by order " + current.getReservedOrderId()
+                        + ", cancel that order to release it");
+            }
+        }
+        return updated;
     }
 
     @Override
     public void deletePet(Integer id) {
-        petMapper.deletePet(id);
+        if (petMapper.deletePet(id) > 0) {
+            dashboardService.adjustPets(-1);
+        }
+        countService.invalidate(CountService.PETS);
+        cache.invalidate(id);
+        searchIndex.removePet(id);
     }
 
     @Override
     public Integer countPets() {
         return petMapper.countPets();
     }
+
+    @Override
+    public String getListVersion() {
+        return catalogVersions.listVersion(CacheRegistry.PETS, petMapper::getListVersion);
+    }
+
+    private static boolean isEmpty(Pet patch) {
+        return patch.getName() == null
+                && patch.getBreed() == null
+                && patch.getAge() == null
+                && patch.getGender() == null
+                && patch.getPrice() == null
+                && patch.getDeposit() == null
+                && patch.getDescription() == null
+                && patch.getAvatar() == null
+                && patch.getHealthStatus() == null
+                && patch.getMerchantId() == null;
+    }
 }
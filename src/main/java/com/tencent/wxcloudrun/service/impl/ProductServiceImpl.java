@@ -1,11 +1,23 @@
 package com.tencent.wxcloudrun.service.impl;
 
+import com.tencent.wxcloudrun.cache.CacheRegistry;
+import com.tencent.wxcloudrun.cache.CatalogVersions;
+import com.tencent.wxcloudrun.cache.ReadThroughCache;
 import com.tencent.wxcloudrun.dao.ProductMapper;
+import com.tencent.wxcloudrun.datasource.ReadFromReplica;
+import com.tencent.wxcloudrun.dto.CursorPage;
+import com.tencent.wxcloudrun.dto.PageCursor;
 import com.tencent.wxcloudrun.model.Product;
+import com.tencent.wxcloudrun.search.CatalogSearchIndex;
+import com.tencent.wxcloudrun.service.CountService;
+import com.tencent.wxcloudrun.service.DashboardService;
 import com.tencent.wxcloudrun.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 @Service
 public class ProductServiceImpl implements ProductService {
@@ -13,40 +25,143 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private CountService countService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private CacheRegistry cacheRegistry;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private CatalogSearchIndex searchIndex;
+
+    private ReadThroughCache<Integer, Product> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = cacheRegistry.cache(CacheRegistry.PRODUCTS);
+    }
+
     @Override
     public Product getProductById(Integer id) {
-        return productMapper.getProductById(id);
+        return cache.get(id, productMapper::getProductById);
     }
 
     @Override
+    @ReadFromReplica
     public List<Product> getProducts(int page, int size) {
         int offset = (page - 1) * size;
         return productMapper.getProducts(offset, size);
     }
     
     @Override
+    @ReadFromReplica
     public List<Product> getProducts(int page, int size, String keyword) {
         int offset = (page - 1) * size;
+        if (keyword != null && !keyword.isEmpty() && searchIndex.isReady()) {
+            return CatalogSearchIndex.page(searchIndex.searchProducts(keyword), offset, size, productMapper::getProductsByIds, Product::getId);
+        }
         return productMapper.searchProducts(offset, size, keyword);
     }
 
+    @Override
+    @ReadFromReplica
+    public CursorPage<Product> getProductsAfter(String cursor, int size, String keyword) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<Product> products = after == null
+                ? productMapper.searchProductsAfter(size, keyword, null, null)
+                : productMapper.searchProductsAfter(size, keyword, after.keyAsInt(), after.getId());
+        return CursorPage.of(products, size, p -> PageCursor.encode(p.getSales(), p.getId()));
+    }
+
     @Override
     public void createProduct(Product product) {
         productMapper.createProduct(product);
+        cache.invalidate(product.getId());
+        searchIndex.indexProduct(product);
+        countService.invalidate(CountService.PRODUCTS);
+        dashboardService.adjustProducts(1);
     }
 
+    /**
+     * stock is not written from the request: checkout and flash sales move it while the
+     * merchant edits, so only a relative stockDelta is applied.
+     */
     @Override
     public void updateProduct(Product product) {
-        productMapper.updateProduct(product);
+        if (product.getStock() != null) {
+            throw new IllegalArgumentException("stock cannot be set directly, send stockDelta instead");
+        }
+        if (productMapper.updateProduct(product) == 0) {
+            if (productMapper.getProductById(product.getId()) == null) {
+                throw new NoSuchElementException("Product not found");
+            }
+            throw new IllegalStateException("Stock cannot go below zero");
+        }
+        searchIndex.indexProduct(product);
+        cache.invalidate(product.getId());
+        countService.invalidate(CountService.PRODUCTS);
+    }
+
+    @Override
+    public Product patchProduct(Product patch) {
+        if (patch.getStock() != null) {
+            // An absolute value would undo reservations made since the client read it
+            throw new IllegalArgumentException("stock cannot be set directly, send stockDelta instead");
+        }
+        if (isEmpty(patch)) {
+            throw new IllegalArgumentException("Nothing to update");
+        }
+        int updated = productMapper.patchProduct(patch, patch.getUpdatedAt());
+        Product current = productMapper.getProductById(patch.getId());
+        if (current == null) {
+            throw new NoSuchElementException("Product not found");
+        }
+        if (updated == 0) {
+            if (patch.getStockDelta() != null
+                    && (current.getStock() == null || current.getStock() + patch.getStockDelta() < 0)) {
+                throw new IllegalStateException("Stock cannot go below zero");
+            }
+            throw new IllegalStateException("Product was modified by someone else, reload and retry");
+        }
+        searchIndex.indexProduct(current);
+        cache.invalidate(current.getId());
+        countService.invalidate(CountService.PRODUCTS);
+        return current;
     }
 
     @Override
     public void deleteProduct(Integer id) {
-        productMapper.deleteProduct(id);
+        if (productMapper.deleteProduct(id) > 0) {
+            dashboardService.adjustProducts(-1);
+        }
+        countService.invalidate(CountService.PRODUCTS);
+        cache.invalidate(id);
+        searchIndex.removeProduct(id);
     }
 
     @Override
     public Integer countProducts() {
         return productMapper.countProducts();
     }
+
+    @Override
+    public String getListVersion() {
+        return catalogVersions.listVersion(CacheRegistry.PRODUCTS, productMapper::getListVersion);
+    }
+
+    private static boolean isEmpty(Product patch) {
+        return patch.getName() == null
+                && patch.getCategory() == null
+                && patch.getPrice() == null
+                && patch.getOriginalPrice() == null
+                && patch.getStockDelta() == null
+                && patch.getRating() == null
+                && patch.getImage() == null;
+    }
 }
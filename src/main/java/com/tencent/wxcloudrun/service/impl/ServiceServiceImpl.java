@@ -1,10 +1,22 @@
 package com.tencent.wxcloudrun.service.impl;
 
+import com.tencent.wxcloudrun.cache.CacheRegistry;
+import com.tencent.wxcloudrun.cache.CatalogVersions;
+import com.tencent.wxcloudrun.cache.ReadThroughCache;
 import com.tencent.wxcloudrun.dao.ServiceMapper;
+import com.tencent.wxcloudrun.datasource.ReadFromReplica;
+import com.tencent.wxcloudrun.dto.CursorPage;
+import com.tencent.wxcloudrun.dto.PageCursor;
 import com.tencent.wxcloudrun.model.Service;
+import com.tencent.wxcloudrun.search.CatalogSearchIndex;
+import com.tencent.wxcloudrun.service.CountService;
+import com.tencent.wxcloudrun.service.DashboardService;
 import com.tencent.wxcloudrun.service.ServiceService;
 import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.PostConstruct;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 @org.springframework.stereotype.Service
 public class ServiceServiceImpl implements ServiceService {
@@ -12,40 +24,125 @@ public class ServiceServiceImpl implements ServiceService {
     @Autowired
     private ServiceMapper serviceMapper;
 
+    @Autowired
+    private CountService countService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private CacheRegistry cacheRegistry;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private CatalogSearchIndex searchIndex;
+
+    private ReadThroughCache<Integer, Service> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = cacheRegistry.cache(CacheRegistry.SERVICES);
+    }
+
     @Override
     public Service getServiceById(Integer id) {
-        return serviceMapper.getServiceById(id);
+        return cache.get(id, serviceMapper::getServiceById);
     }
 
     @Override
+    @ReadFromReplica
     public List<Service> getServices(int page, int size) {
         int offset = (page - 1) * size;
         return serviceMapper.getServices(offset, size);
     }
     
     @Override
+    @ReadFromReplica
     public List<Service> getServices(int page, int size, String keyword) {
         int offset = (page - 1) * size;
+        if (keyword != null && !keyword.isEmpty() && searchIndex.isReady()) {
+            return CatalogSearchIndex.page(searchIndex.searchServices(keyword), offset, size, serviceMapper::getServicesByIds, Service::getId);
+        }
         return serviceMapper.searchServices(offset, size, keyword);
     }
 
+    @Override
+    @ReadFromReplica
+    public CursorPage<Service> getServicesAfter(String cursor, int size, String keyword) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<Service> services = after == null
+                ? serviceMapper.searchServicesAfter(size, keyword, null, null)
+                : serviceMapper.searchServicesAfter(size, keyword, after.keyAsInt(), after.getId());
+        return CursorPage.of(services, size, s -> PageCursor.encode(s.getSales(), s.getId()));
+    }
+
     @Override
     public void createService(Service service) {
         serviceMapper.createService(service);
+        cache.invalidate(service.getId());
+        searchIndex.indexService(service);
+        countService.invalidate(CountService.SERVICES);
+        dashboardService.adjustServices(1);
     }
 
     @Override
     public void updateService(Service service) {
         serviceMapper.updateService(service);
+        searchIndex.indexService(service);
+        cache.invalidate(service.getId());
+        countService.invalidate(CountService.SERVICES);
+    }
+
+    @Override
+    public Service patchService(Service patch) {
+        if (isEmpty(patch)) {
+            throw new IllegalArgumentException("Nothing to update");
+        }
+        int updated = serviceMapper.patchService(patch, patch.getUpdatedAt());
+        Service current = serviceMapper.getServiceById(patch.getId());
+        if (current == null) {
+            throw new NoSuchElementException("Service not found");
+        }
+        if (updated == 0) {
+            throw new IllegalStateException("Service was modified by someone else, reload and retry");
+        }
+        searchIndex.indexService(current);
+        cache.invalidate(current.getId());
+        countService.invalidate(CountService.SERVICES);
+        return current;
     }
 
     @Override
     public void deleteService(Integer id) {
-        serviceMapper.deleteService(id);
+        if (serviceMapper.deleteService(id) > 0) {
+            dashboardService.adjustServices(-1);
+        }
+        countService.invalidate(CountService.SERVICES);
+        cache.invalidate(id);
+        searchIndex.removeService(id);
     }
 
     @Override
     public Integer countServices() {
         return serviceMapper.countServices();
     }
+
+    @Override
+    public String getListVersion() {
+        return catalogVersions.listVersion(CacheRegistry.SERVICES, serviceMapper::getListVersion);
+    }
+
+    private static boolean isEmpty(Service patch) {
+        return patch.getName() == null
+                && patch.getCategory() == null
+                && patch.getPrice() == null
+                && patch.getDuration() == null
+                && patch.getDescription() == null
+                && patch.getMerchantName() == null
+                && patch.getMerchantId() == null
+                && patch.getImage() == null
+                && patch.getRating() == null;
+    }
 }
@@ -0,0 +1,74 @@
+package com.tencent.wxcloudrun.service.impl;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 秒杀库存令牌
+ * A fixed number of tokens spread over several counters so that concurrent buyers
+ * mostly CAS different cache lines. A counter is only ever decremented while it is
+ * positive, so no more tokens than were loaded can be handed out.
+ */
+public final class StripedStock {
+
+    // Ints between two stripes: 16 * 4 bytes keeps each stripe on its own 64-byte cache line
+    private static final int PAD = 16;
+
+    private final AtomicIntegerArray cells;
+    private final int stripes;
+
+    public StripedStock(int tokens, int stripes) {
+        if (tokens < 0 || stripes <= 0) {
+            throw new IllegalArgumentException("tokens must be >= 0 and stripes > 0");
+        }
+        this.stripes = Math.min(stripes, Math.max(1, tokens));
+        this.cells = new AtomicIntegerArray(this.stripes * PAD);
+        for (int i = 0; i < this.stripes; i++) {
+            cells.set(i * PAD, tokens / this.stripes + (i < tokens % this.stripes ? 1 : 0));
+        }
+    }
+
+    /**
+     * Takes one token, starting from a random stripe and moving on to the others
+     * only when it is empty.
+     */
+    public boolean tryAcquire() {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int k = 0; k < stripes; k++) {
+            int idx = ((start + k) % stripes) * PAD;
+            int value;
+            while ((value = cells.get(idx)) > 0) {
+                if (cells.compareAndSet(idx, value, value - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Puts back a token whose purchase could not be completed.
+     */
+    public void release() {
+        cells.incrementAndGet(ThreadLocalRandom.current().nextInt(stripes) * PAD);
+    }
+
+    public int remaining() {
+        int sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    /**
+     * Removes and returns every token left, e.g. when the sale ends.
+     */
+    public int drain() {
+        int sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.getAndSet(i * PAD, 0);
+        }
+        return sum;
+    }
+}
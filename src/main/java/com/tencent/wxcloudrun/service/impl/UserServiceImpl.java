@@ -1,9 +1,12 @@
 package com.tencent.wxcloudrun.service.impl;
 
+import com.tencent.wxcloudrun.cache.CacheRegistry;
+import com.tencent.wxcloudrun.cache.ReadThroughCache;
 import com.tencent.wxcloudrun.dao.UserMapper;
 import com.tencent.wxcloudrun.model.User;
 import com.tencent.wxcloudrun.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -11,9 +14,16 @@ public class UserServiceImpl implements UserService {
 
     final UserMapper userMapper;
 
+    // 登录态缓存: openid -> user, short-lived so role changes made elsewhere still land quickly
+    final ReadThroughCache<String, User> principals;
+
     @Autowired
-    public UserServiceImpl(UserMapper userMapper) {
+    public UserServiceImpl(UserMapper userMapper, CacheRegistry cacheRegistry,
+                           @Value("${app.principal-cache.ttl-ms:30000}") long ttlMs,
+                           @Value("${app.principal-cache.negative-ttl-ms:5000}") long negativeTtlMs,
+                           @Value("${app.principal-cache.max-entries:10000}") int maxEntries) {
         this.userMapper = userMapper;
+        this.principals = cacheRegistry.cache(CacheRegistry.PRINCIPALS, ttlMs, negativeTtlMs, maxEntries);
     }
 
     @Override
@@ -21,6 +31,11 @@ public class UserServiceImpl implements UserService {
         return userMapper.getUserByOpenId(openid);
     }
 
+    @Override
+    public User getPrincipal(String openid) {
+        return principals.get(openid, userMapper::getUserByOpenId);
+    }
+
     @Override
     public User getUserByPhone(String phone) {
         return userMapper.getUserByPhone(phone);
@@ -36,11 +51,14 @@ public class UserServiceImpl implements UserService {
             user.setRole("user"); // Default role
         }
         userMapper.createUser(user);
+        // Drop a cached "unknown openid" entry
+        principals.invalidate(user.getOpenid());
         return user;
     }
 
     @Override
     public void updateUserRole(String openid, String role) {
         userMapper.updateUserRole(openid, role);
+        principals.invalidate(openid);
     }
 }
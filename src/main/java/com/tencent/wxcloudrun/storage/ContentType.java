@@ -0,0 +1,62 @@
+package com.tencent.wxcloudrun.storage;
+
+/**
+ * 允许上传的文件类型, recognised by their leading bytes rather than by the
+ * client-supplied name or Content-Type.
+ */
+public enum ContentType {
+    JPEG("image/jpeg", "jpg"),
+    PNG("image/png", "png"),
+    GIF("image/gif", "gif"),
+    WEBP("image/webp", "webp");
+
+    /** Bytes needed to tell every type apart. */
+    public static final int SNIFF_BYTES = 12;
+
+    private final String mimeType;
+    private final String extension;
+
+    ContentType(String mimeType, String extension) {
+        this.mimeType = mimeType;
+        this.extension = extension;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return the detected type, or null if the header matches none
+     */
+    public static ContentType sniff(byte[] b, int len) {
+        if (len >= 3 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xD8 && (b[2] & 0xFF) == 0xFF) {
+            return JPEG;
+        }
+        if (len >= 8 && (b[0] & 0xFF) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G'
+                && b[4] == 0x0D && b[5] == 0x0A && b[6] == 0x1A && b[7] == 0x0A) {
+            return PNG;
+        }
+        if (len >= 6 && b[0] == 'G' && b[1] == 'I' && b[2] == 'F' && b[3] == '8'
+                && (b[4] == '7' || b[4] == '9') && b[5] == 'a') {
+            return GIF;
+        }
+        if (len >= 12 && b[0] == 'R' && b[1] == 'I' && b[2] == 'F' && b[3] == 'F'
+                && b[8] == 'W' && b[9] == 'E' && b[10] == 'B' && b[11] == 'P') {
+            return WEBP;
+        }
+        return null;
+    }
+
+    public static ContentType fromExtension(String extension) {
+        for (ContentType type : values()) {
+            if (type.extension.equalsIgnoreCase(extension)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
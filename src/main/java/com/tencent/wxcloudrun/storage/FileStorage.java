@@ -0,0 +1,35 @@
+package com.tencent.wxcloudrun.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * 上传文件存储
+ * Files are addressed by the SHA-256 of their content, so storing the same bytes
+ * twice yields the same key and keeps a single copy. The local implementation can
+ * be replaced by an object-storage one without touching the callers.
+ */
+public interface FileStorage {
+
+    /**
+     * Streams the content into the store, enforcing the configured size and type limits.
+     * @throws IllegalArgumentException if the content is empty, too large or not an allowed type
+     */
+    StoredFile store(InputStream content) throws IOException;
+
+    Optional<Resource> load(String key);
+
+    /**
+     * Derived versions (e.g. thumbnails) are stored next to the original under the
+     * same key, one namespace per variant name.
+     */
+    Optional<Resource> loadVariant(String key, String variant);
+
+    void storeVariant(String key, String variant, InputStream content) throws IOException;
+
+    /** Public URL (or path) under which the client can fetch the file. */
+    String urlFor(String key);
+}
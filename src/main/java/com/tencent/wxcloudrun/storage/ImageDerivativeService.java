@@ -0,0 +1,232 @@
+package com.tencent.wxcloudrun.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片缩略图 / 压缩版本
+ * Uploaded JPEG and PNG images get one variant per configured size ("w200" fits in
+ * 200x200, ...), made with ImageIO and Java2D only. Work runs on a small bounded
+ * pool; when it is full the job is dropped and retried the next time the variant
+ * is requested, so uploads never wait for it.
+ */
+@Component
+public class ImageDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    private final FileStorage storage;
+    private final int[] sizes;
+    private final float jpegQuality;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+
+    // Keys queued or being processed, so a burst of requests for one image makes one job
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ImageDerivativeService(FileStorage storage,
+                                  @Value("${app.image.sizes:200,480,1080}") int[] sizes,
+                                  @Value("${app.image.jpeg-quality:0.8}") float jpegQuality,
+                                  @Value("${app.image.max-pixels:40000000}") long maxPixels,
+                                  @Value("${app.image.workers:2}") int workers,
+                                  @Value("${app.image.queue-capacity:200}") int queueCapacity) {
+        this.storage = storage;
+        this.sizes = sizes.clone();
+        Arrays.sort(this.sizes);
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "image-derivative-" + threads.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+        ImageIO.setUseCache(false);
+    }
+
+    /**
+     * Variant to serve for a requested display width: the smallest one at least that
+     * wide, or the largest one. Null if the key has no variants.
+     */
+    public String variantFor(String key, int width) {
+        if (!isDerivable(key)) {
+            return null;
+        }
+        for (int size : sizes) {
+            if (size >= width) {
+                return variantName(size);
+            }
+        }
+        return variantName(sizes[sizes.length - 1]);
+    }
+
+    /**
+     * Queues generation of every missing variant of the image; returns immediately.
+     */
+    public void submit(String key) {
+        if (!isDerivable(key) || !inFlight.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(key);
+                } catch (Exception e) {
+                    logger.warn("Could not derive images for {}: {}", key, e.getMessage());
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key);
+            logger.debug("Image derivative queue full, skipped {}", key);
+        }
+    }
+
+    void generate(String key) throws IOException {
+        Optional<Resource> original = storage.load(key);
+        if (!original.isPresent()) {
+            return;
+        }
+        boolean missing = false;
+        for (int size : sizes) {
+            missing |= !storage.loadVariant(key, variantName(size)).isPresent();
+        }
+        if (!missing) {
+            return;
+        }
+
+        String format = key.endsWith(".png") ? "png" : "jpeg";
+        BufferedImage image = read(original.get());
+        long originalLength = original.get().contentLength();
+        for (int size : sizes) {
+            String variant = variantName(size);
+            if (storage.loadVariant(key, variant).isPresent()) {
+                continue;
+            }
+            byte[] encoded = encode(scaleToFit(image, size), format);
+            if (encoded.length >= originalLength) {
+                // Already small: the original is the best this size can get
+                try (InputStream in = original.get().getInputStream()) {
+                    storage.storeVariant(key, variant, in);
+                }
+            } else {
+                storage.storeVariant(key, variant, new ByteArrayInputStream(encoded));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private BufferedImage read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream();
+             ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                throw new IOException("No image reader");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                // Checked from the header, before a huge bitmap is allocated
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    throw new IOException("Image too large to derive");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Fits the image into size x size. Shrinks by halves first so bilinear filtering
+     * keeps enough detail without the cost of a bicubic pass.
+     */
+    static BufferedImage scaleToFit(BufferedImage src, int size) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        double scale = Math.min(1.0, (double) size / Math.max(w, h));
+        int targetW = Math.max(1, (int) Math.round(w * scale));
+        int targetH = Math.max(1, (int) Math.round(h * scale));
+        int type = src.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = src;
+        do {
+            w = Math.max(targetW, w / 2);
+            h = Math.max(targetH, h / 2);
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != targetW || h != targetH);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpeg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // GIF keeps its animation and WebP has no ImageIO reader, so both are served as uploaded
+    private static boolean isDerivable(String key) {
+        return key != null && (key.endsWith(".jpg") || key.endsWith(".png"));
+    }
+
+    private static String variantName(int size) {
+        return "w" + size;
+    }
+}
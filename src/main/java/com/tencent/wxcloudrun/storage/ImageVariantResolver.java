@@ -0,0 +1,59 @@
+package com.tencent.wxcloudrun.storage;
+
+import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Serves /uploads/ab/cd/&lt;sha256&gt;.jpg?size=100 from the nearest thumbnail variant.
+ * A variant that does not exist yet is queued and the original is served meanwhile,
+ * which also fills in variants for files uploaded before the pipeline existed.
+ */
+public class ImageVariantResolver implements ResourceResolver {
+
+    public static final String SIZE_PARAM = "size";
+
+    private final FileStorage storage;
+    private final ImageDerivativeService derivatives;
+
+    public ImageVariantResolver(FileStorage storage, ImageDerivativeService derivatives) {
+        this.storage = storage;
+        this.derivatives = derivatives;
+    }
+
+    @Override
+    public Resource resolveResource(HttpServletRequest request, String requestPath,
+                                    List<? extends Resource> locations, ResourceResolverChain chain) {
+        int width = requestedWidth(request);
+        String variant = width > 0 ? derivatives.variantFor(requestPath, width) : null;
+        if (variant != null) {
+            Optional<Resource> resource = storage.loadVariant(requestPath, variant);
+            if (resource.isPresent()) {
+                return resource.get();
+            }
+            derivatives.submit(requestPath);
+        }
+        return chain.resolveResource(request, requestPath, locations);
+    }
+
+    @Override
+    public String resolveUrlPath(String resourcePath, List<? extends Resource> locations, ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourcePath, locations);
+    }
+
+    private static int requestedWidth(HttpServletRequest request) {
+        String size = request == null ? null : request.getParameter(SIZE_PARAM);
+        if (size == null || size.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(size);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.tencent.wxcloudrun.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Stores uploads below app.upload.dir as ab/cd/&lt;sha256&gt;.&lt;ext&gt;, the layout the
+ * /uploads/** resource handler serves. The body is copied through a fixed 64 KB
+ * buffer into a temp file in the same directory tree while it is hashed, then moved
+ * into place; if the target already exists the copy is simply dropped.
+ */
+@Component
+public class LocalFileStorage implements FileStorage {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}\\.[a-z]{3,4}");
+    private static final Pattern VARIANT = Pattern.compile("[a-z][a-z0-9]{0,15}");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path root;
+    private final Path tmpDir;
+    private final long maxBytes;
+    private final String urlPrefix;
+    private final Set<ContentType> allowedTypes = EnumSet.noneOf(ContentType.class);
+
+    public LocalFileStorage(@Value("${app.upload.dir:${user.dir}/uploads}") String dir,
+                            @Value("${app.upload.max-bytes:10485760}") long maxBytes,
+                            @Value("${app.upload.url-prefix:/uploads/}") String urlPrefix,
+                            @Value("${app.upload.allowed-types:jpg,png,gif,webp}") String[] allowedTypes) throws IOException {
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        this.tmpDir = root.resolve(".tmp");
+        this.maxBytes = maxBytes;
+        this.urlPrefix = urlPrefix.endsWith("/") ? urlPrefix : urlPrefix + "/";
+        for (String extension : allowedTypes) {
+            ContentType type = ContentType.fromExtension(extension.trim());
+            if (type == null) {
+                throw new IllegalArgumentException("Unsupported upload type: " + extension);
+            }
+            this.allowedTypes.add(type);
+        }
+        Files.createDirectories(tmpDir);
+    }
+
+    @Override
+    public StoredFile store(InputStream content) throws IOException {
+        MessageDigest sha256 = sha256();
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+        try {
+            ContentType type = null;
+            long size = 0;
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+            try (ReadableByteChannel in = Channels.newChannel(content);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                boolean eof = false;
+                while (!eof) {
+                    eof = in.read(buf) < 0;
+                    // Hold the first bytes back until the type can be told
+                    if (type == null && !eof && buf.position() < ContentType.SNIFF_BYTES) {
+                        continue;
+                    }
+                    if (buf.position() == 0) {
+                        continue;
+                    }
+                    if (type == null) {
+                        type = ContentType.sniff(buf.array(), buf.position());
+                        if (type == null || !allowedTypes.contains(type)) {
+                            throw new IllegalArgumentException("不支持的文件类型");
+                        }
+                    }
+                    size += buf.position();
+                    if (size > maxBytes) {
+                        throw new IllegalArgumentException("文件过大, 最大 " + (maxBytes / 1024 / 1024) + "MB");
+                    }
+                    sha256.update(buf.array(), 0, buf.position());
+                    buf.flip();
+                    while (buf.hasRemaining()) {
+                        out.write(buf);
+                    }
+                    buf.clear();
+                }
+            }
+            if (size == 0) {
+                throw new IllegalArgumentException("文件为空");
+            }
+
+            String hash = hex(sha256.digest());
+            String key = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + "." + type.getExtension();
+            Path target = root.resolve(key);
+            boolean deduplicated = Files.exists(target);
+            if (!deduplicated) {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Same content stored concurrently; either copy is the file
+                    deduplicated = true;
+                }
+            }
+
+            StoredFile stored = new StoredFile();
+            stored.setKey(key);
+            stored.setUrl(urlFor(key));
+            stored.setSha256(hash);
+            stored.setSize(size);
+            stored.setContentType(type.getMimeType());
+            stored.setDeduplicated(deduplicated);
+            return stored;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public Optional<Resource> load(String key) {
+        if (key == null || !KEY.matcher(key).matches()) {
+            return Optional.empty();
+        }
+        Path path = root.resolve(key);
+        return Files.isRegularFile(path) ? Optional.of(new FileSystemResource(path)) : Optional.empty();
+    }
+
+    @Override
+    public Optional<Resource> loadVariant(String key, String variant) {
+        if (key == null || !KEY.matcher(key).matches() || !VARIANT.matcher(variant).matches()) {
+            return Optional.empty();
+        }
+        Path path = root.resolve(variant).resolve(key);
+        return Files.isRegularFile(path) ? Optional.of(new FileSystemResource(path)) : Optional.empty();
+    }
+
+    @Override
+    public void storeVariant(String key, String variant, InputStream content) throws IOException {
+        if (!KEY.matcher(key).matches() || !VARIANT.matcher(variant).matches()) {
+            throw new IllegalArgumentException("Invalid key or variant");
+        }
+        Path target = root.resolve(variant).resolve(key);
+        Path tmp = Files.createTempFile(tmpDir, "variant-", ".part");
+        try {
+            Files.copy(content, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.createDirectories(target.getParent());
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public String urlFor(String key) {
+        return urlPrefix + key;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
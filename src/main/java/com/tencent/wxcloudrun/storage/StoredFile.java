@@ -0,0 +1,13 @@
+package com.tencent.wxcloudrun.storage;
+
+import lombok.Data;
+
+@Data
+public class StoredFile {
+    private String key; // ab/cd/<sha256>.<ext>
+    private String url;
+    private String sha256;
+    private long size;
+    private String contentType;
+    private boolean deduplicated; // the same content was already stored
+}
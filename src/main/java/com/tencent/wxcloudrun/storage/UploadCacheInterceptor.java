@@ -0,0 +1,49 @@
+package com.tencent.wxcloudrun.storage;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Uploads are named by their content hash, so a URL never changes meaning and can be
+ * cached for good. The exception is a ?size= request answered with the original
+ * because the thumbnail is still being made; that one is only kept for a minute.
+ */
+public class UploadCacheInterceptor implements HandlerInterceptor {
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String PENDING = "public, max-age=60";
+
+    private final FileStorage storage;
+    private final ImageDerivativeService derivatives;
+
+    public UploadCacheInterceptor(FileStorage storage, ImageDerivativeService derivatives) {
+        this.storage = storage;
+        this.derivatives = derivatives;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, isPendingVariant(request) ? PENDING : IMMUTABLE);
+        return true;
+    }
+
+    private boolean isPendingVariant(HttpServletRequest request) {
+        String size = request.getParameter(ImageVariantResolver.SIZE_PARAM);
+        Object key = request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        if (size == null || !(key instanceof String)) {
+            return false;
+        }
+        int width;
+        try {
+            width = Integer.parseInt(size);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        String variant = width > 0 ? derivatives.variantFor((String) key, width) : null;
+        return variant != null && !storage.loadVariant((String) key, variant).isPresent();
+    }
+}
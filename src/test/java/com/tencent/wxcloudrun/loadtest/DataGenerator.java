@@ -0,0 +1,402 @@
+package com.tencent.wxcloudrun.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * 压测数据生成
+ * Creates the tables from the CREATE TABLE statements of test_data_generation.sql
+ * (so the schema cannot drift from the real one) and fills them with the same kind
+ * of rows that script inserts, scaled up. The random seed is fixed, so every run
+ * works on an identical data set and results stay comparable between builds.
+ */
+public class DataGenerator {
+
+    private static final long SEED = 20240101L;
+    private static final int BATCH_SIZE = 1000;
+
+    // MySQL-only clauses H2 does not accept: column/table comments and table options
+    private static final Pattern COMMENT = Pattern.compile("\\s+COMMENT\\s*=?\\s*'(?:[^'\\\\]|''|\\\\.)*'", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TABLE_OPTIONS = Pattern.compile("\\)\\s*ENGINE\\s*=.*$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final String[] MERCHANT_NAMES = {"爱宠健康中心", "萌宠造型屋", "开心猫舍", "忠犬训练营", "奇幻水族馆",
+            "异宠乐园", "社区宠物诊所", "高端宠物SPA", "流浪动物救助站", "24小时宠物急诊"};
+    private static final String[] CITIES = {"北京市朝阳区", "北京市海淀区", "上海市浦东新区", "广州市天河区", "深圳市南山区",
+            "成都市锦江区", "武汉市江汉区", "杭州市西湖区", "南京市玄武区", "西安市雁塔区"};
+    private static final String[] PET_NAMES = {"小黑", "咪咪", "旺财", "小白", "皮皮", "露露", "哈利", "娜娜", "大黄", "辛巴"};
+    private static final String[] BREEDS = {"金毛犬", "布偶猫", "中华田园犬", "萨摩耶", "柯基", "英国短毛猫", "哈士奇", "贵宾犬", "橘猫", "缅因猫"};
+    private static final String[] AGES = {"3个月", "5个月", "8个月", "1岁", "1.5岁", "2岁", "3岁"};
+    private static final String[] PET_DESCRIPTIONS = {"非常活泼，喜欢飞盘", "性格温顺，粘人，品相极佳", "聪明伶俐，好养活",
+            "微笑天使，由于主人搬家寻找新主人", "短腿小电臀，精力充沛", "脸圆圆的，很安静", "体型巨大，性格温柔的巨人"};
+    private static final String[][] PRODUCTS = {{"天然狗粮通用型", "food"}, {"宠物自动喂食器", "daily"}, {"猫咪逗猫棒", "toy"},
+            {"狗狗磨牙骨", "toy"}, {"宠物专用沐浴露", "grooming"}, {"豪华猫爬架", "daily"}, {"宠物除臭喷雾", "daily"},
+            {"冬季保暖狗窝", "daily"}, {"宠物营养膏", "food"}, {"自动饮水机滤芯", "daily"}};
+    private static final String[][] SERVICES = {{"犬瘟热疫苗接种", "vaccine", "30分钟"}, {"宠物美容套餐", "grooming", "90分钟"},
+            {"宠物寄养(小型犬)", "boarding", "1天"}, {"宠物行为矫正", "training", "60分钟"}, {"猫咪绝育手术(公)", "medical", "2小时"},
+            {"狂犬病疫苗接种", "vaccine", "20分钟"}, {"宠物深度SPA", "grooming", "120分钟"}, {"宠物洁牙", "medical", "45分钟"}};
+    private static final String[] ORDER_STATUSES = {"completed", "completed", "completed", "completed", "completed",
+            "shipped", "paid", "paid", "pending", "cancelled"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random = new Random(SEED);
+    private final LocalDateTime now = LocalDateTime.now();
+    private final int scale;
+
+    public DataGenerator(int scale) {
+        if (scale <= 0) {
+            throw new IllegalArgumentException("scale must be > 0");
+        }
+        this.scale = scale;
+    }
+
+    public Dataset generate(Connection conn, Path schema) throws SQLException, IOException {
+        createSchema(conn, schema);
+        conn.setAutoCommit(false);
+
+        Dataset data = new Dataset();
+        data.merchants = insertMerchants(conn, 20 * scale);
+        insertUsers(conn, 2000 * scale, data);
+        data.pets = insertPets(conn, 5000 * scale, data.merchants);
+        insertProducts(conn, 2000 * scale, data);
+        data.services = insertServices(conn, 500 * scale, data.merchants);
+        data.orders = insertOrders(conn, 20000 * scale, data);
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO `Counters` (`name`, `count`) VALUES ('default', 1)");
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+
+        // Ids are assumed to be 1..n below; make sure the database agrees
+        for (Map.Entry<String, Integer> entry : data.sizes().entrySet()) {
+            verifyIds(conn, entry.getKey(), entry.getValue());
+        }
+        return data;
+    }
+
+    private void createSchema(Connection conn, Path schema) throws SQLException, IOException {
+        String sql = new String(Files.readAllBytes(schema), StandardCharsets.UTF_8);
+        int tables = 0;
+        try (Statement st = conn.createStatement()) {
+            for (String statement : sql.split(";\\s*(\\r?\\n|$)")) {
+                String ddl = stripLineComments(statement).trim();
+                if (ddl.toUpperCase(Locale.ROOT).startsWith("CREATE TABLE")) {
+                    ddl = COMMENT.matcher(ddl).replaceAll("");
+                    ddl = TABLE_OPTIONS.matcher(ddl).replaceFirst(")");
+                    st.execute(ddl);
+                    tables++;
+                }
+            }
+            try {
+                st.execute("CREATE ALIAS IF NOT EXISTS UNIX_TIMESTAMP FOR \"" + H2Functions.class.getName() + ".unixTimestamp\"");
+            } catch (SQLException e) {
+                // MySQL and newer H2 versions ship UNIX_TIMESTAMP themselves
+            }
+        }
+        if (tables == 0) {
+            throw new IllegalStateException("No CREATE TABLE statements found in " + schema);
+        }
+    }
+
+    private int insertMerchants(Connection conn, int count) throws SQLException {
+        String sql = "INSERT INTO merchants (name, phone, address, logo, rating, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                ps.setString(1, MERCHANT_NAMES[i % MERCHANT_NAMES.length] + (i < MERCHANT_NAMES.length ? "" : " " + (i / MERCHANT_NAMES.length + 1) + "号店"));
+                ps.setString(2, String.format("138%08d", i + 1));
+                ps.setString(3, pick(CITIES) + "宠物街" + (i + 1) + "号");
+                ps.setString(4, "https://placehold.co/200x200/2196F3/ffffff?text=M" + (i + 1));
+                ps.setBigDecimal(5, rating());
+                ps.setTimestamp(6, daysAgo(365));
+                add(ps, i);
+            }
+            ps.executeBatch();
+        }
+        return count;
+    }
+
+    private void insertUsers(Connection conn, int count, Dataset data) throws SQLException {
+        String sql = "INSERT INTO users (openid, nickname, avatar_url, phone, role, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+        data.userOpenIds = new String[count];
+        data.userPhones = new String[count];
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                String openid = String.format("user_openid_%06d", i + 1);
+                String phone = String.format("139%08d", i + 1);
+                // A few shop owners and one admin among ordinary buyers
+                String role = i == 0 ? "admin" : i <= scale * 10 ? "merchant" : "user";
+                ps.setString(1, openid);
+                ps.setString(2, "用户" + (i + 1));
+                ps.setString(3, "https://placehold.co/100x100/4CAF50/ffffff?text=U");
+                ps.setString(4, phone);
+                ps.setString(5, role);
+                ps.setTimestamp(6, daysAgo(365));
+                add(ps, i);
+                data.userOpenIds[i] = openid;
+                data.userPhones[i] = phone;
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private int insertPets(Connection conn, int count, int merchants) throws SQLException {
+        String sql = "INSERT INTO pets (name, breed, age, gender, price, deposit, status, description, avatar, health_status, merchant_id, views, created_at)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                BigDecimal price = BigDecimal.valueOf(200 + random.nextInt(80) * 100L).setScale(2);
+                ps.setString(1, pick(PET_NAMES));
+                ps.setString(2, pick(BREEDS));
+                ps.setString(3, pick(AGES));
+                ps.setString(4, random.nextBoolean() ? "male" : "female");
+                ps.setBigDecimal(5, price);
+                ps.setBigDecimal(6, price.multiply(new BigDecimal("0.30")).setScale(2, RoundingMode.HALF_UP));
+                ps.setString(7, random.nextInt(100) < 85 ? "available" : "sold");
+                ps.setString(8, pick(PET_DESCRIPTIONS));
+                ps.setString(9, "https://placehold.co/400x400/FF9800/ffffff?text=Pet" + (i + 1));
+                ps.setString(10, random.nextInt(10) == 0 ? "已绝育" : "健康");
+                ps.setInt(11, 1 + random.nextInt(merchants));
+                ps.setInt(12, random.nextInt(1000));
+                ps.setTimestamp(13, daysAgo(180));
+                add(ps, i);
+            }
+            ps.executeBatch();
+        }
+        return count;
+    }
+
+    private void insertProducts(Connection conn, int count, Dataset data) throws SQLException {
+        String sql = "INSERT INTO products (name, category, price, original_price, stock, sales, rating, image, views, status, created_at)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        data.products = count;
+        data.productNames = new String[count];
+        data.productPrices = new BigDecimal[count];
+        data.productOnShelf = new boolean[count];
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                String[] product = PRODUCTS[i % PRODUCTS.length];
+                String name = product[0] + (i < PRODUCTS.length ? "" : " " + (i / PRODUCTS.length + 1) + "号");
+                BigDecimal price = BigDecimal.valueOf(990 + random.nextInt(40000), 2);
+                boolean onShelf = random.nextInt(100) < 95;
+                ps.setString(1, name);
+                ps.setString(2, product[1]);
+                ps.setBigDecimal(3, price);
+                ps.setBigDecimal(4, price.add(BigDecimal.TEN));
+                // Deep enough that a run never sells out and turns checkouts into errors
+                ps.setInt(5, 1000000);
+                ps.setInt(6, random.nextInt(5000));
+                ps.setBigDecimal(7, rating());
+                ps.setString(8, "https://placehold.co/400x400/795548/ffffff?text=P" + (i + 1));
+                ps.setInt(9, random.nextInt(10000));
+                ps.setString(10, onShelf ? "on_shelf" : "off_shelf");
+                ps.setTimestamp(11, daysAgo(365));
+                add(ps, i);
+                data.productNames[i] = name;
+                data.productPrices[i] = price;
+                data.productOnShelf[i] = onShelf;
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private int insertServices(Connection conn, int count, int merchants) throws SQLException {
+        String sql = "INSERT INTO services (name, category, price, duration, description, merchant_name, merchant_id, image, sales, rating, created_at)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                String[] service = SERVICES[i % SERVICES.length];
+                int merchantId = 1 + random.nextInt(merchants);
+                ps.setString(1, service[0]);
+                ps.setString(2, service[1]);
+                ps.setBigDecimal(3, BigDecimal.valueOf(50 + random.nextInt(35) * 10L).setScale(2));
+                ps.setString(4, service[2]);
+                ps.setString(5, service[0] + "，专业团队服务");
+                ps.setString(6, MERCHANT_NAMES[(merchantId - 1) % MERCHANT_NAMES.length]);
+                ps.setInt(7, merchantId);
+                ps.setString(8, "https://placehold.co/400x400/2196F3/ffffff?text=S" + (i + 1));
+                ps.setInt(9, random.nextInt(1000));
+                ps.setBigDecimal(10, rating());
+                ps.setTimestamp(11, daysAgo(365));
+                add(ps, i);
+            }
+            ps.executeBatch();
+        }
+        return count;
+    }
+
+    private int insertOrders(Connection conn, int count, Dataset data) throws SQLException {
+        String orderSql = "INSERT INTO orders (order_no, user_id, total_amount, status, items_json, address_snapshot, tracking_number, created_at, updated_at)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String itemSql = "INSERT INTO order_items (order_id, item_type, product_id, product_name, price, quantity, amount)"
+                + " VALUES (?, 'product', ?, ?, ?, ?, ?)";
+        try (PreparedStatement orders = conn.prepareStatement(orderSql);
+             PreparedStatement items = conn.prepareStatement(itemSql)) {
+            int itemCount = 0;
+            for (int i = 0; i < count; i++) {
+                int orderId = i + 1;
+                List<Map<String, Object>> lines = new ArrayList<>();
+                BigDecimal total = BigDecimal.ZERO;
+                int lineCount = 1 + random.nextInt(3);
+                for (int j = 0; j < lineCount; j++) {
+                    int index = random.nextInt(data.products);
+                    int quantity = 1 + random.nextInt(3);
+                    BigDecimal amount = data.productPrices[index].multiply(BigDecimal.valueOf(quantity));
+                    items.setInt(1, orderId);
+                    items.setInt(2, index + 1);
+                    items.setString(3, data.productNames[index]);
+                    items.setBigDecimal(4, data.productPrices[index]);
+                    items.setInt(5, quantity);
+                    items.setBigDecimal(6, amount);
+                    items.addBatch();
+                    itemCount++;
+                    lines.add(data.orderLine(index, quantity));
+                    total = total.add(amount);
+                }
+
+                String status = pick(ORDER_STATUSES);
+                Timestamp createdAt = daysAgo(90);
+                orders.setString(1, "ORD" + (100000000L + orderId));
+                orders.setString(2, pick(data.userOpenIds));
+                orders.setBigDecimal(3, total);
+                orders.setString(4, status);
+                orders.setString(5, json(lines));
+                orders.setString(6, address());
+                orders.setString(7, "shipped".equals(status) || "completed".equals(status) ? "SF" + (1000000000L + orderId) : null);
+                orders.setTimestamp(8, createdAt);
+                orders.setTimestamp(9, createdAt);
+                orders.addBatch();
+
+                // Parents first so the foreign key holds
+                if (orderId % BATCH_SIZE == 0 || orderId == count) {
+                    orders.executeBatch();
+                    items.executeBatch();
+                    conn.commit();
+                }
+            }
+            data.orderItems = itemCount;
+        }
+        return count;
+    }
+
+    private void verifyIds(Connection conn, String table, int expected) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*), MAX(id) FROM " + table)) {
+            rs.next();
+            if (rs.getInt(1) != expected || rs.getInt(2) != expected) {
+                throw new IllegalStateException(table + " ids are not 1.." + expected);
+            }
+        }
+    }
+
+    private void add(PreparedStatement ps, int i) throws SQLException {
+        ps.addBatch();
+        if ((i + 1) % BATCH_SIZE == 0) {
+            ps.executeBatch();
+            ps.getConnection().commit();
+        }
+    }
+
+    private String address() {
+        Map<String, Object> address = new LinkedHashMap<>();
+        address.put("name", "收货人");
+        address.put("phone", String.format("139%08d", 1 + random.nextInt(99999999)));
+        address.put("address", pick(CITIES) + "幸福路" + (1 + random.nextInt(999)) + "号");
+        return json(address);
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private BigDecimal rating() {
+        return BigDecimal.valueOf(35 + random.nextInt(16), 1);
+    }
+
+    private Timestamp daysAgo(int maxDays) {
+        return Timestamp.valueOf(now.minusMinutes(random.nextInt(maxDays * 24 * 60)));
+    }
+
+    private <T> T pick(T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String stripLineComments(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        for (String line : sql.split("\\r?\\n")) {
+            if (!line.trim().startsWith("--")) {
+                sb.append(line).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * What the traffic generator needs to know about the seeded rows. Every table's
+     * ids run from 1 to its row count.
+     */
+    public static final class Dataset {
+        int merchants;
+        int pets;
+        int products;
+        int services;
+        int orders;
+        int orderItems;
+        String[] userOpenIds;
+        String[] userPhones;
+        String[] productNames;
+        BigDecimal[] productPrices;
+        boolean[] productOnShelf;
+
+        final String[] petKeywords = {"布偶", "金毛", "柯基", "橘猫", "萨摩耶", "哈士奇", "缅因", "英国短毛"};
+        final String[] productKeywords = {"狗粮", "猫爬架", "逗猫棒", "沐浴露", "营养膏", "喂食器", "狗窝"};
+        final String[] serviceKeywords = {"疫苗", "美容", "寄养", "洁牙", "SPA", "绝育"};
+
+        /** One itemsJson line in the shape the mini program sends. */
+        Map<String, Object> orderLine(int productIndex, int quantity) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("id", productIndex + 1);
+            line.put("name", productNames[productIndex]);
+            line.put("price", productPrices[productIndex]);
+            line.put("quantity", quantity);
+            line.put("type", "product");
+            return line;
+        }
+
+        public Map<String, Integer> sizes() {
+            Map<String, Integer> sizes = new LinkedHashMap<>();
+            sizes.put("merchants", merchants);
+            sizes.put("users", userOpenIds.length);
+            sizes.put("pets", pets);
+            sizes.put("products", products);
+            sizes.put("services", services);
+            sizes.put("orders", orders);
+            sizes.put("order_items", orderItems);
+            return Collections.unmodifiableMap(sizes);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.tencent.wxcloudrun.loadtest;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * MySQL functions used by the mappers that H2 does not provide in MySQL mode,
+ * registered with CREATE ALIAS by {@link DataGenerator}.
+ */
+public final class H2Functions {
+
+    private H2Functions() {
+    }
+
+    /** Seconds with the millisecond fraction, as MySQL returns it for a TIMESTAMP(3) column */
+    public static BigDecimal unixTimestamp(Timestamp value) {
+        return value == null ? null : BigDecimal.valueOf(value.getTime(), 3);
+    }
+}
@@ -0,0 +1,133 @@
+package com.tencent.wxcloudrun.queryplan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 查询计划预期
+ * What each mapper statement is allowed to show in its EXPLAIN. A statement with
+ * no entry here runs once with the sample parameters and must use an index with
+ * no filesort and no temporary table. Statements with dynamic SQL list one case
+ * per branch that matters. Every allowance carries its reason, so a new scan
+ * needs a deliberate entry rather than slipping in with a mapper change.
+ */
+final class PlanCases {
+
+    enum Finding {
+        /** type ALL or a full index scan over at least --min-rows rows */
+        SCAN,
+        /** Extra: Using filesort */
+        FILESORT,
+        /** Extra: Using temporary */
+        TEMPORARY
+    }
+
+    static final class Case {
+        final String name;
+        final Map<String, Object> overrides = new LinkedHashMap<>();
+        final Set<Finding> allowed;
+        final String reason;
+
+        private Case(String name, String reason, Finding... allowed) {
+            this.name = name;
+            this.reason = reason;
+            this.allowed = allowed.length == 0 ? EnumSet.noneOf(Finding.class) : EnumSet.copyOf(Arrays.asList(allowed));
+        }
+
+        private Case with(String param, Object value) {
+            overrides.put(param, value);
+            return this;
+        }
+    }
+
+    private static final String MERCHANT_PHONE = "13800000001";
+
+    private static final List<Case> DEFAULT = Collections.singletonList(new Case("default", null));
+
+    // Keyed by statement id without the namespace; getListVersion is the same query in three mappers
+    private static final Map<String, List<Case>> CASES = new HashMap<>();
+
+    static {
+        for (String id : new String[]{"getPets", "getProducts", "getServices", "getMerchants"}) {
+            add(id, new Case("default", "no ORDER BY, reads only offset + limit rows", Finding.SCAN));
+        }
+        for (String id : new String[]{"scanPetsForIndex", "scanProductsForIndex", "scanServicesForIndex",
+                "scanMerchantsForIndex"}) {
+            add(id, new Case("default", "loads the whole table into the search index on purpose", Finding.SCAN));
+        }
+        for (String id : new String[]{"countPets", "countProducts", "countServices", "countOrders",
+                "countDistinctCustomers", "getListVersion"}) {
+            add(id, new Case("default", "whole-table aggregate over the smallest index", Finding.SCAN));
+        }
+
+        // LIKE '%kw%' cannot use a B-tree index; keyword searches are answered by the
+        // in-memory search index and only fall back to these statements when it is cold
+        String likeReason = "LIKE '%keyword%' fallback, normally served by the search index";
+        for (String entity : new String[]{"Pets", "Products", "Services", "Merchants"}) {
+            boolean pets = "Pets".equals(entity);
+            for (String id : new String[]{"search" + entity, "search" + entity + "After"}) {
+                List<Case> cases = new ArrayList<>();
+                cases.add(new Case("browse", null).with("keyword", null));
+                cases.add(new Case("keyword", likeReason, Finding.SCAN, Finding.FILESORT));
+                if (pets) {
+                    cases.get(0).with("userId", null);
+                    cases.get(1).with("userId", null);
+                    cases.add(new Case("merchant", "pets of one merchant, found through its phone, sorted after the lookup",
+                            Finding.FILESORT, Finding.TEMPORARY).with("keyword", null).with("userId", MERCHANT_PHONE));
+                    cases.add(new Case("keyword+merchant", likeReason, Finding.FILESORT, Finding.TEMPORARY)
+                            .with("userId", MERCHANT_PHONE));
+                }
+                CASES.put(id, cases);
+            }
+            List<Case> counts = new ArrayList<>();
+            counts.add(new Case("browse", "unfiltered total, same as count" + entity, Finding.SCAN).with("keyword", null));
+            counts.add(new Case("keyword", likeReason, Finding.SCAN));
+            if (pets) {
+                counts.get(0).with("userId", null);
+                counts.get(1).with("userId", null);
+                counts.add(new Case("merchant", null).with("keyword", null).with("userId", MERCHANT_PHONE));
+            }
+            CASES.put("countSearch" + entity, counts);
+        }
+
+        add("getItemsByOrderNos", new Case("default",
+                "sorts the items of a handful of orders after the join", Finding.FILESORT, Finding.TEMPORARY));
+        add("getBestSellers", new Case("default",
+                "aggregates every paid order item on each call; known scan, bounded by the limit only after grouping",
+                Finding.SCAN, Finding.FILESORT, Finding.TEMPORARY));
+
+        add("getOrdersByStatus",
+                new Case("all", null).with("status", null),
+                new Case("default", null));
+        add("getMerchantOrderSummaries",
+                new Case("all", null).with("status", null).with("startTime", null).with("endTime", null)
+                        .with("cursorCreatedAt", null),
+                new Case("status", null).with("startTime", null).with("endTime", null).with("cursorCreatedAt", null),
+                new Case("range", null).with("status", null).with("cursorCreatedAt", null),
+                new Case("default", null));
+        // Covered by idx_orders_created_at_status_amount; the grouping is over the five statuses
+        String statusGroups = "groups by status, at most five rows in the temporary table";
+        add("getOrderTotalsByStatus",
+                new Case("all", "all-time totals read the whole covering index", Finding.SCAN, Finding.TEMPORARY)
+                        .with("startTime", null).with("endTime", null),
+                new Case("default", statusGroups, Finding.TEMPORARY));
+    }
+
+    private PlanCases() {
+    }
+
+    static List<Case> forStatement(String id) {
+        return CASES.getOrDefault(id, DEFAULT);
+    }
+
+    private static void add(String id, Case... cases) {
+        CASES.put(id, Arrays.asList(cases));
+    }
+}
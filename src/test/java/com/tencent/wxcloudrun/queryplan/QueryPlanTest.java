@@ -0,0 +1,346 @@
+package com.tencent.wxcloudrun.queryplan;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tencent.wxcloudrun.loadtest.DataGenerator;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 查询计划检查
+ * Seeds an empty MySQL schema with the load test data set, runs EXPLAIN on every
+ * select, update and delete of the mapper XMLs and fails when a plan shows a full
+ * scan, a filesort or a temporary table that {@link PlanCases} does not allow for
+ * that statement. Needs a real MySQL, since the plans are MySQL's, so it only runs
+ * when QUERY_PLAN_URL names an empty database of its own (mvn test skips it
+ * otherwise). The allowances target MySQL 8.0: the server version goes into the
+ * report, and another version only gets a warning, since its optimizer may
+ * legitimately choose other plans. An allowance the plan no longer needs fails the
+ * test as well. Environment:
+ * <pre>
+ *   QUERY_PLAN_URL=jdbc:mysql://localhost:3306/cat_mall_plan?rewriteBatchedStatements=true
+ *   QUERY_PLAN_USER=root QUERY_PLAN_PASSWORD=...
+ *   QUERY_PLAN_SCALE=10      data set size multiplier, large enough for the optimizer to prefer indexes
+ *   QUERY_PLAN_MIN_ROWS=100  full scans estimated below this many rows are ignored
+ * </pre>
+ * The report is written to target/query-plan-report.json.
+ */
+@EnabledIfEnvironmentVariable(named = "QUERY_PLAN_URL", matches = ".+")
+class QueryPlanTest {
+
+    private static final String TARGET_VERSION = "8.0";
+
+    @Test
+    void everyStatementUsesAnIndexOrHasAnAllowance() throws Exception {
+        String url = System.getenv("QUERY_PLAN_URL");
+        String user = env("QUERY_PLAN_USER", "root");
+        String password = env("QUERY_PLAN_PASSWORD", "");
+        int scale = Integer.parseInt(env("QUERY_PLAN_SCALE", "10"));
+        long minRows = Long.parseLong(env("QUERY_PLAN_MIN_ROWS", "100"));
+        Path schema = Paths.get("test_data_generation.sql");
+        Path output = Paths.get("target/query-plan-report.json");
+
+        Configuration configuration = loadMappers();
+        List<Map<String, Object>> results = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        String serverVersion;
+        try (Connection conn = DriverManager.getConnection(url, user, password)) {
+            serverVersion = conn.getMetaData().getDatabaseProductVersion();
+            System.out.println("MySQL " + serverVersion);
+            if (!serverVersion.startsWith(TARGET_VERSION)) {
+                System.out.println("WARNING: PlanCases were written for MySQL " + TARGET_VERSION
+                        + ", plans on " + serverVersion + " may differ");
+            }
+            seed(conn, scale, schema);
+            for (MappedStatement statement : statements(configuration)) {
+                Method method = mapperMethod(statement);
+                for (PlanCases.Case c : PlanCases.forStatement(shortId(statement))) {
+                    Map<String, Object> result = explain(conn, configuration, statement, method, c, minRows);
+                    results.add(result);
+                    String outcome = (String) result.get("result");
+                    if ("FAIL".equals(outcome)) {
+                        failures.add(String.format("%s [%s]: unexpected %s", result.get("statement"), c.name,
+                                result.get("unexpected")));
+                    } else if ("ERROR".equals(outcome)) {
+                        failures.add(String.format("%s [%s]: %s", result.get("statement"), c.name, result.get("error")));
+                    }
+                    if (result.containsKey("allowedButNotSeen")) {
+                        // Kept only for plans actually observed, so the next regression is not waved through
+                        failures.add(String.format("%s [%s]: allows %s but the plan does not show it",
+                                result.get("statement"), c.name, result.get("allowedButNotSeen")));
+                    }
+                }
+            }
+        }
+
+        print(results);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("finishedAt", LocalDateTime.now().toString());
+        report.put("serverVersion", serverVersion);
+        report.put("scale", scale);
+        report.put("minRows", minRows);
+        report.put("failures", failures.size());
+        report.put("statements", results);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), report);
+        System.out.println("Report written to " + output.toAbsolutePath());
+
+        assertTrue(failures.isEmpty(), failures.size() + " of " + results.size() + " plans failed:\n"
+                + String.join("\n", failures));
+    }
+
+    // Refuses a schema that already has tables: the check creates its own and must not touch real data
+    private static void seed(Connection conn, int scale, Path schema) throws Exception {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT DATABASE(), (SELECT COUNT(*) FROM information_schema.tables "
+                     + "WHERE table_schema = DATABASE())")) {
+            rs.next();
+            if (rs.getString(1) == null) {
+                throw new IllegalArgumentException("The JDBC URL must name a database");
+            }
+            if (rs.getLong(2) > 0) {
+                throw new IllegalStateException("Database " + rs.getString(1) + " is not empty; "
+                        + "the query plan check needs a database of its own");
+            }
+        }
+
+        long start = System.nanoTime();
+        DataGenerator.Dataset data = new DataGenerator(scale).generate(conn, schema);
+        conn.setAutoCommit(true);
+
+        // Fresh statistics, otherwise the optimizer plans against the near-empty tables it saw at creation
+        List<String> tables = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT table_name FROM information_schema.tables WHERE table_schema = DATABASE()")) {
+            while (rs.next()) {
+                tables.add("`" + rs.getString(1) + "`");
+            }
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute("ANALYZE TABLE " + String.join(", ", tables));
+        }
+        System.out.printf("Seeded %s in %d ms%n", data.sizes(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static Configuration loadMappers() throws Exception {
+        Configuration configuration = new Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath*:mapper/*Mapper.xml");
+        if (resources.length == 0) {
+            throw new IllegalStateException("No mapper XML found on the classpath");
+        }
+        for (Resource resource : resources) {
+            try (InputStream in = resource.getInputStream()) {
+                new XMLMapperBuilder(in, configuration, resource.toString(), configuration.getSqlFragments()).parse();
+            }
+        }
+        return configuration;
+    }
+
+    // Each statement is registered under its full and its short id; the full ids are the unique ones
+    private static List<MappedStatement> statements(Configuration configuration) {
+        Map<String, MappedStatement> byId = new TreeMap<>();
+        for (String name : configuration.getMappedStatementNames()) {
+            if (!name.contains(".")) {
+                continue;
+            }
+            MappedStatement statement = configuration.getMappedStatement(name);
+            if (!"INSERT".equals(firstWord(statement))) {
+                byId.put(name, statement);
+            }
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    // addCount is an <update> that inserts, so the statement type alone does not tell
+    private static String firstWord(MappedStatement statement) {
+        try {
+            String sql = statement.getBoundSql(new HashMap<String, Object>()).getSql().trim();
+            int end = 0;
+            while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+                end++;
+            }
+            return sql.substring(0, end).toUpperCase(Locale.ROOT);
+        } catch (RuntimeException e) {
+            return statement.getSqlCommandType().name();
+        }
+    }
+
+    private static Method mapperMethod(MappedStatement statement) {
+        String id = statement.getId();
+        int dot = id.lastIndexOf('.');
+        try {
+            for (Method method : Class.forName(id.substring(0, dot)).getMethods()) {
+                if (method.getName().equals(id.substring(dot + 1))) {
+                    return method;
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            // XML-only namespace: the statement gets a plain map of samples
+        }
+        return null;
+    }
+
+    private static Map<String, Object> explain(Connection conn, Configuration configuration, MappedStatement statement,
+                                               Method method, PlanCases.Case c, long minRows) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statement", statement.getId());
+        result.put("case", c.name);
+        result.put("allowed", c.allowed);
+        if (c.reason != null) {
+            result.put("reason", c.reason);
+        }
+        try {
+            Object parameter = SampleParameters.build(configuration, statement, method, c.overrides);
+            BoundSql boundSql = statement.getBoundSql(parameter);
+            String sql = boundSql.getSql().replaceAll("\\s+", " ").trim();
+            result.put("sql", sql);
+
+            Set<PlanCases.Finding> findings = EnumSet.noneOf(PlanCases.Finding.class);
+            List<Map<String, Object>> plan = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement("EXPLAIN " + sql)) {
+                ParameterHandler handler = new DefaultParameterHandler(statement, parameter, boundSql);
+                handler.setParameters(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        plan.add(planRow(rs, findings, minRows));
+                    }
+                }
+            }
+            result.put("plan", plan);
+            result.put("findings", findings);
+
+            Set<PlanCases.Finding> unexpected = EnumSet.noneOf(PlanCases.Finding.class);
+            unexpected.addAll(findings);
+            unexpected.removeAll(c.allowed);
+            if (!unexpected.isEmpty()) {
+                result.put("result", "FAIL");
+                result.put("unexpected", unexpected);
+            } else {
+                result.put("result", findings.isEmpty() ? "OK" : "ALLOWED");
+            }
+            // An allowance nothing needs any more should be removed, so the next regression is caught
+            Set<PlanCases.Finding> unused = EnumSet.noneOf(PlanCases.Finding.class);
+            unused.addAll(c.allowed);
+            unused.removeAll(findings);
+            if (!unused.isEmpty()) {
+                result.put("allowedButNotSeen", unused);
+            }
+        } catch (SQLException | RuntimeException e) {
+            result.put("result", "ERROR");
+            result.put("error", e.getMessage());
+        }
+        return result;
+    }
+
+    private static Map<String, Object> planRow(ResultSet rs, Set<PlanCases.Finding> findings, long minRows) throws SQLException {
+        String table = rs.getString("table");
+        String type = rs.getString("type");
+        String key = rs.getString("key");
+        long rows = rs.getLong("rows");
+        String extra = rs.getString("Extra");
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("table", table);
+        row.put("type", type);
+        row.put("key", key);
+        row.put("rows", rows);
+        row.put("extra", extra);
+
+        // <derived2>, <subquery3> and the like are scans of an intermediate result, not of a table
+        boolean realTable = table != null && !table.startsWith("<");
+        if (realTable && ("ALL".equals(type) || "index".equals(type)) && rows >= minRows) {
+            findings.add(PlanCases.Finding.SCAN);
+        }
+        if (extra != null) {
+            if (extra.contains("Using filesort")) {
+                findings.add(PlanCases.Finding.FILESORT);
+            }
+            if (extra.contains("Using temporary")) {
+                findings.add(PlanCases.Finding.TEMPORARY);
+            }
+        }
+        return row;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(List<Map<String, Object>> results) {
+        System.out.printf("%-7s %-58s %-16s %s%n", "result", "statement", "case", "plan (table:type:key:rows)");
+        List<String> notes = new ArrayList<>();
+        for (Map<String, Object> result : results) {
+            StringBuilder plan = new StringBuilder();
+            Object rows = result.get("plan");
+            if (rows != null) {
+                for (Map<String, Object> row : (List<Map<String, Object>>) rows) {
+                    if (plan.length() > 0) {
+                        plan.append(", ");
+                    }
+                    plan.append(row.get("table")).append(':').append(row.get("type")).append(':')
+                            .append(row.get("key")).append(':').append(row.get("rows"));
+                    if (row.get("extra") != null) {
+                        plan.append(" (").append(row.get("extra")).append(')');
+                    }
+                }
+            }
+            String outcome = (String) result.get("result");
+            System.out.printf("%-7s %-58s %-16s %s%n", outcome, result.get("statement"), result.get("case"),
+                    "ERROR".equals(outcome) ? result.get("error") : plan);
+            if ("FAIL".equals(outcome)) {
+                notes.add(String.format("%s [%s]: unexpected %s", result.get("statement"), result.get("case"),
+                        result.get("unexpected")));
+            }
+            if (result.containsKey("allowedButNotSeen")) {
+                notes.add(String.format("%s [%s]: allows %s but the plan no longer shows it", result.get("statement"),
+                        result.get("case"), result.get("allowedButNotSeen")));
+            }
+        }
+        for (String note : notes) {
+            System.out.println(note);
+        }
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isEmpty() ? value : defaultValue;
+    }
+
+    private static String shortId(MappedStatement statement) {
+        String id = statement.getId();
+        return id.substring(id.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,167 @@
+package com.tencent.wxcloudrun.queryplan;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+
+import java.beans.PropertyDescriptor;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 参数样本
+ * Builds the parameter object MyBatis would receive for a mapper method, from
+ * values that hit rows of the generated data set (ids, openids, phones and order
+ * numbers all exist). Values are chosen by parameter name first, then by type;
+ * a plan case can override any named parameter, including setting it to null to
+ * take the other branch of an &lt;if&gt;.
+ */
+final class SampleParameters {
+
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    private static final Map<String, Object> BY_NAME = new HashMap<>();
+
+    static {
+        BY_NAME.put("limit", 10);
+        BY_NAME.put("offset", 20);
+        BY_NAME.put("quantity", 1);
+        BY_NAME.put("delta", 1);
+        BY_NAME.put("keyword", "布偶");
+        BY_NAME.put("status", "paid");
+        BY_NAME.put("role", "merchant");
+        BY_NAME.put("name", "default");
+        BY_NAME.put("names", Collections.singletonList("default"));
+        BY_NAME.put("openid", "user_openid_000042");
+        BY_NAME.put("userId", "user_openid_000042");
+        BY_NAME.put("phone", "13900000042");
+        BY_NAME.put("orderNo", "ORD100000042");
+        BY_NAME.put("orderNos", Arrays.asList("ORD100000042", "ORD100000043", "ORD100000044"));
+        BY_NAME.put("trackingNumber", "SF1000000042");
+        BY_NAME.put("fromStatuses", Arrays.asList("pending", "paid"));
+        BY_NAME.put("ids", Arrays.asList(41, 42, 43));
+        BY_NAME.put("orderIds", Arrays.asList(41, 42, 43));
+        BY_NAME.put("cursorSales", 100);
+        BY_NAME.put("cursorRating", new BigDecimal("4.5"));
+        BY_NAME.put("cursorCreatedAt", NOW.minusDays(7));
+        BY_NAME.put("startTime", NOW.minusDays(30));
+        BY_NAME.put("endTime", NOW);
+        BY_NAME.put("now", NOW);
+        BY_NAME.put("until", NOW.plusMinutes(30));
+    }
+
+    private SampleParameters() {
+    }
+
+    /**
+     * @param method    the mapper method, or null when the statement has none
+     * @param overrides values that replace the samples of the same name
+     */
+    static Object build(Configuration configuration, MappedStatement statement, Method method, Map<String, Object> overrides) {
+        if (method == null) {
+            Map<String, Object> params = new HashMap<>(BY_NAME);
+            params.putAll(overrides);
+            return params;
+        }
+        Class<?>[] types = method.getParameterTypes();
+        Annotation[][] annotations = method.getParameterAnnotations();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            String name = paramName(annotations[i]);
+            if (name == null && types.length == 1 && !isModel(types[i])) {
+                name = placeholderName(statement);
+            }
+            if (name != null && overrides.containsKey(name)) {
+                args[i] = overrides.get(name);
+            } else {
+                args[i] = sample(name, types[i]);
+            }
+        }
+        return new ParamNameResolver(configuration, method).getNamedParams(args);
+    }
+
+    private static Object sample(String name, Class<?> type) {
+        if (name != null && BY_NAME.containsKey(name)) {
+            return BY_NAME.get(name);
+        }
+        if (ResultHandler.class.isAssignableFrom(type)) {
+            return null;
+        }
+        if (type == Integer.class || type == int.class) {
+            return 42;
+        }
+        if (type == Long.class || type == long.class) {
+            return 42L;
+        }
+        if (type == String.class) {
+            return "sample";
+        }
+        if (type == BigDecimal.class) {
+            return BigDecimal.ONE;
+        }
+        if (type == LocalDateTime.class) {
+            return NOW.minusDays(1);
+        }
+        if (type == LocalDate.class) {
+            return NOW.toLocalDate();
+        }
+        if (List.class.isAssignableFrom(type)) {
+            return Arrays.asList(41, 42, 43);
+        }
+        if (isModel(type)) {
+            return bean(type);
+        }
+        return null;
+    }
+
+    private static boolean isModel(Class<?> type) {
+        return type.getName().startsWith("com.tencent.wxcloudrun.model.");
+    }
+
+    // Every writable property set, so each <if test="x != null"> branch is part of the plan
+    private static Object bean(Class<?> type) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(BeanUtils.instantiateClass(type));
+        for (PropertyDescriptor property : wrapper.getPropertyDescriptors()) {
+            if (property.getWriteMethod() == null) {
+                continue;
+            }
+            Class<?> propertyType = property.getPropertyType();
+            Object value = List.class.isAssignableFrom(propertyType) ? null : sample(property.getName(), propertyType);
+            wrapper.setPropertyValue(property.getName(), value);
+        }
+        return wrapper.getWrappedInstance();
+    }
+
+    private static String paramName(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Param) {
+                return ((Param) annotation).value();
+            }
+        }
+        return null;
+    }
+
+    // Un-annotated single parameters are named by the #{...} of a static statement
+    private static String placeholderName(MappedStatement statement) {
+        try {
+            List<ParameterMapping> mappings = statement.getBoundSql(null).getParameterMappings();
+            return mappings.isEmpty() ? null : mappings.get(0).getProperty();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
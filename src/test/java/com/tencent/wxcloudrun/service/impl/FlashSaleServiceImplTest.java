@@ -0,0 +1,274 @@
+package com.tencent.wxcloudrun.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tencent.wxcloudrun.cache.CacheRegistry;
+import com.tencent.wxcloudrun.dao.FlashSaleMapper;
+import com.tencent.wxcloudrun.dto.FlashSaleRequest;
+import com.tencent.wxcloudrun.model.FlashSale;
+import com.tencent.wxcloudrun.model.OrderItem;
+import com.tencent.wxcloudrun.model.Product;
+import com.tencent.wxcloudrun.service.DashboardService;
+import com.tencent.wxcloudrun.service.InventoryService;
+import com.tencent.wxcloudrun.service.PetService;
+import com.tencent.wxcloudrun.service.ProductService;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Admission only: the persister and the lease renewal are scheduled an hour out, so
+ * every admitted order stays queued and nothing reaches the (mocked) database.
+ */
+class FlashSaleServiceImplTest {
+
+    private static final int PRODUCT_ID = 7;
+    private static final int THREADS = 32;
+
+    private FlashSaleServiceImpl service;
+
+    @AfterEach
+    void stopPersister() {
+        ((ScheduledExecutorService) ReflectionTestUtils.getField(service, "persister")).shutdownNow();
+    }
+
+    @Test
+    void concurrentBuyersNeverOversell() throws Exception {
+        service = newService(10000);
+        service.startSale(productSale(100));
+
+        Set<String> orderNos = ConcurrentHashMap.newKeySet();
+        AtomicInteger soldOut = new AtomicInteger();
+        AtomicInteger user = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < 50; i++) {
+                try {
+                    orderNos.add(service.buy(OrderItem.TYPE_PRODUCT, PRODUCT_ID, "user-" + user.incrementAndGet(), null));
+                } catch (IllegalStateException e) {
+                    assertEquals("Sold out", e.getMessage());
+                    soldOut.incrementAndGet();
+                }
+            }
+        });
+
+        Map<String, Object> stats = service.getSales().get(0);
+        assertEquals(100, orderNos.size());
+        assertEquals(100, stats.get("admitted"));
+        assertEquals(0, stats.get("remaining"));
+        assertEquals(THREADS * 50 - 100, soldOut.get());
+    }
+
+    @Test
+    void oneUserIsAdmittedOnce() throws Exception {
+        service = newService(10000);
+        service.startSale(productSale(100));
+
+        AtomicInteger admitted = new AtomicInteger();
+        runConcurrently(() -> {
+            try {
+                service.buy(OrderItem.TYPE_PRODUCT, PRODUCT_ID, "same-user", null);
+                admitted.incrementAndGet();
+            } catch (IllegalStateException e) {
+                assertEquals("Already purchased in this flash sale", e.getMessage());
+            }
+        });
+
+        assertEquals(1, admitted.get());
+        assertEquals(99, service.getSales().get(0).get("remaining"));
+    }
+
+    @Test
+    void fullQueueTurnsBuyersAwayAndKeepsTheirTokens() throws Exception {
+        service = newService(10);
+        service.startSale(productSale(100));
+
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger busy = new AtomicInteger();
+        AtomicInteger user = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < 5; i++) {
+                try {
+                    service.buy(OrderItem.TYPE_PRODUCT, PRODUCT_ID, "user-" + user.incrementAndGet(), null);
+                    admitted.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    busy.incrementAndGet();
+                }
+            }
+        });
+
+        Map<String, Object> stats = service.getSales().get(0);
+        assertEquals(10, admitted.get());
+        assertEquals(THREADS * 5 - 10, busy.get());
+        assertEquals(10, stats.get("admitted"));
+        assertEquals(90, stats.get("remaining"));
+    }
+
+    @Test
+    void secondSaleOfTheSameItemIsRejected() {
+        service = newService(10000);
+        service.startSale(productSale(10));
+
+        assertThrows(IllegalStateException.class, () -> service.startSale(productSale(10)));
+    }
+
+    @Test
+    void saleWhoseLeaseExpiredIsSettledAtStartup() {
+        FlashSale orphan = orphan();
+        FlashSaleMapper flashSaleMapper = mock(FlashSaleMapper.class);
+        when(flashSaleMapper.getExpiredSales()).thenReturn(Collections.singletonList(orphan));
+        when(flashSaleMapper.lockExpiredSale(5)).thenReturn(orphan);
+        when(flashSaleMapper.closeSale(5, 30)).thenReturn(1);
+        List<OrderItem> released = new ArrayList<>();
+
+        service = newService(10000, flashSaleMapper, new RecordingInventory(released));
+
+        assertEquals(1, released.size());
+        assertEquals(PRODUCT_ID, released.get(0).getProductId());
+        assertEquals(30, released.get(0).getQuantity());
+    }
+
+    @Test
+    void saleRenewedBeforeItCouldBeLockedIsLeftAlone() {
+        FlashSaleMapper flashSaleMapper = mock(FlashSaleMapper.class);
+        when(flashSaleMapper.getExpiredSales()).thenReturn(Collections.singletonList(orphan()));
+        // lockExpiredSale finds no expired row: the owner renewed in between
+        List<OrderItem> released = new ArrayList<>();
+
+        service = newService(10000, flashSaleMapper, new RecordingInventory(released));
+
+        assertEquals(0, released.size());
+    }
+
+    @Test
+    void buyersAreTurnedAwayOnceTheLeaseCouldNotBeRenewed() {
+        service = newService(10000, mock(FlashSaleMapper.class), mock(InventoryService.class), 0);
+        service.startSale(productSale(10));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> service.buy(OrderItem.TYPE_PRODUCT, PRODUCT_ID, "user-1", null));
+        assertEquals("Flash sale is busy, please try again", e.getMessage());
+        assertEquals(10, service.getSales().get(0).get("remaining"));
+    }
+
+    private static FlashSale orphan() {
+        FlashSale orphan = new FlashSale();
+        orphan.setId(5);
+        orphan.setItemType(OrderItem.TYPE_PRODUCT);
+        orphan.setItemId(PRODUCT_ID);
+        orphan.setAllotted(100);
+        orphan.setSold(60);
+        orphan.setReturned(10);
+        orphan.setOwner("crashed-instance");
+        return orphan;
+    }
+
+    private static FlashSaleServiceImpl newService(int queueCapacity) {
+        return newService(queueCapacity, mock(FlashSaleMapper.class), mock(InventoryService.class));
+    }
+
+    private static FlashSaleServiceImpl newService(int queueCapacity, FlashSaleMapper flashSaleMapper,
+                                                   InventoryService inventoryService) {
+        return newService(queueCapacity, flashSaleMapper, inventoryService, TimeUnit.HOURS.toSeconds(1));
+    }
+
+    private static FlashSaleServiceImpl newService(int queueCapacity, FlashSaleMapper flashSaleMapper,
+                                                   InventoryService inventoryService, long leaseSeconds) {
+        Product product = new Product();
+        product.setId(PRODUCT_ID);
+        product.setName("冻干猫粮");
+        product.setPrice(new BigDecimal("59.00"));
+        ProductService productService = mock(ProductService.class);
+        when(productService.getProductById(PRODUCT_ID)).thenReturn(product);
+
+        FlashSaleServiceImpl service = new FlashSaleServiceImpl();
+        ReflectionTestUtils.setField(service, "productService", productService);
+        ReflectionTestUtils.setField(service, "petService", mock(PetService.class));
+        ReflectionTestUtils.setField(service, "inventoryService", inventoryService);
+        ReflectionTestUtils.setField(service, "dashboardService", mock(DashboardService.class));
+        ReflectionTestUtils.setField(service, "orderNoGenerator", new OrderNoGenerator(1, 5000));
+        ReflectionTestUtils.setField(service, "sqlSessionFactory", mock(SqlSessionFactory.class));
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "cacheRegistry", mock(CacheRegistry.class));
+        ReflectionTestUtils.setField(service, "flashSaleMapper", flashSaleMapper);
+        ReflectionTestUtils.setField(service, "stripes", 16);
+        ReflectionTestUtils.setField(service, "batchSize", 200);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(service, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(service, "leaseSeconds", leaseSeconds);
+        ReflectionTestUtils.setField(service, "holdMinutes", 30L);
+        service.init();
+        return service;
+    }
+
+    private static FlashSaleRequest productSale(int quantity) {
+        FlashSaleRequest request = new FlashSaleRequest();
+        request.setItemType(OrderItem.TYPE_PRODUCT);
+        request.setItemId(PRODUCT_ID);
+        request.setQuantity(quantity);
+        return request;
+    }
+
+    private static final class RecordingInventory implements InventoryService {
+        private final List<OrderItem> released;
+
+        RecordingInventory(List<OrderItem> released) {
+            this.released = released;
+        }
+
+        @Override
+        public void reserve(List<OrderItem> items) {
+        }
+
+        @Override
+        public void release(List<OrderItem> items) {
+            released.addAll(items);
+        }
+
+        @Override
+        public void recordSales(List<OrderItem> items) {
+        }
+    }
+
+    private static void runConcurrently(Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.tencent.wxcloudrun.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNoGeneratorTest {
+
+    private static final int THREADS = 32;
+    private static final int IDS_PER_THREAD = 20000;
+
+    @Test
+    void concurrentCallersGetUniqueIncreasingIds() throws Exception {
+        OrderNoGenerator generator = new OrderNoGenerator(1, 5000);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    long previous = Long.MIN_VALUE;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        long id = generator.nextId();
+                        assertTrue(id > previous, "ids went backwards within a thread: " + previous + " -> " + id);
+                        assertTrue(ids.add(id), "duplicate id " + id);
+                        previous = id;
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+
+    @Test
+    void missingWorkerIdFailsWhenRequired() {
+        assertThrows(IllegalStateException.class, () -> new OrderNoGenerator(-1, 5000, true));
+    }
+
+    @Test
+    void missingWorkerIdFallsBackToHostNameOtherwise() {
+        long workerId = new OrderNoGenerator(-1, 5000, false).getWorkerId();
+
+        assertTrue(workerId >= 0 && workerId <= 1023, "worker id out of range: " + workerId);
+    }
+}
@@ -0,0 +1,114 @@
+package com.tencent.wxcloudrun.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedStockTest {
+
+    private static final int THREADS = 16;
+
+    @Test
+    void concurrentBuyersGetExactlyTheLoadedTokens() throws Exception {
+        StripedStock stock = new StripedStock(10000, 16);
+
+        int acquired = sum(runConcurrently(() -> {
+            int mine = 0;
+            while (stock.tryAcquire()) {
+                mine++;
+            }
+            return mine;
+        }));
+
+        assertEquals(10000, acquired);
+        assertEquals(0, stock.remaining());
+        assertFalse(stock.tryAcquire());
+    }
+
+    @Test
+    void releasedTokensAreHandedOutAgainButNeverMore() throws Exception {
+        StripedStock stock = new StripedStock(1000, 16);
+
+        // Every thread gives back every other token it gets, as failed purchases do
+        int kept = sum(runConcurrently(() -> {
+            int mine = 0;
+            boolean giveBack = false;
+            while (stock.tryAcquire()) {
+                if (giveBack) {
+                    stock.release();
+                } else {
+                    mine++;
+                }
+                giveBack = !giveBack;
+            }
+            return mine;
+        }));
+
+        assertEquals(1000, kept + stock.remaining());
+        assertEquals(1000, kept + stock.drain());
+        assertEquals(0, stock.remaining());
+    }
+
+    @Test
+    void fewerTokensThanStripes() {
+        StripedStock stock = new StripedStock(3, 16);
+
+        assertEquals(3, stock.remaining());
+        assertTrue(stock.tryAcquire());
+        assertTrue(stock.tryAcquire());
+        assertTrue(stock.tryAcquire());
+        assertFalse(stock.tryAcquire());
+    }
+
+    @Test
+    void drainTakesWhatIsLeft() {
+        StripedStock stock = new StripedStock(50, 4);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(stock.tryAcquire());
+        }
+
+        assertEquals(30, stock.drain());
+        assertFalse(stock.tryAcquire());
+    }
+
+    private static List<Integer> runConcurrently(Callable<Integer> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<Integer> results = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static int sum(List<Integer> values) {
+        int total = 0;
+        for (int value : values) {
+            total += value;
+        }
+        return total;
+    }
+}